@@ -16,6 +16,8 @@ CREATE TABLE IF NOT EXISTS ingestion.taxi_trip_raw (
     pickup_latitude NUMERIC(9,6),
     dropoff_longitude NUMERIC(9,6),
     dropoff_latitude NUMERIC(9,6),
+    pickup_location_id INTEGER,
+    dropoff_location_id INTEGER,
 
     rate_code_id INTEGER,
     store_and_fwd_flag CHAR(1),
@@ -28,8 +30,125 @@ CREATE TABLE IF NOT EXISTS ingestion.taxi_trip_raw (
     tolls_amount NUMERIC(10,2),
     improvement_surcharge NUMERIC(10,2),
     total_amount NUMERIC(10,2),
+    congestion_surcharge NUMERIC(10,2),
+    airport_fee NUMERIC(10,2),
 
     ingested_at TIMESTAMP DEFAULT now(),
 
     CONSTRAINT uk_source_line UNIQUE (source_file, line_number)
-);
\ No newline at end of file
+);
+
+-- Target of taxi.ingestion.writer=partitioned: one partition per pickup month, created by
+-- the writer on demand as ingestion.taxi_trip_monthly_YYYY_MM. Unique keys must include
+-- the partition column; a source line always has the same pickup time, so
+-- (source_file, line_number) stays unique across partitions.
+CREATE TABLE IF NOT EXISTS ingestion.taxi_trip_monthly (
+    id BIGSERIAL,
+
+    source_file VARCHAR(255) NOT NULL,
+    line_number BIGINT NOT NULL,
+
+    vendor_id INTEGER,
+    pickup_datetime TIMESTAMP NOT NULL,
+    dropoff_datetime TIMESTAMP,
+    passenger_count INTEGER,
+    trip_distance NUMERIC(10,3),
+
+    pickup_longitude NUMERIC(9,6),
+    pickup_latitude NUMERIC(9,6),
+    dropoff_longitude NUMERIC(9,6),
+    dropoff_latitude NUMERIC(9,6),
+    pickup_location_id INTEGER,
+    dropoff_location_id INTEGER,
+
+    rate_code_id INTEGER,
+    store_and_fwd_flag CHAR(1),
+    payment_type INTEGER,
+
+    fare_amount NUMERIC(10,2),
+    extra NUMERIC(10,2),
+    mta_tax NUMERIC(10,2),
+    tip_amount NUMERIC(10,2),
+    tolls_amount NUMERIC(10,2),
+    improvement_surcharge NUMERIC(10,2),
+    total_amount NUMERIC(10,2),
+    congestion_surcharge NUMERIC(10,2),
+    airport_fee NUMERIC(10,2),
+
+    ingested_at TIMESTAMP DEFAULT now(),
+
+    CONSTRAINT taxi_trip_monthly_pkey PRIMARY KEY (id, pickup_datetime),
+    CONSTRAINT uk_monthly_source_line UNIQUE (source_file, line_number, pickup_datetime)
+) PARTITION BY RANGE (pickup_datetime);
+
+CREATE TABLE IF NOT EXISTS ingestion.taxi_trip_reject (
+    id BIGSERIAL PRIMARY KEY,
+
+    source_file VARCHAR(255) NOT NULL,
+    line_number BIGINT NOT NULL,
+    reason VARCHAR(40) NOT NULL,
+
+    rejected_at TIMESTAMP DEFAULT now(),
+
+    CONSTRAINT uk_reject_source_line UNIQUE (source_file, line_number)
+);
+
+CREATE TABLE IF NOT EXISTS ingestion.source_file_fingerprint (
+    source_file VARCHAR(255) PRIMARY KEY,
+
+    size_bytes BIGINT NOT NULL,
+    modified_at TIMESTAMPTZ NOT NULL,
+    sample_hash CHAR(64) NOT NULL,
+    rows_read BIGINT NOT NULL,
+
+    ingested_at TIMESTAMP DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS ingestion.source_file_offset (
+    source_file VARCHAR(255) PRIMARY KEY,
+
+    byte_offset BIGINT NOT NULL,
+    records BIGINT NOT NULL,
+    physical_lines BIGINT NOT NULL,
+
+    updated_at TIMESTAMP DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS ingestion.lease_run (
+    run_id BIGSERIAL PRIMARY KEY,
+
+    source VARCHAR(1024) NOT NULL,
+
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS ingestion.lease_unit (
+    unit_id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES ingestion.lease_run (run_id),
+
+    source_file VARCHAR(255) NOT NULL,
+    start_offset BIGINT NOT NULL,
+    end_offset BIGINT NOT NULL,
+    first_line_number BIGINT NOT NULL,
+
+    status VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+    owner VARCHAR(255),
+    attempts INTEGER NOT NULL DEFAULT 0,
+    lease_expires_at TIMESTAMPTZ,
+
+    next_offset BIGINT NOT NULL,
+    records_read BIGINT NOT NULL DEFAULT 0,
+    physical_lines BIGINT NOT NULL,
+    rows_written BIGINT NOT NULL DEFAULT 0,
+    rows_filtered BIGINT NOT NULL DEFAULT 0,
+    last_error TEXT,
+
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_lease_unit_claim
+    ON ingestion.lease_unit (unit_id)
+    WHERE status IN ('PENDING', 'LEASED');
+
+CREATE INDEX IF NOT EXISTS idx_lease_unit_run
+    ON ingestion.lease_unit (run_id);
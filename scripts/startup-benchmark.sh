@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+#
+# Startup of the same one-shot ingestion booted three ways, see "Command-line mode" in the
+# README:
+#   web  the plain jar with the servlet stack, as the server boots
+#   cli  the plain jar with the cli profile
+#   aot  the same jar with Spring AOT and the JDK AOT cache of the aot build
+#
+# Every variant ingests SOURCE RUNS times, in turns, writing a startup report and a log
+# per run to target/startup; the medians of readyMillis and firstRowMillis come last.
+# Needs JDK 25 and the database (docker compose -f docker/postgres.yml up -d).
+#
+#   scripts/startup-benchmark.sh [SOURCE] [RUNS]
+#
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+source_file=${1:-data/yellow_tripdata.csv}
+runs=${2:-5}
+reports=target/startup
+app=target/aot/app.jar
+
+./mvnw -q -B -Paot package -DskipTests -Daot.training.source="$source_file"
+rm -rf "$reports"
+
+run() {
+    local label=$1
+    shift
+    # The configured source file, not an argument: the multi-file flow would skip it
+    # after the first run
+    java "$@" -jar "$app" \
+        --spring.profiles.active=cli \
+        --taxi.ingestion.source-file="$source_file" \
+        --taxi.cli.report-dir="$reports" \
+        --taxi.cli.label="$label" \
+        > "$reports/$label.log" 2>&1 || echo "$label exited with $?, see $reports/$label.log"
+}
+
+mkdir -p "$reports"
+for i in $(seq 1 "$runs"); do
+    run "web-$i" -Dspring.aot.enabled=false -Dspring.main.web-application-type=servlet -Dserver.port=0
+    run "cli-$i" -Dspring.aot.enabled=false
+    run "aot-$i" -XX:AOTCache=target/aot/app.aot -Dspring.aot.enabled=true
+done
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print NR ? v[int((NR + 1) / 2)] : "-" }'
+}
+
+field() {
+    grep -h "\"$2\"" "$reports"/startup-"$1"-*.json | tr -dc '0-9-\n'
+}
+
+printf '%-8s %12s %16s\n' variant readyMillis firstRowMillis
+for variant in web cli aot; do
+    printf '%-8s %12s %16s\n' "$variant" \
+        "$(field "$variant" readyMillis | median)" \
+        "$(field "$variant" firstRowMillis | median)"
+done
@@ -0,0 +1,90 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.async;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.TaxiTripItemProcessor;
+import com.poliser.nyc_taxi_batch_ingestion.benchmark.BenchmarkRows;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * One chunk of the chunked step in concurrent mode: the step thread reads and submits every
+ * row to the {@code batchTaskExecutor} of either {@code taxi.ingestion.executor.mode},
+ * built by {@link AsyncBatchConfig} with the same concurrency for both, and collects the
+ * processed rows in order. Writing runs on the step thread afterwards and is left out, as
+ * is the step context hand-over, which costs the same in both modes. One operation is one
+ * row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchTaskExecutorBenchmark {
+
+    static final int ROWS = 1_000;
+    static final int QUEUE_CAPACITY = 1_000;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    // executor.threads for platform, the Hikari pool size for virtual
+    @Param({"4", "10"})
+    public int concurrency;
+
+    private AsyncTaskExecutor executor;
+    private RejectBuffer rejectBuffer;
+    private TaxiTripItemProcessor processor;
+    private List<TaxiCsvRow> rows;
+    private final List<Future<TaxiTripRaw>> processing = new ArrayList<>(ROWS);
+
+    @Setup
+    public void setUp() {
+        executor = new AsyncBatchConfig().batchTaskExecutor(mode, concurrency, QUEUE_CAPACITY, concurrency);
+        rejectBuffer = new RejectBuffer();
+        processor = new TaxiTripItemProcessor(BenchmarkRows.SOURCE_FILE, rejectBuffer, null);
+        rows = BenchmarkRows.rows(ROWS, 42L, 0.05);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (executor instanceof DisposableBean pool) {
+            pool.destroy();
+        } else if (executor instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void processChunk(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < ROWS; i++) {
+            TaxiCsvRow row = rows.get(i);
+            processing.add(executor.submit(() -> processor.process(row)));
+        }
+        for (Future<TaxiTripRaw> future : processing) {
+            blackhole.consume(future.get());
+        }
+        processing.clear();
+        // No step here, so rejects collect under no step execution
+        rejectBuffer.drain();
+    }
+}
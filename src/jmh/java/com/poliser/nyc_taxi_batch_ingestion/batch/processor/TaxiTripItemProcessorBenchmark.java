@@ -0,0 +1,66 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.processor;
+
+import com.poliser.nyc_taxi_batch_ingestion.benchmark.BenchmarkRows;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validation and mapping of {@link TaxiTripItemProcessor}, with a share of invalid rows
+ * going to the {@link RejectBuffer}. One operation is one row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaxiTripItemProcessorBenchmark {
+
+    static final int ROWS = 1_000;
+
+    @Param({"0", "0.05"})
+    public double dirtyRate;
+
+    private RejectBuffer rejectBuffer;
+    private TaxiTripItemProcessor processor;
+    private List<TaxiCsvRow> rows;
+    private final List<TaxiTripReject> rejects = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        rejectBuffer = new RejectBuffer();
+        processor = new TaxiTripItemProcessor(BenchmarkRows.SOURCE_FILE, rejectBuffer, null);
+        rows = BenchmarkRows.rows(ROWS, 42L, dirtyRate);
+        // Rejects collected per thread, as the pipelined mode does
+        rejectBuffer.capture(rejects);
+    }
+
+    @TearDown
+    public void tearDown() {
+        rejectBuffer.release();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void process(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(processor.process(rows.get(i), BenchmarkRows.SOURCE_FILE));
+        }
+        rejects.clear();
+    }
+}
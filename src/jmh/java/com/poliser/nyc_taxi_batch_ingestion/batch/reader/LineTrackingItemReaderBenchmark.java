@@ -0,0 +1,101 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import com.poliser.nyc_taxi_batch_ingestion.benchmark.BenchmarkRows;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemStreamReader;
+
+import java.util.List;
+
+/**
+ * Per-row cost of the {@link LineTrackingItemReader} wrapper, alone and behind the
+ * {@link LockWaitRecordingItemStreamReader} the delimited parser runs in, over an in-memory
+ * delegate. One operation is one row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineTrackingItemReaderBenchmark {
+
+    static final int ROWS = 1_000;
+
+    private CyclingReader delegate;
+    private LineTrackingItemReader<TaxiCsvRow> lineTracking;
+    private LockWaitRecordingItemStreamReader<TaxiCsvRow> synchronizedReader;
+
+    @Setup
+    public void setUp() {
+        // Rows as the flat file reader returns them, without line numbers
+        var rows = BenchmarkRows.rows(ROWS, 42L, 0).stream()
+                .map(row -> new TaxiCsvRow(null, row.vendorId(), row.pickupDatetime(),
+                        row.dropoffDatetime(), row.passengerCount(), row.tripDistance(),
+                        row.pickupLongitude(), row.pickupLatitude(), row.rateCodeId(),
+                        row.storeAndFwdFlag(), row.dropoffLongitude(), row.dropoffLatitude(),
+                        row.paymentType(), row.fareAmount(), row.extra(), row.mtaTax(),
+                        row.tipAmount(), row.tollsAmount(), row.improvementSurcharge(),
+                        row.totalAmount(), row.pickupLocationId(), row.dropoffLocationId(),
+                        row.congestionSurcharge(), row.airportFee()))
+                .toList();
+
+        delegate = new CyclingReader(rows);
+        lineTracking = new LineTrackingItemReader<>(new CyclingReader(rows));
+        lineTracking.open(new ExecutionContext());
+        synchronizedReader = new LockWaitRecordingItemStreamReader<>(
+                new LineTrackingItemReader<>(new CyclingReader(rows)));
+        synchronizedReader.open(new ExecutionContext());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void delegateOnly(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(delegate.read());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void lineTracking(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(lineTracking.read());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void synchronizedLineTracking(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(synchronizedReader.read());
+        }
+    }
+
+    private static final class CyclingReader implements ItemStreamReader<TaxiCsvRow> {
+
+        private final List<TaxiCsvRow> rows;
+        private int next;
+
+        private CyclingReader(List<TaxiCsvRow> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public TaxiCsvRow read() {
+            TaxiCsvRow row = rows.get(next);
+            next = next + 1 == rows.size() ? 0 : next + 1;
+            return row;
+        }
+    }
+}
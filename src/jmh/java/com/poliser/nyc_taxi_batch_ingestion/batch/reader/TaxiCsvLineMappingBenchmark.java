@@ -0,0 +1,73 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import com.poliser.nyc_taxi_batch_ingestion.benchmark.BenchmarkRows;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.infrastructure.item.file.mapping.DefaultLineMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Line to {@link TaxiCsvRow} mapping of both parsers: the {@code DelimitedLineTokenizer}
+ * mapping of {@code taxi.ingestion.parser=delimited} and the byte parser.
+ * One operation is one line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaxiCsvLineMappingBenchmark {
+
+    static final int ROWS = 1_000;
+
+    private DefaultLineMapper<TaxiCsvRow> lineMapper;
+    private TaxiCsvLineParser lineParser;
+    private List<String> lines;
+    private byte[] bytes;
+    private int[] lineEnds;
+
+    @Setup
+    public void setUp() {
+        lineMapper = TaxiCsvSchema.YELLOW_2015.lineMapper();
+        lineParser = new TaxiCsvLineParser(TaxiCsvSchema.YELLOW_2015);
+        lines = BenchmarkRows.lines(ROWS, 42L, 0);
+
+        bytes = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        lineEnds = new int[ROWS];
+        int end = -1;
+        for (int i = 0; i < ROWS; i++) {
+            end += 1 + lines.get(i).length();
+            lineEnds[i] = end;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void delimitedLineMapper(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(lineMapper.mapLine(lines.get(i), i + 2));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void byteLineParser(Blackhole blackhole) throws Exception {
+        int start = 0;
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(lineParser.parse(bytes, start, lineEnds[i], i + 1L, i + 2));
+            start = lineEnds[i] + 1;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
+
+import com.poliser.nyc_taxi_batch_ingestion.benchmark.BenchmarkRows;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chunk commits of each writer against a real PostgreSQL with the schema of
+ * {@code docker/init/01-schema.sql}. Any local server works; the connection defaults to the
+ * one in {@code application.yml} and is overridden with {@code -Djmh.db.url},
+ * {@code -Djmh.db.user} and {@code -Djmh.db.password} passed to the forks through
+ * {@code -jvmArgsAppend}. Rows go to the {@code benchmark.csv} source file and are deleted
+ * afterwards. One operation is one row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaxiTripDatabaseWriterBenchmark {
+
+    static final int ROWS = 1_000;
+
+    @Param({"jdbc", "copy", "partitioned"})
+    public String writerType;
+
+    private HikariDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private ItemWriter<TaxiTripRaw> writer;
+    private List<TaxiTripRaw> trips;
+    private Chunk<TaxiTripRaw> chunk;
+    private long nextLineNumber;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("jmh.db.url", "jdbc:postgresql://localhost:5432/nyc_taxi"));
+        dataSource.setUsername(System.getProperty("jmh.db.user", "nyc_user"));
+        dataSource.setPassword(System.getProperty("jmh.db.password", "nyc_pass"));
+        // The partitioned writer creates monthly partitions on a second connection
+        dataSource.setMaximumPoolSize(2);
+
+        var transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        var meterRegistry = new SimpleMeterRegistry();
+        writer = switch (writerType) {
+            case "copy" -> new TaxiTripCopyItemWriter(dataSource);
+            case "partitioned" -> new TaxiTripPartitionedItemWriter(dataSource, transactionManager, meterRegistry);
+            default -> TaxiTripJdbcWriterConfig.jdbcWriter(dataSource,
+                    TaxiTripJdbcWriterConfig.jdbcBatchTimer(meterRegistry, "jdbc"));
+        };
+        trips = BenchmarkRows.trips(ROWS, 42L);
+        deleteRows();
+    }
+
+    /**
+     * Fresh line numbers for every chunk, so no row is skipped as a duplicate.
+     */
+    @Setup(Level.Invocation)
+    public void nextChunk() {
+        var items = new ArrayList<TaxiTripRaw>(ROWS);
+        for (TaxiTripRaw trip : trips) {
+            items.add(new TaxiTripRaw(
+                    trip.sourceFile(), ++nextLineNumber, trip.vendorId(), trip.pickupDatetime(),
+                    trip.dropoffDatetime(), trip.passengerCount(), trip.tripDistance(),
+                    trip.pickupLongitude(), trip.pickupLatitude(), trip.dropoffLongitude(),
+                    trip.dropoffLatitude(), trip.pickupLocationId(), trip.dropoffLocationId(),
+                    trip.rateCodeId(), trip.storeAndFwdFlag(), trip.paymentType(),
+                    trip.fareAmount(), trip.extra(), trip.mtaTax(), trip.tipAmount(),
+                    trip.tollsAmount(), trip.improvementSurcharge(), trip.totalAmount(),
+                    trip.congestionSurcharge(), trip.airportFee()));
+        }
+        chunk = new Chunk<>(items);
+    }
+
+    @TearDown
+    public void tearDown() {
+        deleteRows();
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void write() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                writer.write(chunk);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+
+    private void deleteRows() {
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM ingestion.taxi_trip_raw WHERE source_file = ?",
+                BenchmarkRows.SOURCE_FILE);
+        jdbcTemplate.update("DELETE FROM " + TaxiTripPartitionedItemWriter.TARGET_TABLE
+                + " WHERE source_file = ?", BenchmarkRows.SOURCE_FILE);
+    }
+}
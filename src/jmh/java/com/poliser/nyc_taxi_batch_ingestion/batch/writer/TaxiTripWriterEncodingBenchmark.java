@@ -0,0 +1,68 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
+
+import com.poliser.nyc_taxi_batch_ingestion.benchmark.BenchmarkRows;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.infrastructure.item.database.BeanPropertyItemSqlParameterSourceProvider;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.util.List;
+
+/**
+ * Client-side work of the writers, without a database: building the bound values of
+ * {@link TaxiTripJdbcWriterConfig#INSERT_SQL} as {@code JdbcBatchItemWriter} does, and
+ * encoding the binary COPY payload. One operation is one row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaxiTripWriterEncodingBenchmark {
+
+    static final int ROWS = 1_000;
+
+    private final BeanPropertyItemSqlParameterSourceProvider<TaxiTripRaw> parameterSources =
+            new BeanPropertyItemSqlParameterSourceProvider<>();
+    private final ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(
+            TaxiTripJdbcWriterConfig.INSERT_SQL);
+    private final PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder();
+
+    private List<TaxiTripRaw> trips;
+
+    @Setup
+    public void setUp() {
+        trips = BenchmarkRows.trips(ROWS, 42L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void jdbcParameterValues(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            var source = parameterSources.createSqlParameterSource(trips.get(i));
+            blackhole.consume(NamedParameterUtils.buildValueArray(parsedSql, source, null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int copyEncoding() {
+        encoder.begin();
+        for (int i = 0; i < ROWS; i++) {
+            TaxiTripCopyItemWriter.encode(encoder, trips.get(i));
+        }
+        encoder.end();
+        return encoder.size();
+    }
+}
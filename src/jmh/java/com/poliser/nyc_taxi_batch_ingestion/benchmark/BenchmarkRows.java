@@ -0,0 +1,66 @@
+package com.poliser.nyc_taxi_batch_ingestion.benchmark;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import com.poliser.nyc_taxi_batch_ingestion.loadtest.TripDataGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark inputs drawn from {@link TripDataGenerator}.
+ */
+public final class BenchmarkRows {
+
+    public static final String SOURCE_FILE = "benchmark.csv";
+
+    private BenchmarkRows() {
+    }
+
+    public static List<TaxiCsvRow> rows(int count, long seed, double dirtyRate) {
+        var generator = new TripDataGenerator(seed, dirtyRate);
+        var rows = new ArrayList<TaxiCsvRow>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(generator.next());
+        }
+        return rows;
+    }
+
+    public static List<String> lines(int count, long seed, double dirtyRate) {
+        return rows(count, seed, dirtyRate).stream().map(TripDataGenerator::toCsv).toList();
+    }
+
+    public static List<TaxiTripRaw> trips(int count, long seed) {
+        return rows(count, seed, 0).stream().map(BenchmarkRows::toTrip).toList();
+    }
+
+    private static TaxiTripRaw toTrip(TaxiCsvRow row) {
+        return new TaxiTripRaw(
+                SOURCE_FILE,
+                row.lineNumber(),
+                row.vendorId(),
+                row.pickupDatetime(),
+                row.dropoffDatetime(),
+                row.passengerCount(),
+                row.tripDistance(),
+                row.pickupLongitude(),
+                row.pickupLatitude(),
+                row.dropoffLongitude(),
+                row.dropoffLatitude(),
+                row.pickupLocationId(),
+                row.dropoffLocationId(),
+                row.rateCodeId(),
+                row.storeAndFwdFlag(),
+                row.paymentType(),
+                row.fareAmount(),
+                row.extra(),
+                row.mtaTax(),
+                row.tipAmount(),
+                row.tollsAmount(),
+                row.improvementSurcharge(),
+                row.totalAmount(),
+                row.congestionSurcharge(),
+                row.airportFee()
+        );
+    }
+}
@@ -4,9 +4,12 @@ import org.springframework.batch.core.configuration.JobRegistry;
 import org.springframework.batch.core.configuration.support.MapJobRegistry;
 import org.springframework.batch.core.launch.support.TaskExecutorJobOperator;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.ThreadPoolExecutor;
@@ -14,14 +17,101 @@ import java.util.concurrent.ThreadPoolExecutor;
 @Configuration
 public class AsyncBatchConfig {
 
+    /**
+     * Runs launched jobs, one thread each, so a launch never waits behind step work.
+     */
     @Bean
-    public AsyncTaskExecutor batchTaskExecutor() {
+    public AsyncTaskExecutor jobLaunchTaskExecutor() {
+        return new SimpleAsyncTaskExecutor("job-");
+    }
+
+    /**
+     * Item processing of the chunked and bulk load steps; their reads and writes, and so
+     * their JDBC calls, stay on the step thread. {@code platform}: a fixed pool with a
+     * bounded queue; when it is full the step thread processes the item itself.
+     * {@code virtual}: one virtual thread per item, with at most as many processor tasks in
+     * flight as the Hikari pool has connections; further submissions block the step thread.
+     */
+    @Bean
+    public AsyncTaskExecutor batchTaskExecutor(
+            @Value("${taxi.ingestion.executor.mode:platform}") String mode,
+            @Value("${taxi.ingestion.executor.threads:4}") int threads,
+            @Value("${taxi.ingestion.executor.queue-capacity:1000}") int queueCapacity,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize
+    ) {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("batch-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(connectionPoolSize);
+            executor.setTaskDecorator(new StepContextTaskDecorator());
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(8);
-        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
         executor.setThreadNamePrefix("batch-");
         executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(new StepContextTaskDecorator());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * One thread per byte-range partition; the grid size is the concurrency bound. In
+     * {@code virtual} mode partitions run on virtual threads, capped at the connection pool.
+     */
+    @Bean
+    public AsyncTaskExecutor partitionTaskExecutor(
+            @Value("${taxi.ingestion.executor.mode:platform}") String mode,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize
+    ) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("partition-");
+        if ("virtual".equalsIgnoreCase(mode)) {
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(connectionPoolSize);
+        }
+        return executor;
+    }
+
+    /**
+     * One thread per file of a multi-file run, at most {@code taxi.ingestion.files.concurrency}
+     * at a time; further files wait for a running one to finish.
+     */
+    @Bean
+    public AsyncTaskExecutor fileTaskExecutor(
+            @Value("${taxi.ingestion.executor.mode:platform}") String mode,
+            @Value("${taxi.ingestion.files.concurrency:4}") int concurrency
+    ) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("file-");
+        executor.setVirtualThreads("virtual".equalsIgnoreCase(mode));
+        executor.setConcurrencyLimit(Math.max(1, concurrency));
+        return executor;
+    }
+
+    /**
+     * Stage threads of the pipelined mode, which live as long as the step.
+     */
+    @Bean
+    public AsyncTaskExecutor pipelineTaskExecutor() {
+        return new SimpleAsyncTaskExecutor("pipeline-");
+    }
+
+    /**
+     * Decodes the frames of compressed input ahead of the reader; 0 threads = one per
+     * available processor.
+     */
+    @Bean
+    public AsyncTaskExecutor decompressionTaskExecutor(
+            @Value("${taxi.ingestion.decompression.threads:0}") int threads
+    ) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("decompress-");
+        executor.setDaemon(true);
         executor.initialize();
         return executor;
     }
@@ -35,12 +125,12 @@ public class AsyncBatchConfig {
     public TaskExecutorJobOperator jobOperator(
             JobRepository jobRepository,
             JobRegistry jobRegistry,
-            AsyncTaskExecutor batchTaskExecutor
+            @Qualifier("jobLaunchTaskExecutor") AsyncTaskExecutor jobLaunchTaskExecutor
     ) {
         TaskExecutorJobOperator operator = new TaskExecutorJobOperator();
         operator.setJobRepository(jobRepository);
         operator.setJobRegistry(jobRegistry);
-        operator.setTaskExecutor(batchTaskExecutor);
+        operator.setTaskExecutor(jobLaunchTaskExecutor);
         return operator;
     }
 }
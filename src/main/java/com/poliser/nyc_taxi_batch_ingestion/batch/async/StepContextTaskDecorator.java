@@ -0,0 +1,31 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.async;
+
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Registers the submitting thread's step execution on the worker thread, so items
+ * processed concurrently can still tell which step execution they belong to.
+ */
+public class StepContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        StepContext context = StepSynchronizationManager.getContext();
+        if (context == null) {
+            return runnable;
+        }
+
+        StepExecution stepExecution = context.getStepExecution();
+        return () -> {
+            StepSynchronizationManager.register(stepExecution);
+            try {
+                runnable.run();
+            } finally {
+                StepSynchronizationManager.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.bulk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.StepContribution;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.infrastructure.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static com.poliser.nyc_taxi_batch_ingestion.batch.bulk.BulkStagePrepareTasklet.STAGE_TABLE;
+import static com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripCopyItemWriter.COLUMNS;
+
+/**
+ * Moves the staging table into {@code ingestion.taxi_trip_raw} with one set-based,
+ * de-duplicating statement and drops it, all in the tasklet's single transaction, so a
+ * failed merge leaves both tables untouched and can simply be restarted.
+ * <p>
+ * When the target is empty its primary key and {@code uk_source_line} are dropped first
+ * and rebuilt after the insert with parallel maintenance workers; otherwise the rows go
+ * through {@code ON CONFLICT (source_file, line_number) DO NOTHING}.
+ * <p>
+ * The staging table must still hold every row the load step staged: crash recovery
+ * empties it, and a restart skips the completed load step, so a short or missing stage
+ * fails the merge instead of completing the job with rows lost. A missing stage is only
+ * accepted after an earlier execution of this step merged it.
+ */
+public class BulkMergeTasklet implements Tasklet {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(BulkMergeTasklet.class);
+
+    private static final String TARGET_TABLE = "ingestion.taxi_trip_raw";
+
+    private static final String MERGED_ROWS = "bulk.merged.rows";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maintenanceWorkers;
+    private final String maintenanceWorkMem;
+
+    public BulkMergeTasklet(DataSource dataSource, int maintenanceWorkers, String maintenanceWorkMem) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.maintenanceWorkers = maintenanceWorkers;
+        this.maintenanceWorkMem = maintenanceWorkMem;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        var stepExecution = chunkContext.getStepContext().getStepExecution();
+        long stagedRows = stepExecution.getJobExecution().getExecutionContext()
+                .getLong(BulkStageRecoveryListener.STAGED_ROWS, 0);
+
+        Boolean staged = jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, STAGE_TABLE);
+        if (!Boolean.TRUE.equals(staged)) {
+            if (stagedRows > 0 && !stepExecution.getExecutionContext().containsKey(MERGED_ROWS)) {
+                throw new IllegalStateException("Staging table [" + STAGE_TABLE + "] is gone but "
+                        + stagedRows + " rows were staged; start a new bulk run to load the file again");
+            }
+            log.info("Staging table [{}] is gone, nothing to merge", STAGE_TABLE);
+            return RepeatStatus.FINISHED;
+        }
+
+        Long stageRows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + STAGE_TABLE, Long.class);
+        if (stageRows == null || stageRows != stagedRows) {
+            throw new IllegalStateException("Staging table [" + STAGE_TABLE + "] holds " + stageRows
+                    + " rows but " + stagedRows + " were staged, it was emptied by crash recovery; "
+                    + "start a new bulk run to load the file again");
+        }
+
+        // Nobody may insert between the emptiness check and the index rebuild
+        jdbcTemplate.execute("LOCK TABLE " + TARGET_TABLE + " IN ACCESS EXCLUSIVE MODE");
+        Boolean targetEmpty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM " + TARGET_TABLE + ")", Boolean.class);
+
+        int merged = Boolean.TRUE.equals(targetEmpty)
+                ? mergeIntoEmptyTarget()
+                : mergeWithConflicts();
+
+        jdbcTemplate.execute("DROP TABLE " + STAGE_TABLE);
+        jdbcTemplate.execute("ANALYZE " + TARGET_TABLE);
+
+        // Commits with the merge, so a restart after it knows why the stage is gone
+        stepExecution.getExecutionContext().putLong(MERGED_ROWS, merged);
+        contribution.incrementWriteCount(merged);
+        log.info("Merged {} staged rows into [{}] ({} target)", merged, TARGET_TABLE,
+                Boolean.TRUE.equals(targetEmpty) ? "empty" : "non-empty");
+        return RepeatStatus.FINISHED;
+    }
+
+    private int mergeIntoEmptyTarget() {
+        jdbcTemplate.execute("ALTER TABLE " + TARGET_TABLE
+                + " DROP CONSTRAINT uk_source_line, DROP CONSTRAINT taxi_trip_raw_pkey");
+
+        int merged = jdbcTemplate.update("INSERT INTO " + TARGET_TABLE + " (" + COLUMNS + ") "
+                + "SELECT DISTINCT ON (source_file, line_number) " + COLUMNS
+                + " FROM " + STAGE_TABLE
+                + " ORDER BY source_file, line_number");
+
+        jdbcTemplate.queryForList(
+                "SELECT set_config('max_parallel_maintenance_workers', ?, true), "
+                        + "set_config('maintenance_work_mem', ?, true)",
+                String.valueOf(maintenanceWorkers), maintenanceWorkMem);
+        jdbcTemplate.execute("ALTER TABLE " + TARGET_TABLE
+                + " ADD CONSTRAINT taxi_trip_raw_pkey PRIMARY KEY (id),"
+                + " ADD CONSTRAINT uk_source_line UNIQUE (source_file, line_number)");
+        return merged;
+    }
+
+    private int mergeWithConflicts() {
+        return jdbcTemplate.update("INSERT INTO " + TARGET_TABLE + " (" + COLUMNS + ") "
+                + "SELECT " + COLUMNS + " FROM " + STAGE_TABLE
+                + " ON CONFLICT (source_file, line_number) DO NOTHING");
+    }
+}
@@ -0,0 +1,41 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.bulk;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripCopyItemWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.StepContribution;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.infrastructure.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Creates the bulk staging table: UNLOGGED, no keys and no indexes, only the columns the
+ * writer fills. Leftovers from an abandoned bulk run are truncated.
+ */
+public class BulkStagePrepareTasklet implements Tasklet {
+
+    public static final String STAGE_TABLE = "ingestion.taxi_trip_raw_stage";
+
+    private static final Logger log =
+            LoggerFactory.getLogger(BulkStagePrepareTasklet.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BulkStagePrepareTasklet(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE IF NOT EXISTS " + STAGE_TABLE + " AS "
+                + "SELECT " + TaxiTripCopyItemWriter.COLUMNS
+                + " FROM ingestion.taxi_trip_raw WITH NO DATA");
+        jdbcTemplate.execute("TRUNCATE " + STAGE_TABLE);
+
+        log.info("Staging table [{}] ready", STAGE_TABLE);
+        return RepeatStatus.FINISHED;
+    }
+}
@@ -0,0 +1,83 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.bulk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemStream;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Keeps the bulk load step restartable. Staged rows commit together with the reader
+ * checkpoint, except that PostgreSQL empties UNLOGGED tables during crash recovery: when
+ * a restart finds the staging table empty, the checkpoint is dropped and the file is
+ * loaded again from the start.
+ * <p>
+ * It also counts the rows staged over all executions of the step, saved with each
+ * checkpoint and handed to the job as {@link #STAGED_ROWS} once the step completes, so the
+ * merge can tell a stage emptied after the load from one that never held rows. Register
+ * it as a stream as well as a listener.
+ */
+public class BulkStageRecoveryListener implements StepExecutionListener, ItemStream {
+
+    public static final String STAGED_ROWS = "bulk.staged.rows";
+
+    private static final Logger log =
+            LoggerFactory.getLogger(BulkStageRecoveryListener.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private StepExecution stepExecution;
+    private long stagedBefore;
+
+    public BulkStageRecoveryListener(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+        var context = stepExecution.getExecutionContext();
+        List<String> checkpointKeys = context.toMap().keySet().stream()
+                .filter(key -> !key.startsWith("batch."))
+                .toList();
+        if (checkpointKeys.isEmpty()) {
+            stagedBefore = 0;
+            return;
+        }
+
+        Boolean staged = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + BulkStagePrepareTasklet.STAGE_TABLE + ")",
+                Boolean.class);
+
+        if (!Boolean.TRUE.equals(staged)) {
+            log.warn("Staging table [{}] is empty on restart, reloading from the start",
+                    BulkStagePrepareTasklet.STAGE_TABLE);
+            checkpointKeys.forEach(context::remove);
+        }
+        stagedBefore = context.getLong(STAGED_ROWS, 0);
+    }
+
+    // Called with each chunk, in its transaction
+    @Override
+    public void update(ExecutionContext executionContext) {
+        if (stepExecution != null) {
+            executionContext.putLong(STAGED_ROWS, stagedBefore + stepExecution.getWriteCount());
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if (stepExecution.getStatus().isUnsuccessful()) {
+            return null;
+        }
+        stepExecution.getJobExecution().getExecutionContext().putLong(STAGED_ROWS,
+                stagedBefore + stepExecution.getWriteCount());
+        return null;
+    }
+}
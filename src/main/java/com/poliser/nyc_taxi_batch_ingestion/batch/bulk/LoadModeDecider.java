@@ -0,0 +1,25 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.bulk;
+
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+import org.springframework.batch.core.step.StepExecution;
+
+/**
+ * Routes a job execution to the bulk flow when it was launched with
+ * {@code load.mode=bulk}. Restarts keep their original parameters, so they resume in the
+ * same flow.
+ */
+public class LoadModeDecider implements JobExecutionDecider {
+
+    public static final String LOAD_MODE_PARAMETER = "load.mode";
+
+    public static final String BULK = "BULK";
+    public static final String STANDARD = "STANDARD";
+
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+        String mode = jobExecution.getJobParameters().getString(LOAD_MODE_PARAMETER);
+        return new FlowExecutionStatus("bulk".equalsIgnoreCase(mode) ? BULK : STANDARD);
+    }
+}
@@ -0,0 +1,51 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.checkpoint;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.spill.SpillBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CheckpointConfig {
+
+    /**
+     * Puts the {@link CheckpointPolicy} in front of the job repository registered by
+     * {@code @EnableBatchProcessing}, so every step goes through it. Updates are deferred
+     * while the {@link SpillBuffer} is spilling.
+     */
+    @Bean
+    public static BeanPostProcessor checkpointPolicyPostProcessor(
+            @Value("${taxi.ingestion.checkpoint.every-chunks:1}") int everyChunks,
+            @Value("${taxi.ingestion.checkpoint.interval-ms:0}") long intervalMillis,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<SpillBuffer> spillBuffer
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof JobRepository)) {
+                    return bean;
+                }
+                var proxyFactory = new ProxyFactory(bean);
+                proxyFactory.addAdvice(new CheckpointPolicy(
+                        Math.max(0, everyChunks),
+                        Duration.ofMillis(Math.max(0, intervalMillis)),
+                        // Looked up on use: the buffer is created after the repository
+                        () -> {
+                            SpillBuffer buffer = spillBuffer.getIfAvailable();
+                            return buffer != null && buffer.isSpilling();
+                        },
+                        meterRegistry.getObject()
+                ));
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+}
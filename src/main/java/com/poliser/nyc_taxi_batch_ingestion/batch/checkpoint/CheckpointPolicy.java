@@ -0,0 +1,153 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.checkpoint;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.StepExecution;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Intercepts the {@link JobRepository} so that a running step's metadata is persisted
+ * every {@code everyChunks} chunks or every {@code interval}, whichever comes first,
+ * instead of after every chunk.
+ * <p>
+ * A chunk ends with a step context update, inside its transaction, and a step execution
+ * update; both are persisted or deferred together. The first update of a step and every
+ * update after it left {@code STARTED} always go through, so status changes are never
+ * late. A restart resumes from the last persisted context and reads the chunks committed
+ * after it again; writes are idempotent on {@code (source_file, line_number)}, so those
+ * rows are not loaded twice.
+ * <p>
+ * While {@code defer} holds, e.g. while the spill buffer writes chunks to disk because the
+ * database is down, every update of a running step is deferred, its first one included;
+ * the first update after that is persisted whatever the bounds say.
+ * <p>
+ * Every metadata write that goes through is timed as {@code batch.metadata.write}, and
+ * every deferred one is counted as {@code batch.metadata.deferred}.
+ */
+public class CheckpointPolicy implements MethodInterceptor {
+
+    private final int everyChunks;
+    private final long intervalNanos;
+    private final BooleanSupplier defer;
+    private final Map<Long, StepCheckpoint> steps = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter deferredSteps;
+    private final Counter deferredContexts;
+
+    /**
+     * @param everyChunks chunks between two persisted checkpoints, 0 for no chunk bound
+     * @param interval    time between two persisted checkpoints, zero for no time bound
+     * @param defer       whether running steps' updates are deferred regardless of the bounds
+     */
+    public CheckpointPolicy(int everyChunks, Duration interval, BooleanSupplier defer,
+                            MeterRegistry meterRegistry) {
+        this.everyChunks = everyChunks;
+        this.intervalNanos = interval.toNanos();
+        this.defer = defer;
+        this.meterRegistry = meterRegistry;
+        this.deferredSteps = meterRegistry.counter("batch.metadata.deferred", "operation", "step_update");
+        this.deferredContexts = meterRegistry.counter("batch.metadata.deferred", "operation", "step_context_update");
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String method = invocation.getMethod().getName();
+        Object[] arguments = invocation.getArguments();
+        boolean contextUpdate = method.equals("updateExecutionContext");
+        if (!contextUpdate && !method.equals("update") && !method.startsWith("create")) {
+            return invocation.proceed();
+        }
+
+        String operation;
+        if (method.startsWith("create")) {
+            operation = "create";
+        } else if (arguments[0] instanceof StepExecution stepExecution) {
+            if (!persist(stepExecution, contextUpdate)) {
+                (contextUpdate ? deferredContexts : deferredSteps).increment();
+                return null;
+            }
+            operation = contextUpdate ? "step_context_update" : "step_update";
+        } else if (arguments[0] instanceof JobExecution) {
+            operation = contextUpdate ? "job_context_update" : "job_update";
+        } else {
+            return invocation.proceed();
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return invocation.proceed();
+        } finally {
+            sample.stop(Timer.builder("batch.metadata.write")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private boolean persist(StepExecution stepExecution, boolean contextUpdate) {
+        Long id = stepExecution.getId();
+        if (id == null || stepExecution.getStatus() != BatchStatus.STARTED) {
+            if (id != null) {
+                steps.remove(id);
+            }
+            return true;
+        }
+
+        boolean deferred = defer.getAsBoolean();
+        StepCheckpoint checkpoint = steps.get(id);
+        if (checkpoint == null) {
+            checkpoint = new StepCheckpoint(System.nanoTime());
+            steps.put(id, checkpoint);
+            if (!deferred) {
+                return true;
+            }
+        }
+        return checkpoint.persist(contextUpdate, deferred);
+    }
+
+    private final class StepCheckpoint {
+
+        private long persistedNanos;
+        private int chunks;
+        // Verdict of the chunk's context update, for the step update that follows it
+        private Boolean pending;
+        // An update was deferred regardless of the bounds and the next one is persisted
+        private boolean owed;
+
+        private StepCheckpoint(long persistedNanos) {
+            this.persistedNanos = persistedNanos;
+        }
+
+        private synchronized boolean persist(boolean contextUpdate, boolean deferred) {
+            if (!contextUpdate && pending != null) {
+                boolean verdict = pending;
+                pending = null;
+                return verdict;
+            }
+
+            // A tasklet whose context did not change only updates the step execution
+            long now = System.nanoTime();
+            boolean bounded = (everyChunks > 0 && ++chunks >= everyChunks)
+                    || (intervalNanos > 0 && now - persistedNanos >= intervalNanos);
+            boolean due = !deferred && (bounded || owed);
+            owed = deferred;
+            if (due) {
+                chunks = 0;
+                persistedNanos = now;
+            }
+            pending = contextUpdate ? due : null;
+            return due;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.dedup;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One bit per line number, off heap, in direct buffers of {@value #SEGMENT_BYTES} bytes
+ * allocated on first use. Segments come out of a byte budget shared by all bitmaps; lines
+ * past an exhausted budget are simply not tracked. Bits are set and read atomically, so
+ * any thread may use the bitmap.
+ */
+final class LineBitmap {
+
+    static final int SEGMENT_BYTES = 1 << 20;
+
+    private static final int SEGMENT_SHIFT = 23;
+    private static final long LINE_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private static final VarHandle WORDS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final AtomicLong budget;
+
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+
+    /**
+     * @param budget bytes still available to all bitmaps, drawn down as segments are allocated
+     */
+    LineBitmap(AtomicLong budget) {
+        this.budget = budget;
+    }
+
+    boolean contains(long line) {
+        ByteBuffer segment = segment(line);
+        return segment != null
+                && ((long) WORDS.getAcquire(segment, wordOffset(line)) & bit(line)) != 0;
+    }
+
+    /**
+     * @return {@code false} if the line could not be tracked
+     */
+    boolean add(long line) {
+        if (line < 0) {
+            return false;
+        }
+        ByteBuffer segment = segment(line);
+        if (segment == null && (segment = allocate(line)) == null) {
+            return false;
+        }
+        WORDS.getAndBitwiseOrRelease(segment, wordOffset(line), bit(line));
+        return true;
+    }
+
+    private ByteBuffer segment(long line) {
+        ByteBuffer[] current = segments;
+        long index = line >>> SEGMENT_SHIFT;
+        return line >= 0 && index < current.length ? current[(int) index] : null;
+    }
+
+    private synchronized ByteBuffer allocate(long line) {
+        int index = Math.toIntExact(line >>> SEGMENT_SHIFT);
+        ByteBuffer[] current = segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        if (budget.addAndGet(-SEGMENT_BYTES) < 0) {
+            budget.addAndGet(SEGMENT_BYTES);
+            return null;
+        }
+
+        ByteBuffer[] grown = index < current.length ? current.clone() : Arrays.copyOf(current, index + 1);
+        grown[index] = ByteBuffer.allocateDirect(SEGMENT_BYTES).order(ByteOrder.nativeOrder());
+        segments = grown;
+        return grown[index];
+    }
+
+    /**
+     * Returns the segments to the budget; the bitmap is empty afterwards.
+     */
+    synchronized void release() {
+        long allocated = Arrays.stream(segments).filter(segment -> segment != null).count();
+        segments = new ByteBuffer[0];
+        budget.addAndGet(allocated * SEGMENT_BYTES);
+    }
+
+    private static int wordOffset(long line) {
+        return (int) ((line & LINE_MASK) >>> 6) << 3;
+    }
+
+    private static long bit(long line) {
+        return 1L << (line & 63);
+    }
+}
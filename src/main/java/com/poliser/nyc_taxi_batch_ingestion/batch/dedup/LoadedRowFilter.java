@@ -0,0 +1,246 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.dedup;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.listener.JobExecutionListener;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which lines of each source file are already in the target table, so the
+ * processor can drop them before they reach Postgres and its unique index.
+ * <p>
+ * Line numbers are dense per file, so every file gets an exact {@link LineBitmap} rather
+ * than a probabilistic filter: one bit per line, and a hit is never a row that still has
+ * to be loaded. A file's bitmap is seeded on first use from the target table's
+ * {@code (source_file, line_number)} index, streamed through a cursor, and rows are added
+ * once their chunk commits. Lines past the memory budget are not tracked and simply go to
+ * the writer.
+ * <p>
+ * The filter only acts while a job runs and is dropped when the last running job ends, so
+ * rows deleted between runs are never remembered. Every {@code verifyEvery}-th hit is
+ * checked against the table; a row missing there is counted as a false positive and let
+ * through.
+ */
+public class LoadedRowFilter implements JobExecutionListener {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(LoadedRowFilter.class);
+
+    private static final int SEED_FETCH_SIZE = 10_000;
+
+    private final boolean enabled;
+    private final String targetTable;
+    private final long maxBytes;
+    private final long verifyEvery;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate seedTransaction;
+
+    private final AtomicInteger runningJobs = new AtomicInteger();
+    private final AtomicLong budget = new AtomicLong();
+    private final Map<String, CompletableFuture<LineBitmap>> files = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter untracked;
+    private final Counter verifiedHits;
+    private final Counter falsePositives;
+    private final Counter seededRows;
+    private final Timer seedTimer;
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * @param targetTable table whose rows count as loaded
+     * @param maxBytes    off-heap memory all bitmaps may take together
+     * @param verifyEvery hits between two checks against the table, 0 for none
+     */
+    public LoadedRowFilter(
+            boolean enabled,
+            String targetTable,
+            long maxBytes,
+            long verifyEvery,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.targetTable = targetTable;
+        this.maxBytes = maxBytes;
+        this.verifyEvery = verifyEvery;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(SEED_FETCH_SIZE);
+
+        // Its own connection with autocommit off, so the driver streams through a cursor
+        this.seedTransaction = new TransactionTemplate(transactionManager);
+        this.seedTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.seedTransaction.setReadOnly(true);
+
+        hits = meterRegistry.counter("batch.dedup.lookups", "result", "hit");
+        misses = meterRegistry.counter("batch.dedup.lookups", "result", "miss");
+        untracked = meterRegistry.counter("batch.dedup.lookups", "result", "untracked");
+        verifiedHits = meterRegistry.counter("batch.dedup.verified", "result", "present");
+        falsePositives = meterRegistry.counter("batch.dedup.verified", "result", "false_positive");
+        seededRows = meterRegistry.counter("batch.dedup.seeded.rows");
+        seedTimer = meterRegistry.timer("batch.dedup.seed");
+        Gauge.builder("batch.dedup.memory", budget, remaining -> files.isEmpty() ? 0 : maxBytes - remaining.get())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        if (enabled && runningJobs.getAndIncrement() == 0) {
+            files.clear();
+            budget.set(maxBytes);
+        }
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        if (enabled && runningJobs.decrementAndGet() == 0) {
+            files.clear();
+        }
+    }
+
+    /**
+     * @return {@code true} if the row is known to be loaded and can be dropped
+     */
+    public boolean isLoaded(String sourceFile, long lineNumber) {
+        if (!enabled || runningJobs.get() == 0) {
+            return false;
+        }
+
+        LineBitmap bitmap = bitmap(sourceFile);
+        if (bitmap == null) {
+            untracked.increment();
+            return false;
+        }
+        if (!bitmap.contains(lineNumber)) {
+            misses.increment();
+            return false;
+        }
+
+        if (verifyEvery > 0 && hitCount.incrementAndGet() % verifyEvery == 0) {
+            if (!exists(sourceFile, lineNumber)) {
+                falsePositives.increment();
+                return false;
+            }
+            verifiedHits.increment();
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Adds the chunk's rows once the surrounding transaction commits, or right away
+     * without one.
+     */
+    public void recordLoaded(Chunk<? extends TaxiTripRaw> chunk) {
+        if (!enabled || runningJobs.get() == 0 || chunk.isEmpty()) {
+            return;
+        }
+
+        List<? extends TaxiTripRaw> rows = List.copyOf(chunk.getItems());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(rows);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(rows);
+            }
+        });
+    }
+
+    private void add(List<? extends TaxiTripRaw> rows) {
+        for (TaxiTripRaw row : rows) {
+            // Only files seeded during this run; an unseeded one is seeded in full later
+            CompletableFuture<LineBitmap> seeded = files.get(row.sourceFile());
+            LineBitmap bitmap = seeded != null && seeded.isDone() && !seeded.isCompletedExceptionally()
+                    ? seeded.getNow(null)
+                    : null;
+            if (bitmap != null) {
+                bitmap.add(row.lineNumber());
+            }
+        }
+    }
+
+    private LineBitmap bitmap(String sourceFile) {
+        CompletableFuture<LineBitmap> seeded = files.get(sourceFile);
+        if (seeded == null) {
+            var seeding = new CompletableFuture<LineBitmap>();
+            seeded = files.putIfAbsent(sourceFile, seeding);
+            if (seeded == null) {
+                seeded = seeding;
+                try {
+                    seeding.complete(seed(sourceFile));
+                } catch (RuntimeException e) {
+                    // The next row of the file tries again
+                    files.remove(sourceFile, seeding);
+                    seeding.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        return seeded.join();
+    }
+
+    /**
+     * @return the file's loaded lines, or {@code null} if they did not fit the budget
+     */
+    private LineBitmap seed(String sourceFile) {
+        var bitmap = new LineBitmap(budget);
+        var rows = new AtomicLong();
+        var complete = new boolean[] {true};
+
+        seedTimer.record(() -> seedTransaction.executeWithoutResult(status ->
+                jdbcTemplate.query(
+                        "SELECT line_number FROM " + targetTable + " WHERE source_file = ?",
+                        resultSet -> {
+                            complete[0] &= bitmap.add(resultSet.getLong(1));
+                            rows.incrementAndGet();
+                        },
+                        sourceFile)));
+
+        seededRows.increment(rows.get());
+        if (!complete[0]) {
+            bitmap.release();
+            log.warn("Loaded rows of [{}] exceed the dedup memory budget of {} bytes; "
+                    + "the file is not filtered", sourceFile, maxBytes);
+            return null;
+        }
+        log.info("Dedup filter seeded with {} loaded rows of [{}]", rows.get(), sourceFile);
+        return bitmap;
+    }
+
+    private boolean exists(String sourceFile, long lineNumber) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + targetTable
+                        + " WHERE source_file = ? AND line_number = ?)",
+                Boolean.class, sourceFile, lineNumber));
+    }
+}
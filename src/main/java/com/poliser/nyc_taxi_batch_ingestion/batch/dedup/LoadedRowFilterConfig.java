@@ -0,0 +1,35 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.dedup;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripPartitionedItemWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class LoadedRowFilterConfig {
+
+    /**
+     * Active when {@code taxi.ingestion.dedup.enabled=true}; seeded from the table the
+     * configured writer fills.
+     */
+    @Bean
+    public LoadedRowFilter loadedRowFilter(
+            @Value("${taxi.ingestion.dedup.enabled:false}") boolean enabled,
+            @Value("${taxi.ingestion.writer:jdbc}") String writerType,
+            @Value("${taxi.ingestion.dedup.max-mb:256}") long maxMegabytes,
+            @Value("${taxi.ingestion.dedup.verify-every:10000}") long verifyEvery,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        String targetTable = "partitioned".equalsIgnoreCase(writerType)
+                ? TaxiTripPartitionedItemWriter.TARGET_TABLE
+                : "ingestion.taxi_trip_raw";
+        return new LoadedRowFilter(enabled, targetTable, maxMegabytes * 1024 * 1024, verifyEvery,
+                dataSource, transactionManager, meterRegistry);
+    }
+}
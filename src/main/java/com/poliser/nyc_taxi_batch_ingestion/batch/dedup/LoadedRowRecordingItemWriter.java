@@ -0,0 +1,26 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.dedup;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+
+/**
+ * Hands every chunk written to the {@link LoadedRowFilter}, which adds its rows once the
+ * chunk commits.
+ */
+public class LoadedRowRecordingItemWriter implements ItemWriter<TaxiTripRaw> {
+
+    private final ItemWriter<TaxiTripRaw> delegate;
+    private final LoadedRowFilter loadedRowFilter;
+
+    public LoadedRowRecordingItemWriter(ItemWriter<TaxiTripRaw> delegate, LoadedRowFilter loadedRowFilter) {
+        this.delegate = delegate;
+        this.loadedRowFilter = loadedRowFilter;
+    }
+
+    @Override
+    public void write(Chunk<? extends TaxiTripRaw> chunk) throws Exception {
+        delegate.write(chunk);
+        loadedRowFilter.recordLoaded(chunk);
+    }
+}
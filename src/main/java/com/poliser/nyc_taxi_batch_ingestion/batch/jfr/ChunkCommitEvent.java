@@ -0,0 +1,9 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+
+@Label("Chunk Commit")
+@Description("From the end of the write to the end of the chunk transaction: reader state, step metadata and commit")
+final class ChunkCommitEvent extends ChunkEvent {
+}
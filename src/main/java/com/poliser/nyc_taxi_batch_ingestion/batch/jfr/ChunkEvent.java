@@ -0,0 +1,31 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Fields shared by the events of one chunk, see {@link ChunkTrace}.
+ */
+@Category({"NYC Taxi Ingestion", "Chunk"})
+@StackTrace(false)
+abstract class ChunkEvent extends Event {
+
+    @Label("Step Name")
+    String stepName;
+
+    @Label("Step Execution Id")
+    long stepExecutionId;
+
+    @Label("Chunk Size")
+    @Description("Items read for the read, process and rollback events, items written for the others")
+    int chunkSize;
+
+    @Label("First Line")
+    long firstLine;
+
+    @Label("Last Line")
+    long lastLine;
+}
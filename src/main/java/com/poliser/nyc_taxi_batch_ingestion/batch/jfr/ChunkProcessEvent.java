@@ -0,0 +1,15 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Timespan;
+
+@Label("Chunk Process")
+@Description("From the chunk's first process call to the start of its write")
+final class ChunkProcessEvent extends ChunkEvent {
+
+    @Label("Process Time")
+    @Description("Time spent in the processor, summed over the processing threads")
+    @Timespan
+    long processTime;
+}
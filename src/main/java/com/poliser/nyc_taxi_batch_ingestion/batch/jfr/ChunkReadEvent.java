@@ -0,0 +1,9 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+
+@Label("Chunk Read")
+@Description("From the chunk's first read to its last")
+final class ChunkReadEvent extends ChunkEvent {
+}
@@ -0,0 +1,12 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+
+@Label("Chunk Rollback")
+@Description("A chunk transaction rolled back, from the chunk's first read")
+final class ChunkRollbackEvent extends ChunkEvent {
+
+    @Label("Error")
+    String error;
+}
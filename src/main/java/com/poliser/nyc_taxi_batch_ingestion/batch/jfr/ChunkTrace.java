@@ -0,0 +1,157 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Flight recorder events of one chunk of a chunk-oriented step: read, process, write and
+ * commit, or a rollback. Each carries the step, the chunk size and the range of line
+ * numbers read; the recording thread is the one that read and wrote the chunk.
+ * <p>
+ * The step thread drives the trace ({@link #start}, {@link #itemRead}, {@link #writing},
+ * {@link #written}); {@link #processing} and {@link #failed} may come from the processing
+ * threads. The commit or rollback is taken from the chunk transaction's completion.
+ */
+public final class ChunkTrace implements TransactionSynchronization {
+
+    // Instances only asked whether their event type is enabled
+    private static final ChunkEvent[] PROBES = {
+            new ChunkReadEvent(), new ChunkProcessEvent(), new ChunkWriteEvent(),
+            new ChunkCommitEvent(), new ChunkRollbackEvent()
+    };
+
+    private final String stepName;
+    private final long stepExecutionId;
+
+    private final ChunkReadEvent read = new ChunkReadEvent();
+    private final ChunkProcessEvent process = new ChunkProcessEvent();
+    private final ChunkWriteEvent write = new ChunkWriteEvent();
+    private final ChunkCommitEvent commit = new ChunkCommitEvent();
+    private final ChunkRollbackEvent rollback = new ChunkRollbackEvent();
+    private final AtomicBoolean processStarted = new AtomicBoolean();
+
+    private int items;
+    private long firstLine = Long.MAX_VALUE;
+    private long lastLine = -1;
+    private int written = -1;
+    private volatile String error;
+    private volatile boolean finished;
+
+    private ChunkTrace(StepExecution stepExecution) {
+        this.stepName = stepExecution.getStepName();
+        this.stepExecutionId = stepExecution.getId();
+    }
+
+    /**
+     * Starts tracing the chunk about to be read, or returns {@code null} when no recording
+     * takes chunk events.
+     */
+    public static ChunkTrace start(StepExecution stepExecution) {
+        if (!isEnabled()) {
+            return null;
+        }
+        var trace = new ChunkTrace(stepExecution);
+        trace.read.begin();
+        trace.rollback.begin();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(trace);
+        }
+        return trace;
+    }
+
+    private static boolean isEnabled() {
+        for (ChunkEvent probe : PROBES) {
+            if (probe.isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param lineNumber the item's line number, or a negative number if it has none
+     */
+    public void itemRead(long lineNumber) {
+        items++;
+        if (lineNumber >= 0) {
+            firstLine = Math.min(firstLine, lineNumber);
+            lastLine = Math.max(lastLine, lineNumber);
+        }
+        read.end();
+    }
+
+    public void processing() {
+        if (processStarted.compareAndSet(false, true)) {
+            process.begin();
+        }
+    }
+
+    public void writing() {
+        process.end();
+        write.begin();
+    }
+
+    /**
+     * Commits the read, process and write events.
+     *
+     * @param processNanos time spent in the processor, summed over the threads
+     */
+    public void written(int writtenItems, long processNanos) {
+        write.end();
+        written = writtenItems;
+
+        commit(read, items);
+        if (processStarted.get()) {
+            process.processTime = processNanos;
+            commit(process, items);
+        }
+        commit(write, writtenItems);
+        commit.begin();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            finished = true;
+        }
+    }
+
+    public void failed(Throwable failure) {
+        if (error == null) {
+            error = failure.toString();
+        }
+    }
+
+    /**
+     * Whether the chunk transaction completed; the next read starts a new trace.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        finished = true;
+        if (status == STATUS_COMMITTED) {
+            if (written >= 0) {
+                commit.end();
+                commit(commit, written);
+            }
+        } else {
+            rollback.end();
+            rollback.error = error;
+            commit(rollback, items);
+        }
+    }
+
+    private void commit(ChunkEvent event, int chunkSize) {
+        if (event.shouldCommit()) {
+            event.stepName = stepName;
+            event.stepExecutionId = stepExecutionId;
+            event.chunkSize = chunkSize;
+            event.firstLine = lastLine < 0 ? -1 : firstLine;
+            event.lastLine = lastLine;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+
+@Label("Chunk Write")
+@Description("The chunk's item writer")
+final class ChunkWriteEvent extends ChunkEvent {
+}
@@ -0,0 +1,33 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class FlightRecordingConfig {
+
+    /**
+     * Records from startup when {@code taxi.jfr.enabled=true}; otherwise a recording is
+     * started through {@code /jobs/recording/start}.
+     */
+    @Bean
+    public FlightRecordingService flightRecordingService(
+            @Value("${taxi.jfr.enabled:false}") boolean enabled,
+            @Value("${taxi.jfr.settings:default}") String settings,
+            @Value("${taxi.jfr.max-age-minutes:30}") long maxAgeMinutes,
+            @Value("${taxi.jfr.max-size-mb:256}") long maxSizeMegabytes,
+            @Value("${taxi.jfr.directory:data/jfr}") String directory
+    ) {
+        return new FlightRecordingService(
+                enabled,
+                settings,
+                Duration.ofMinutes(maxAgeMinutes),
+                maxSizeMegabytes * 1024 * 1024,
+                Path.of(directory)
+        );
+    }
+}
@@ -0,0 +1,181 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * One continuous flight recording of this instance, bounded by {@code maxAge} and
+ * {@code maxSize}, with the JDK's GC, allocation and thread events of the chosen settings
+ * ({@code default} or {@code profile}) and the ingestion's own events.
+ * <p>
+ * Dumps go to {@code directory} and leave the recording running. The recording is dumped
+ * once more when the application stops.
+ */
+public class FlightRecordingService implements SmartLifecycle {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(FlightRecordingService.class);
+
+    private static final String NAME = "taxi-ingestion";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final boolean enabled;
+    private final String defaultSettings;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+    private final Path directory;
+
+    // Guarded by this
+    private Recording recording;
+    private String settings;
+
+    private volatile boolean running;
+
+    public FlightRecordingService(
+            boolean enabled,
+            String defaultSettings,
+            Duration maxAge,
+            long maxSizeBytes,
+            Path directory
+    ) {
+        this.enabled = enabled;
+        this.defaultSettings = defaultSettings;
+        this.maxAge = maxAge;
+        this.maxSizeBytes = maxSizeBytes;
+        this.directory = directory;
+    }
+
+    /**
+     * Starts the recording unless it is running already.
+     *
+     * @param settings name of a JDK recording configuration, or {@code null} for the
+     *                 configured one
+     * @throws IllegalArgumentException if there is no such configuration
+     */
+    public synchronized RecordingStatus startRecording(String settings) throws IOException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return status(null);
+        }
+        if (recording != null) {
+            recording.close();
+        }
+
+        String name = settings == null || settings.isBlank() ? defaultSettings : settings;
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(name);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Unknown recording settings [" + name + "]", e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Unable to parse recording settings [" + name + "]", e);
+        }
+
+        recording = new Recording(configuration);
+        recording.setName(NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        recording.start();
+        this.settings = name;
+        log.info("Flight recording started with [{}] settings, keeping {} or {} bytes",
+                name, maxAge, maxSizeBytes);
+        return status(null);
+    }
+
+    /**
+     * Writes what the recording holds to a new file, leaving it running.
+     *
+     * @return {@code null} if no recording was started
+     */
+    public synchronized RecordingStatus dump() throws IOException {
+        if (recording == null || recording.getState() == RecordingState.CLOSED) {
+            return null;
+        }
+        return status(dumpToFile());
+    }
+
+    /**
+     * Stops the recording and writes it to a new file.
+     *
+     * @return {@code null} if no recording is running
+     */
+    public synchronized RecordingStatus stopRecording() throws IOException {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return null;
+        }
+        recording.stop();
+        Path file = dumpToFile();
+        RecordingStatus status = status(file);
+        recording.close();
+        log.info("Flight recording stopped");
+        return status;
+    }
+
+    public synchronized RecordingStatus status() {
+        return status(null);
+    }
+
+    private Path dumpToFile() throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(NAME + "-" + LocalDateTime.now().format(FILE_TIME) + "-"
+                + ProcessHandle.current().pid() + ".jfr");
+        recording.dump(file);
+        log.info("Flight recording dumped to [{}]", file);
+        return file;
+    }
+
+    private RecordingStatus status(Path file) {
+        if (recording == null) {
+            return new RecordingStatus("NONE", null, null, maxAge, maxSizeBytes, 0, null);
+        }
+        return new RecordingStatus(
+                recording.getState().name(),
+                settings,
+                recording.getStartTime(),
+                maxAge,
+                maxSizeBytes,
+                recording.getSize(),
+                file == null ? null : file.toAbsolutePath().toString());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled) {
+            return;
+        }
+        try {
+            startRecording(null);
+        } catch (IOException e) {
+            log.warn("Unable to start the flight recording", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            stopRecording();
+        } catch (IOException e) {
+            log.warn("Unable to dump the flight recording", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,57 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * One database round trip of a writer, the span of {@code batch.jdbc.batch}:
+ * <pre>{@code
+ * var event = JdbcBatchEvent.start("copy");
+ * long rows = copy(...);
+ * event.commit(rows, bytes);
+ * }</pre>
+ */
+@Label("JDBC Batch")
+@Description("A writer's statement batch or COPY, merge included")
+@Category({"NYC Taxi Ingestion", "JDBC"})
+@StackTrace(false)
+public final class JdbcBatchEvent extends Event {
+
+    @Label("Step Name")
+    String stepName;
+
+    @Label("Writer")
+    String writer;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Bytes")
+    @Description("Size of the COPY payload, 0 for statement batches")
+    @DataAmount
+    long bytes;
+
+    private JdbcBatchEvent(String writer) {
+        this.writer = writer;
+    }
+
+    public static JdbcBatchEvent start(String writer) {
+        var event = new JdbcBatchEvent(writer);
+        event.begin();
+        return event;
+    }
+
+    public void commit(long rows, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.stepName = StepNames.current();
+            this.rows = rows;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A thread waiting for a reader shared by several threads. Only waits of at least the
+ * threshold are recorded; an uncontended read creates no event at all.
+ */
+@Label("Reader Lock Wait")
+@Description("Time a thread waited for the lock of a synchronized item reader")
+@Category({"NYC Taxi Ingestion", "Reader"})
+@Threshold("1 ms")
+@StackTrace(false)
+public final class ReaderLockWaitEvent extends Event {
+
+    @Label("Step Name")
+    String stepName;
+
+    @Label("Queue Length")
+    @Description("Threads waiting for the lock when this one got it")
+    int queueLength;
+
+    private ReaderLockWaitEvent() {
+    }
+
+    public static ReaderLockWaitEvent start() {
+        var event = new ReaderLockWaitEvent();
+        event.begin();
+        return event;
+    }
+
+    public void commit(int queueLength) {
+        end();
+        if (shouldCommit()) {
+            this.stepName = StepNames.current();
+            this.queueLength = queueLength;
+            commit();
+        }
+    }
+}
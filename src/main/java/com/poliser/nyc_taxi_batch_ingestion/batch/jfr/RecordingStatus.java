@@ -0,0 +1,24 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * State of the continuous recording, see {@link FlightRecordingService}.
+ *
+ * @param state     {@code NEW}, {@code RUNNING}, {@code STOPPED} or {@code CLOSED}; {@code NONE}
+ *                  if no recording was started
+ * @param sizeBytes bytes recorded so far, before the {@code maxAge}/{@code maxSizeBytes}
+ *                  bounds drop old chunks
+ * @param file      file written by this request's dump, if any
+ */
+public record RecordingStatus(
+        String state,
+        String settings,
+        Instant startTime,
+        Duration maxAge,
+        long maxSizeBytes,
+        long sizeBytes,
+        String file
+) {
+}
@@ -0,0 +1,45 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * A row filtered by validation; the steps are not fault tolerant, so this is the only
+ * way a row is skipped.
+ */
+@Label("Row Reject")
+@Description("A row that failed validation and goes to ingestion.taxi_trip_reject")
+@Category({"NYC Taxi Ingestion", "Chunk"})
+@StackTrace(false)
+public final class RowRejectEvent extends Event {
+
+    @Label("Step Name")
+    String stepName;
+
+    @Label("Source File")
+    String sourceFile;
+
+    @Label("Line Number")
+    long lineNumber;
+
+    @Label("Reason")
+    String reason;
+
+    private RowRejectEvent() {
+    }
+
+    public static void record(TaxiTripReject reject) {
+        var event = new RowRejectEvent();
+        if (event.shouldCommit()) {
+            event.stepName = StepNames.current();
+            event.sourceFile = reject.sourceFile();
+            event.lineNumber = reject.lineNumber();
+            event.reason = reject.reason().name();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.jfr;
+
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+final class StepNames {
+
+    private StepNames() {
+    }
+
+    /**
+     * Name of the step execution registered on the calling thread, or {@code null}.
+     */
+    static String current() {
+        StepContext context = StepSynchronizationManager.getContext();
+        return context == null ? null : context.getStepName();
+    }
+}
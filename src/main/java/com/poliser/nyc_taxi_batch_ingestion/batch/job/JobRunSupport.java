@@ -0,0 +1,72 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.job;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * The parts the one-shot runners share: waiting for an execution to end, writing its JSON
+ * report and exiting the JVM with a code.
+ */
+public class JobRunSupport {
+
+    /** How often to look at the job repository, or anything else a runner waits for. */
+    public static final long POLL_MILLIS = 200;
+
+    private final JobRepository jobRepository;
+    private final JsonMapper jsonMapper;
+    private final ConfigurableApplicationContext context;
+
+    public JobRunSupport(
+            JobRepository jobRepository,
+            JsonMapper jsonMapper,
+            ConfigurableApplicationContext context
+    ) {
+        this.jobRepository = jobRepository;
+        this.jsonMapper = jsonMapper;
+        this.context = context;
+    }
+
+    /**
+     * Waits for the execution to stop running.
+     */
+    public BatchStatus await(long executionId) throws InterruptedException {
+        while (true) {
+            JobExecution execution = jobRepository.getJobExecution(executionId);
+            if (execution != null && !execution.isRunning()) {
+                return execution.getStatus();
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Writes the report as {@code <prefix>-<label>.json}, or {@code <prefix>-<epoch millis of
+     * startedAt>.json} without a label.
+     *
+     * @return the file written
+     */
+    public Path writeReport(Path directory, String prefix, String label, Instant startedAt, Object report)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path reportFile = directory.resolve(prefix + "-"
+                + (label.isBlank() ? startedAt.toEpochMilli() : label) + ".json");
+        jsonMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), report);
+        return reportFile;
+    }
+
+    /**
+     * Closes the application context and exits the JVM with the code.
+     */
+    public void exit(int code) {
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
@@ -1,11 +1,17 @@
 package com.poliser.nyc_taxi_batch_ingestion.batch.job;
 
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.LoadModeDecider;
+import com.poliser.nyc_taxi_batch_ingestion.batch.dedup.LoadedRowFilter;
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.IngestionProgress;
 import com.poliser.nyc_taxi_batch_ingestion.batch.observability.JobMetricsListener;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFileDecider;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.job.Job;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.Step;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -16,11 +22,41 @@ public class TaxiIntegestionJobConfig {
     @Bean
     public Job taxiIngestionJob(
             JobRepository jobRepository,
-            Step taxiIngestionStep
+            @Qualifier("taxiTripIngestionStep") Step taxiIngestionStep,
+            @Qualifier("taxiTripPartitionedStep") Step taxiPartitionedStep,
+            @Qualifier("taxiTripColumnarStep") Step taxiColumnarStep,
+            @Qualifier("taxiTripPipelinedStep") Step taxiPipelinedStep,
+            @Qualifier("taxiTripFilesStep") Step taxiFilesStep,
+            LoadModeDecider loadModeDecider,
+            @Qualifier("taxiBulkPrepareStep") Step bulkPrepareStep,
+            @Qualifier("taxiBulkLoadStep") Step bulkLoadStep,
+            @Qualifier("taxiBulkMergeStep") Step bulkMergeStep,
+            @Value("${taxi.ingestion.step-mode:chunked}") String stepMode,
+            IngestionProgress ingestionProgress,
+            LoadedRowFilter loadedRowFilter
     ) {
+        Step step = switch (stepMode.toLowerCase()) {
+            case "partitioned" -> taxiPartitionedStep;
+            case "columnar" -> taxiColumnarStep;
+            case "pipelined" -> taxiPipelinedStep;
+            default -> taxiIngestionStep;
+        };
+
+        var sourceFileDecider = new SourceFileDecider();
+
         return new JobBuilder("taxiIngestionJob", jobRepository)
                 .listener(new JobMetricsListener())
-                .start(taxiIngestionStep)
+                .listener(ingestionProgress)
+                .listener(loadedRowFilter)
+                .start(sourceFileDecider)
+                    .on(SourceFileDecider.FILES).to(taxiFilesStep)
+                .from(sourceFileDecider)
+                    .on("*").to(loadModeDecider)
+                    .on(LoadModeDecider.BULK)
+                    .to(bulkPrepareStep).next(bulkLoadStep).next(bulkMergeStep)
+                .from(loadModeDecider)
+                    .on("*").to(step)
+                .end()
                 .build();
     }
 }
@@ -0,0 +1,86 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.lease;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.TaxiTripItemProcessor;
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+@Configuration
+public class LeaseConfig {
+
+    @Bean
+    public LeaseQueue leaseQueue(
+            @Value("${taxi.ingestion.lease.unit-mb:64}") long unitMegabytes,
+            @Value("${taxi.ingestion.lease.lease-seconds:60}") long leaseSeconds,
+            @Value("${taxi.ingestion.lease.max-attempts:3}") int maxAttempts,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager
+    ) {
+        return new LeaseQueue(
+                dataSource,
+                new TransactionTemplate(transactionManager),
+                unitMegabytes * 1024 * 1024,
+                Duration.ofSeconds(leaseSeconds),
+                maxAttempts
+        );
+    }
+
+    /**
+     * Started with the application when {@code taxi.ingestion.lease.worker.enabled=true}.
+     */
+    @Bean
+    public LeaseWorker leaseWorker(
+            @Value("${taxi.ingestion.lease.worker.enabled:false}") boolean enabled,
+            @Value("${taxi.ingestion.lease.worker.instance-id:}") String instanceId,
+            @Value("${taxi.ingestion.lease.worker.threads:2}") int threads,
+            @Value("${taxi.ingestion.lease.worker.chunk-size:1000}") int chunkSize,
+            @Value("${taxi.ingestion.lease.worker.poll-ms:1000}") long pollMillis,
+            @Value("${taxi.ingestion.lease.worker.heartbeat-ms:10000}") long heartbeatMillis,
+            LeaseQueue leaseQueue,
+            TaxiTripItemProcessor processor,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            @Qualifier("taxiTripWriter") ItemWriter<TaxiTripRaw> writer,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        return new LeaseWorker(
+                enabled,
+                instanceId.isBlank() ? defaultInstanceId() : instanceId,
+                threads,
+                chunkSize,
+                Duration.ofMillis(pollMillis),
+                Duration.ofMillis(heartbeatMillis),
+                leaseQueue,
+                processor,
+                rejectBuffer,
+                rejectWriter,
+                writer,
+                new TransactionTemplate(transactionManager),
+                meterRegistry
+        );
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+}
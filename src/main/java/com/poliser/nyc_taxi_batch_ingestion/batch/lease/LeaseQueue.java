@@ -0,0 +1,317 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.lease;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.ByteRangePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFilePartitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Work units of lease runs in {@code ingestion.lease_unit}: newline-aligned byte ranges of
+ * source files that any instance can claim.
+ * <p>
+ * A claim takes the oldest unit that is pending or whose lease expired with
+ * {@code FOR UPDATE SKIP LOCKED}, so concurrent claims never wait on each other, and bumps
+ * its {@code attempts}. That number fences the lease: progress, heartbeats and completion
+ * only apply while it is unchanged, so a worker whose lease was taken over can no longer
+ * touch the unit. {@link #advance} runs on the connection of the surrounding transaction,
+ * so a unit's position commits with its rows.
+ */
+public class LeaseQueue {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(LeaseQueue.class);
+
+    private static final String INSERT_RUN = """
+            INSERT INTO ingestion.lease_run (source) VALUES (?)
+            RETURNING run_id
+            """;
+
+    private static final String INSERT_UNIT = """
+            INSERT INTO ingestion.lease_unit
+                (run_id, source_file, start_offset, end_offset, first_line_number, next_offset, physical_lines)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String CLAIM_UNIT = """
+            UPDATE ingestion.lease_unit u SET
+                status = 'LEASED',
+                owner = ?,
+                attempts = u.attempts + 1,
+                lease_expires_at = now() + ? * interval '1 second',
+                updated_at = now()
+            WHERE u.unit_id = (
+                SELECT unit_id
+                FROM ingestion.lease_unit
+                WHERE (status = 'PENDING' OR (status = 'LEASED' AND lease_expires_at < now()))
+                  AND attempts < ?
+                ORDER BY unit_id
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING u.unit_id, u.run_id, u.source_file, u.next_offset, u.end_offset,
+                u.first_line_number, u.records_read, u.physical_lines, u.attempts
+            """;
+
+    private static final String ADVANCE_UNIT = """
+            UPDATE ingestion.lease_unit SET
+                next_offset = ?,
+                records_read = ?,
+                physical_lines = ?,
+                rows_written = rows_written + ?,
+                rows_filtered = rows_filtered + ?,
+                status = ?,
+                owner = CASE WHEN ? = 'DONE' THEN NULL ELSE owner END,
+                lease_expires_at = now() + ? * interval '1 second',
+                updated_at = now()
+            WHERE unit_id = ? AND attempts = ? AND status = 'LEASED'
+            """;
+
+    private static final String RENEW_UNIT = """
+            UPDATE ingestion.lease_unit SET
+                lease_expires_at = now() + ? * interval '1 second',
+                updated_at = now()
+            WHERE unit_id = ? AND attempts = ? AND status = 'LEASED'
+            """;
+
+    private static final String RELEASE_UNIT = """
+            UPDATE ingestion.lease_unit SET
+                status = CASE WHEN ? AND attempts >= ? THEN 'FAILED' ELSE 'PENDING' END,
+                owner = NULL,
+                lease_expires_at = NULL,
+                last_error = ?,
+                updated_at = now()
+            WHERE unit_id = ? AND attempts = ? AND status = 'LEASED'
+            """;
+
+    private static final String FAIL_ABANDONED_UNITS = """
+            UPDATE ingestion.lease_unit SET
+                status = 'FAILED',
+                owner = NULL,
+                last_error = 'Lease expired ' || attempts || ' times',
+                updated_at = now()
+            WHERE status = 'LEASED' AND lease_expires_at < now() AND attempts >= ?
+            """;
+
+    private static final String SELECT_RUN_PROGRESS = """
+            SELECT r.source,
+                   r.created_at,
+                   count(u.unit_id),
+                   count(u.unit_id) FILTER (WHERE u.status = 'PENDING'
+                       OR (u.status = 'LEASED' AND u.lease_expires_at < now())),
+                   count(u.unit_id) FILTER (WHERE u.status = 'LEASED' AND u.lease_expires_at >= now()),
+                   count(u.unit_id) FILTER (WHERE u.status = 'DONE'),
+                   count(u.unit_id) FILTER (WHERE u.status = 'FAILED'),
+                   coalesce(sum(u.end_offset - u.start_offset), 0),
+                   coalesce(sum(u.next_offset - u.start_offset), 0),
+                   coalesce(sum(u.records_read), 0),
+                   coalesce(sum(u.rows_written), 0),
+                   coalesce(sum(u.rows_filtered), 0),
+                   max(u.updated_at)
+            FROM ingestion.lease_run r
+            LEFT JOIN ingestion.lease_unit u ON u.run_id = r.run_id
+            WHERE r.run_id = ?
+            GROUP BY r.run_id
+            """;
+
+    private static final String SELECT_RUN_HOLDERS = """
+            SELECT owner, count(*), max(updated_at)
+            FROM ingestion.lease_unit
+            WHERE run_id = ? AND status = 'LEASED' AND lease_expires_at >= now()
+            GROUP BY owner
+            ORDER BY owner
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long unitBytes;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+
+    /**
+     * @param unitBytes   target size of a work unit
+     * @param lease       how long a claim or heartbeat holds a unit
+     * @param maxAttempts leases of a unit before it is marked {@code FAILED}
+     */
+    public LeaseQueue(
+            DataSource dataSource,
+            TransactionTemplate transactionTemplate,
+            long unitBytes,
+            Duration lease,
+            int maxAttempts
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = transactionTemplate;
+        this.unitBytes = Math.max(1, unitBytes);
+        this.leaseSeconds = Math.max(1, lease.toSeconds());
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public Duration lease() {
+        return Duration.ofSeconds(leaseSeconds);
+    }
+
+    /**
+     * Splits every file matched by {@code source} into units of about {@code unitBytes}
+     * and queues them under a new run, in one transaction.
+     *
+     * @return the run's id
+     */
+    public long submit(String source) throws IOException {
+        List<Path> files = SourceFilePartitioner.match(source);
+        List<Object[]> units = new ArrayList<>();
+        for (Path file : files) {
+            long size = Files.size(file);
+            int gridSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (size + unitBytes - 1) / unitBytes));
+            Map<String, ExecutionContext> ranges = new ByteRangePartitioner(file, 1).partition(gridSize);
+            for (ExecutionContext range : ranges.values()) {
+                long start = range.getLong(ByteRangePartitioner.START_OFFSET);
+                units.add(new Object[] {
+                        null,
+                        file.toString(),
+                        start,
+                        range.getLong(ByteRangePartitioner.END_OFFSET),
+                        range.getLong(ByteRangePartitioner.FIRST_LINE_NUMBER),
+                        start,
+                        range.getLong(ByteRangePartitioner.FIRST_PHYSICAL_LINE) - 1
+                });
+            }
+        }
+
+        Long runId = transactionTemplate.execute(status -> {
+            Long id = jdbcTemplate.queryForObject(INSERT_RUN, Long.class, source);
+            units.forEach(unit -> unit[0] = id);
+            jdbcTemplate.batchUpdate(INSERT_UNIT, units);
+            return id;
+        });
+        log.info("Queued lease run {} for [{}]: {} files in {} units", runId, source, files.size(), units.size());
+        return runId;
+    }
+
+    /**
+     * @return the claimed unit, or {@code null} if none is available
+     */
+    public WorkUnit claim(String owner) {
+        List<WorkUnit> claimed = jdbcTemplate.query(CLAIM_UNIT,
+                (rs, row) -> new WorkUnit(
+                        rs.getLong(1),
+                        rs.getLong(2),
+                        rs.getString(3),
+                        rs.getLong(4),
+                        rs.getLong(5),
+                        rs.getLong(6),
+                        rs.getLong(7),
+                        rs.getLong(8),
+                        rs.getInt(9)),
+                owner, leaseSeconds, maxAttempts);
+        return claimed.isEmpty() ? null : claimed.getFirst();
+    }
+
+    /**
+     * Records the unit's position after a chunk and renews its lease; with {@code done}
+     * the unit is complete.
+     *
+     * @return {@code false} if the lease was lost
+     */
+    public boolean advance(WorkUnit unit, WorkUnit next, long rowsWritten, long rowsFiltered, boolean done) {
+        String status = done ? "DONE" : "LEASED";
+        return jdbcTemplate.update(ADVANCE_UNIT,
+                next.nextOffset(),
+                next.recordsRead(),
+                next.physicalLines(),
+                rowsWritten,
+                rowsFiltered,
+                status,
+                status,
+                leaseSeconds,
+                unit.unitId(),
+                unit.attempt()) == 1;
+    }
+
+    /**
+     * @return {@code false} if the lease was lost
+     */
+    public boolean renew(WorkUnit unit) {
+        return jdbcTemplate.update(RENEW_UNIT, leaseSeconds, unit.unitId(), unit.attempt()) == 1;
+    }
+
+    /**
+     * Gives a unit back to the queue. A {@code failed} unit is marked {@code FAILED} instead
+     * after its last attempt.
+     */
+    public void release(WorkUnit unit, boolean failed, String reason) {
+        jdbcTemplate.update(RELEASE_UNIT, failed, maxAttempts, reason, unit.unitId(), unit.attempt());
+    }
+
+    /**
+     * Marks units whose last allowed lease expired as {@code FAILED}.
+     *
+     * @return the number of units marked
+     */
+    public int failAbandoned() {
+        return jdbcTemplate.update(FAIL_ABANDONED_UNITS, maxAttempts);
+    }
+
+    /**
+     * Progress of a run over all instances, or {@code null} for an unknown run.
+     */
+    public LeaseRunProgress progress(long runId) {
+        List<LeaseRunProgress.Holder> holders = jdbcTemplate.query(SELECT_RUN_HOLDERS,
+                (rs, row) -> new LeaseRunProgress.Holder(
+                        rs.getString(1), rs.getInt(2), rs.getTimestamp(3).toInstant()),
+                runId);
+
+        List<LeaseRunProgress> progress = jdbcTemplate.query(SELECT_RUN_PROGRESS, (rs, row) -> {
+            Instant createdAt = rs.getTimestamp(2).toInstant();
+            int units = rs.getInt(3);
+            int pending = rs.getInt(4);
+            int leased = rs.getInt(5);
+            int done = rs.getInt(6);
+            int failed = rs.getInt(7);
+            long bytesTotal = rs.getLong(8);
+            long bytesDone = rs.getLong(9);
+            var lastUpdate = rs.getTimestamp(13);
+
+            // Average over the run so far; a finished run stops at its last update
+            Instant until = pending + leased > 0 || lastUpdate == null ? Instant.now() : lastUpdate.toInstant();
+            double seconds = Math.max(Duration.between(createdAt, until).toMillis(), 1) / 1000.0;
+            double bytesPerSecond = bytesDone / seconds;
+            Long etaSeconds = pending + leased == 0
+                    ? Long.valueOf(0)
+                    : bytesPerSecond > 0 ? Long.valueOf(Math.round((bytesTotal - bytesDone) / bytesPerSecond)) : null;
+
+            return new LeaseRunProgress(
+                    runId,
+                    rs.getString(1),
+                    pending + leased > 0 ? "RUNNING" : failed > 0 ? "FAILED" : "COMPLETED",
+                    createdAt,
+                    units,
+                    pending,
+                    leased,
+                    done,
+                    failed,
+                    bytesDone,
+                    bytesTotal,
+                    bytesTotal > 0 ? 100.0 * bytesDone / bytesTotal : 100.0,
+                    rs.getLong(10),
+                    rs.getLong(11),
+                    rs.getLong(12),
+                    bytesPerSecond,
+                    etaSeconds,
+                    holders);
+        }, runId);
+        return progress.isEmpty() ? null : progress.getFirst();
+    }
+}
@@ -0,0 +1,35 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.lease;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Progress of a lease run over all instances, read from {@code ingestion.lease_unit}.
+ * Bytes count up to the last committed chunk of each unit; the rate is the average since
+ * the run was queued, and {@code etaSeconds} is {@code null} until a chunk committed.
+ * {@code workers} lists the instances holding a live lease.
+ */
+public record LeaseRunProgress(
+        long runId,
+        String source,
+        String status,
+        Instant createdAt,
+        int units,
+        int pendingUnits,
+        int leasedUnits,
+        int doneUnits,
+        int failedUnits,
+        long bytesDone,
+        long bytesTotal,
+        double percent,
+        long readCount,
+        long writeCount,
+        long filterCount,
+        double bytesPerSecond,
+        Long etaSeconds,
+        List<Holder> workers
+) {
+
+    public record Holder(String owner, int units, Instant lastUpdate) {
+    }
+}
@@ -0,0 +1,339 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.lease;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.TaxiTripItemProcessor;
+import com.poliser.nyc_taxi_batch_ingestion.batch.reader.TaxiCsvReaderConfig;
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker side of a lease run: claims units from the {@link LeaseQueue} and loads them with
+ * the same reader, validation and writer as the batch steps.
+ * <p>
+ * Each worker thread holds one unit at a time and commits it in chunks of
+ * {@code chunkSize} rows; every chunk commits together with the unit's new position, so a
+ * unit taken over after a crash continues right after its last committed chunk. A
+ * heartbeat thread renews the held leases every {@code heartbeat}, and marks units whose
+ * last lease expired as failed. A chunk whose lease was lost rolls back and the unit is
+ * left to its new owner.
+ */
+public class LeaseWorker implements SmartLifecycle {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(LeaseWorker.class);
+
+    private final boolean enabled;
+    private final String owner;
+    private final int threads;
+    private final int chunkSize;
+    private final Duration pollInterval;
+    private final Duration heartbeat;
+    private final LeaseQueue queue;
+    private final TaxiTripItemProcessor processor;
+    private final RejectBuffer rejectBuffer;
+    private final TaxiTripRejectWriter rejectWriter;
+    private final ItemWriter<TaxiTripRaw> writer;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, WorkUnit> held = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    // Idle workers wait on it between polls, so stop() wakes them without an interrupt
+    private final Object idle = new Object();
+
+    private final Counter unitsDone;
+    private final Counter unitsFailed;
+    private final Counter unitsLost;
+
+    private volatile boolean running;
+    private Thread heartbeatThread;
+
+    /**
+     * @param owner name of this instance in the queue
+     */
+    public LeaseWorker(
+            boolean enabled,
+            String owner,
+            int threads,
+            int chunkSize,
+            Duration pollInterval,
+            Duration heartbeat,
+            LeaseQueue queue,
+            TaxiTripItemProcessor processor,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            ItemWriter<TaxiTripRaw> writer,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.owner = owner;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pollInterval = pollInterval;
+        this.heartbeat = heartbeat;
+        this.queue = queue;
+        this.processor = processor;
+        this.rejectBuffer = rejectBuffer;
+        this.rejectWriter = rejectWriter;
+        this.writer = writer;
+        this.transactionTemplate = transactionTemplate;
+
+        unitsDone = meterRegistry.counter("batch.lease.units", "result", "done");
+        unitsFailed = meterRegistry.counter("batch.lease.units", "result", "failed");
+        unitsLost = meterRegistry.counter("batch.lease.units", "result", "lost");
+        Gauge.builder("batch.lease.held", held, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String owner() {
+        return owner;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            workers.add(Thread.ofPlatform().name("lease-worker-" + i).daemon().start(this::work));
+        }
+        heartbeatThread = Thread.ofPlatform().name("lease-heartbeat").daemon().start(this::beat);
+        log.info("Lease worker [{}] started with {} threads, lease {}, heartbeat {}",
+                owner, threads, queue.lease(), heartbeat);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        synchronized (idle) {
+            idle.notifyAll();
+        }
+        // Units in flight are not interrupted, which would fail them and use up an attempt:
+        // they stop after their current chunk and are released, renewed until then
+        for (Thread worker : workers) {
+            join(worker);
+        }
+        if (heartbeatThread != null) {
+            heartbeatThread.interrupt();
+            join(heartbeatThread);
+        }
+        workers.clear();
+        heartbeatThread = null;
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void work() {
+        while (running) {
+            WorkUnit unit;
+            try {
+                unit = queue.claim(owner);
+            } catch (RuntimeException e) {
+                log.error("Unable to claim a work unit", e);
+                unit = null;
+            }
+            if (unit == null) {
+                if (!pause(pollInterval)) {
+                    return;
+                }
+                continue;
+            }
+
+            held.put(unit.unitId(), unit);
+            try {
+                load(unit);
+            } finally {
+                held.remove(unit.unitId());
+            }
+        }
+    }
+
+    private void load(WorkUnit unit) {
+        log.info("Leased unit {} of run {}: [{}] bytes {}-{} (attempt {})", unit.unitId(), unit.runId(),
+                unit.sourceFile(), unit.nextOffset(), unit.endOffset(), unit.attempt());
+        var reader = TaxiCsvReaderConfig.tailReader(Path.of(unit.sourceFile()), unit.nextOffset(),
+                unit.endOffset(), unit.nextLineNumber(), Math.toIntExact(unit.physicalLines() + 1));
+        var context = new ExecutionContext();
+        WorkUnit position = unit;
+        try {
+            reader.open(context);
+            boolean done;
+            do {
+                if (!running) {
+                    queue.release(position, false, "Released on shutdown of " + owner);
+                    return;
+                }
+                List<TaxiCsvRow> rows = new ArrayList<>(chunkSize);
+                TaxiCsvRow row;
+                while (rows.size() < chunkSize && (row = reader.read()) != null) {
+                    rows.add(row);
+                }
+                done = rows.size() < chunkSize;
+
+                reader.update(context);
+                var next = unit.advancedTo(
+                        context.getLong("tail.read.offset", position.nextOffset()),
+                        context.getLong("tail.read.records", 0L),
+                        context.getInt("tail.read.line", Math.toIntExact(position.physicalLines())));
+                if (!commit(position, next, rows, done)) {
+                    log.warn("Lost the lease of unit {} of run {} at byte {}, leaving it to its new owner",
+                            unit.unitId(), unit.runId(), position.nextOffset());
+                    unitsLost.increment();
+                    return;
+                }
+                position = next;
+            } while (!done);
+
+            unitsDone.increment();
+            log.info("Loaded unit {} of run {}: {} records", unit.unitId(), unit.runId(), position.recordsRead());
+
+        } catch (Exception e) {
+            log.error("Unable to load unit {} of run {} from byte {}, releasing it",
+                    unit.unitId(), unit.runId(), position.nextOffset(), e);
+            unitsFailed.increment();
+            try {
+                queue.release(position, true, String.valueOf(e));
+            } catch (RuntimeException releaseFailure) {
+                // The lease expires and another worker takes the unit over
+                log.warn("Unable to release unit {}", unit.unitId(), releaseFailure);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return {@code false} if the lease was lost and the chunk rolled back
+     */
+    private boolean commit(WorkUnit unit, WorkUnit next, List<TaxiCsvRow> rows, boolean done) {
+        var trips = new Chunk<TaxiTripRaw>();
+        var rejects = new ArrayList<TaxiTripReject>();
+        rejectBuffer.capture(rejects);
+        try {
+            for (TaxiCsvRow row : rows) {
+                TaxiTripRaw trip = processor.process(row, unit.sourceFile());
+                if (trip != null) {
+                    trips.add(trip);
+                }
+            }
+        } finally {
+            rejectBuffer.release();
+        }
+
+        Boolean committed = transactionTemplate.execute(status -> {
+            rejectWriter.write(rejects);
+            if (!trips.isEmpty()) {
+                try {
+                    writer.write(trips);
+                } catch (Exception e) {
+                    throw e instanceof RuntimeException runtime
+                            ? runtime
+                            : new IllegalStateException("Unable to write rows of " + unit.sourceFile(), e);
+                }
+            }
+            // Last, so the unit's row is locked only briefly and heartbeats rarely wait
+            if (!queue.advance(unit, next, trips.size(), rows.size() - trips.size(), done)) {
+                status.setRollbackOnly();
+                return false;
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(committed)) {
+            held.put(unit.unitId(), next);
+            return true;
+        }
+        return false;
+    }
+
+    private void beat() {
+        // Interrupted by stop() once the workers are done
+        while (true) {
+            if (!sleep(heartbeat)) {
+                return;
+            }
+            for (WorkUnit unit : held.values()) {
+                try {
+                    if (!queue.renew(unit)) {
+                        log.warn("Lease of unit {} of run {} expired before its heartbeat",
+                                unit.unitId(), unit.runId());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Unable to renew the lease of unit {}", unit.unitId(), e);
+                }
+            }
+            try {
+                int failed = queue.failAbandoned();
+                if (failed > 0) {
+                    log.warn("Marked {} work units failed after their last lease expired", failed);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Unable to check for abandoned work units", e);
+            }
+        }
+    }
+
+    /**
+     * Waits between polls of an idle worker.
+     *
+     * @return {@code false} if the worker is stopping
+     */
+    private boolean pause(Duration duration) {
+        synchronized (idle) {
+            if (!running) {
+                return false;
+            }
+            try {
+                idle.wait(Math.max(1, duration.toMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return running;
+        }
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.lease;
+
+/**
+ * A leased byte range {@code [nextOffset, endOffset)} of a source file, positioned after
+ * its last committed chunk: {@code recordsRead} records of the unit are loaded and
+ * {@code physicalLines} lines of the file lie before {@code nextOffset}. {@code attempt}
+ * fences the lease.
+ */
+public record WorkUnit(
+        long unitId,
+        long runId,
+        String sourceFile,
+        long nextOffset,
+        long endOffset,
+        long firstLineNumber,
+        long recordsRead,
+        long physicalLines,
+        int attempt
+) {
+
+    /**
+     * Line number of the next record to read.
+     */
+    public long nextLineNumber() {
+        return firstLineNumber + recordsRead;
+    }
+
+    WorkUnit advancedTo(long offset, long records, long lines) {
+        return new WorkUnit(unitId, runId, sourceFile, offset, endOffset, firstLineNumber,
+                recordsRead + records, lines, attempt);
+    }
+}
@@ -0,0 +1,64 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.observability;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Calls {@link #chunkCommitted()} on the writing thread once per chunk, after the
+ * transaction of its write commits, whatever the step mode: every {@link ItemWriter} bean
+ * is proxied, so the chunk step's writer, the table writer the pipelined write threads
+ * call and the spilling writer all report. A writer delegating to another writer bean
+ * reports the chunk once, for the outer write; a write outside any transaction reports
+ * as soon as it returns. A spilled chunk reports when the step commits it to the spill
+ * log, and again on the drainer's thread once it reaches the database.
+ * <p>
+ * Declare subclasses as static beans: post-processors are created before any other bean.
+ */
+public abstract class ChunkCommitHook implements BeanPostProcessor {
+
+    private final ThreadLocal<Boolean> writing = ThreadLocal.withInitial(() -> false);
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof ItemWriter<?>)) {
+            return bean;
+        }
+        var proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            if (!invocation.getMethod().getName().equals("write") || writing.get()) {
+                return invocation.proceed();
+            }
+            writing.set(true);
+            try {
+                Object result = invocation.proceed();
+                afterWrite();
+                return result;
+            } finally {
+                writing.set(false);
+            }
+        });
+        return proxyFactory.getProxy();
+    }
+
+    /**
+     * A chunk committed, called on the thread that wrote it.
+     */
+    protected abstract void chunkCommitted();
+
+    private void afterWrite() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            chunkCommitted();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                chunkCommitted();
+            }
+        });
+    }
+}
@@ -0,0 +1,233 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.observability;
+
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.listener.JobExecutionListener;
+import org.springframework.batch.core.partition.PartitionStep;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.Step;
+import org.springframework.batch.core.step.StepExecution;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of the job executions running in this JVM, built from the in-memory
+ * {@link JobExecution} and the byte offsets of the open readers, never from the job
+ * repository.
+ * <p>
+ * Readers register as a {@link Source} while open, from a step thread, and count towards
+ * that step's job; once closed their bytes stay counted. Files of a multi-file run count
+ * once their worker step opens them. Rates are computed over the snapshots taken in the
+ * last {@code window}, so they only move while someone asks for progress.
+ */
+public class IngestionProgress implements JobExecutionListener {
+
+    private static final int FINISHED_KEPT = 16;
+
+    /**
+     * Input whose consumption is measured in bytes.
+     */
+    public interface Source {
+
+        long bytesRead();
+
+        /**
+         * @return the bytes this source will read in total, or a negative value if unknown
+         */
+        long bytesTotal();
+    }
+
+    private final Duration interval;
+    private final Duration window;
+
+    private final Map<Long, JobProgress> running = new ConcurrentHashMap<>();
+    private final Map<Long, ProgressSnapshot> finished = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ProgressSnapshot> eldest) {
+            return size() > FINISHED_KEPT;
+        }
+    };
+
+    /**
+     * @param interval time between two snapshots pushed to a subscriber
+     * @param window   time covered by the rates
+     */
+    public IngestionProgress(Duration interval, Duration window) {
+        this.interval = interval;
+        this.window = window;
+    }
+
+    public Duration interval() {
+        return interval;
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        running.put(jobExecution.getId(), new JobProgress(jobExecution));
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        JobProgress progress = running.get(jobExecution.getId());
+        if (progress == null) {
+            return;
+        }
+        ProgressSnapshot last = progress.snapshot();
+        synchronized (finished) {
+            finished.put(jobExecution.getId(), last);
+        }
+        running.remove(jobExecution.getId());
+    }
+
+    /**
+     * Called by a reader on open; ignored outside a step of a tracked job.
+     */
+    public void register(Source source) {
+        JobProgress progress = current();
+        if (progress != null) {
+            progress.sources.add(source);
+        }
+    }
+
+    /**
+     * Called by a reader on close, before its position is reset.
+     */
+    public void unregister(Source source) {
+        JobProgress progress = current();
+        if (progress != null && progress.sources.remove(source)) {
+            progress.closedRead.addAndGet(source.bytesRead());
+            progress.closedTotal.addAndGet(Math.max(0, source.bytesTotal()));
+            if (source.bytesTotal() < 0) {
+                progress.unknownTotal = true;
+            }
+        }
+    }
+
+    /**
+     * @return the current progress, the last one of a recently finished execution, or
+     * {@code null} if this JVM does not know the execution
+     */
+    public ProgressSnapshot snapshot(long jobExecutionId) {
+        JobProgress progress = running.get(jobExecutionId);
+        if (progress != null) {
+            return progress.snapshot();
+        }
+        synchronized (finished) {
+            return finished.get(jobExecutionId);
+        }
+    }
+
+    private JobProgress current() {
+        StepContext context = StepSynchronizationManager.getContext();
+        return context == null
+                ? null
+                : running.get(context.getStepExecution().getJobExecutionId());
+    }
+
+    private final class JobProgress {
+
+        private final JobExecution jobExecution;
+        private final long startNanos = System.nanoTime();
+
+        private final Set<Source> sources = ConcurrentHashMap.newKeySet();
+        private final AtomicLong closedRead = new AtomicLong();
+        private final AtomicLong closedTotal = new AtomicLong();
+        private volatile boolean unknownTotal;
+
+        // {nanos, bytes read, read, filtered, skipped} of recent snapshots, oldest first
+        private final ArrayDeque<long[]> samples = new ArrayDeque<>();
+
+        private JobProgress(JobExecution jobExecution) {
+            this.jobExecution = jobExecution;
+        }
+
+        private synchronized ProgressSnapshot snapshot() {
+            long now = System.nanoTime();
+            long read = 0;
+            long written = 0;
+            long filtered = 0;
+            long skipped = 0;
+            for (StepExecution step : jobExecution.getStepExecutions()) {
+                // A partition manager's counts are the sum of its workers'
+                if (PartitionStep.class.getName().equals(
+                        step.getExecutionContext().get(Step.STEP_TYPE_KEY))) {
+                    continue;
+                }
+                read += step.getReadCount();
+                written += step.getWriteCount();
+                filtered += step.getFilterCount();
+                skipped += step.getProcessSkipCount();
+            }
+
+            long bytesRead = closedRead.get();
+            long bytesTotal = closedTotal.get();
+            boolean knownTotal = !unknownTotal;
+            for (Source source : sources) {
+                bytesRead += source.bytesRead();
+                long total = source.bytesTotal();
+                knownTotal &= total >= 0;
+                bytesTotal += Math.max(0, total);
+            }
+            boolean hasBytes = knownTotal && bytesTotal > 0;
+
+            long[] sample = {now, bytesRead, read, filtered, skipped};
+            long[] previous = windowStart(sample);
+            // The first snapshot measures rows from the start of the job but no bytes yet,
+            // since a restarted reader begins at its checkpointed offset
+            long[] base = previous != null ? previous : new long[] {startNanos, bytesRead, 0, 0, 0};
+            double seconds = (now - base[0]) / 1e9;
+            double rowsPerSecond = seconds > 0 ? (read - base[2]) / seconds : 0;
+            Double bytesPerSecond = previous != null && seconds > 0
+                    ? (bytesRead - base[1]) / seconds
+                    : null;
+            long windowReads = read - base[2];
+
+            Long eta = null;
+            if (hasBytes && bytesPerSecond != null && bytesPerSecond > 0) {
+                eta = Math.round(Math.max(0, bytesTotal - bytesRead) / bytesPerSecond);
+            }
+
+            return new ProgressSnapshot(
+                    jobExecution.getId(),
+                    jobExecution.getStatus().name(),
+                    (now - startNanos) / 1_000_000,
+                    hasBytes ? bytesRead : null,
+                    hasBytes ? bytesTotal : null,
+                    hasBytes ? Math.min(100.0, 100.0 * bytesRead / bytesTotal) : null,
+                    read,
+                    written,
+                    filtered,
+                    skipped,
+                    rowsPerSecond,
+                    hasBytes ? bytesPerSecond : null,
+                    eta,
+                    windowReads > 0 ? (double) (filtered - base[3]) / windowReads : 0,
+                    windowReads > 0 ? (double) (skipped - base[4]) / windowReads : 0
+            );
+        }
+
+        /**
+         * Adds {@code sample} and returns the latest earlier one at or before the window
+         * start, or the oldest one kept; {@code null} for the first sample.
+         */
+        private long[] windowStart(long[] sample) {
+            long cutoff = sample[0] - window.toNanos();
+            while (samples.size() > 1) {
+                long[] first = samples.poll();
+                if (samples.peek()[0] > cutoff) {
+                    samples.addFirst(first);
+                    break;
+                }
+            }
+            long[] previous = samples.peek();
+            samples.add(sample);
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.observability;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+
+@Configuration
+public class ProgressConfig {
+
+    @Bean
+    public IngestionProgress ingestionProgress(
+            @Value("${taxi.progress.interval-ms:1000}") long intervalMillis,
+            @Value("${taxi.progress.window-seconds:30}") long windowSeconds
+    ) {
+        return new IngestionProgress(
+                Duration.ofMillis(Math.max(100, intervalMillis)),
+                Duration.ofSeconds(Math.max(1, windowSeconds))
+        );
+    }
+
+    /**
+     * Pushes progress snapshots to the subscribers of {@code /jobs/progress}; sending is
+     * cheap, so one thread serves them all.
+     */
+    @Bean
+    public TaskScheduler progressTaskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("progress-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        return scheduler;
+    }
+}
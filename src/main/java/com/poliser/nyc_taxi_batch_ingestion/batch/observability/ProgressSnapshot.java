@@ -0,0 +1,25 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.observability;
+
+/**
+ * Progress of a job execution as seen in memory. Byte figures, percentage and ETA are
+ * {@code null} when the input size is unknown: the delimited parser, or compressed input
+ * that is not split into frames. Rates cover the moving window.
+ */
+public record ProgressSnapshot(
+        long jobExecutionId,
+        String status,
+        long elapsedMillis,
+        Long bytesRead,
+        Long bytesTotal,
+        Double percent,
+        long readCount,
+        long writeCount,
+        long filterCount,
+        long skipCount,
+        double rowsPerSecond,
+        Double bytesPerSecond,
+        Long etaSeconds,
+        double rejectRate,
+        double skipRate
+) {
+}
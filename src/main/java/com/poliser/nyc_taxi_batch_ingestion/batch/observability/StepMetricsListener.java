@@ -1,60 +1,104 @@
 package com.poliser.nyc_taxi_batch_ingestion.batch.observability;
 
+import com.poliser.nyc_taxi_batch_ingestion.batch.jfr.ChunkTrace;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.ExitStatus;
 
-import org.springframework.batch.core.listener.ChunkListener;
+import org.springframework.batch.core.listener.ItemProcessListener;
+import org.springframework.batch.core.listener.ItemReadListener;
+import org.springframework.batch.core.listener.ItemWriteListener;
 import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.partition.PartitionStep;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.Step;
 import org.springframework.batch.core.step.StepExecution;
 import org.springframework.batch.infrastructure.item.Chunk;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
-public class StepMetricsListener implements StepExecutionListener, ChunkListener<Object, Object> {
+/**
+ * Step and chunk metrics, tagged with the step name (without partition suffix) and phase.
+ * <p>
+ * Meters are registered once per step execution in {@link #beforeStep} and only updated
+ * afterwards, without locks. The {@code batch.step.read/write/skip} counters follow the
+ * step execution's own counts after every chunk write and at the end of the step, so
+ * concurrent updates never make them drift; partition manager steps leave them to their
+ * workers. Chunk-oriented steps also record per chunk, as percentile histograms:
+ * <ul>
+ *     <li>{@code batch.chunk.read}: time spent reading the chunk's items</li>
+ *     <li>{@code batch.chunk.process}: time spent processing them, summed over the
+ *     processing threads</li>
+ *     <li>{@code batch.chunk.write}: time spent in the writer</li>
+ *     <li>{@code batch.chunk.rows}: rows written per commit</li>
+ * </ul>
+ * Chunks are delimited by their write: Spring Batch calls no chunk listener when items
+ * are processed concurrently. While a flight recording takes them, each chunk also emits
+ * the {@link ChunkTrace} events with its line range. Register the listener as a
+ * {@link org.springframework.batch.core.listener.StepListener} so the chunk step builder
+ * picks up the item callbacks.
+ */
+public class StepMetricsListener implements StepExecutionListener, ItemReadListener<Object>,
+        ItemProcessListener<Object, Object>, ItemWriteListener<Object> {
 
     private static final Logger log =
             LoggerFactory.getLogger(StepMetricsListener.class);
 
     private final MeterRegistry meterRegistry;
-    private Timer.Sample timerSample;
+    private final String phase;
 
-    private long startTime;
-    private long lastReadCount;
-    private long lastWriteCount;
-    private long lastProcessSkipCount;
-    private StepExecution currentStepExecution;
+    // One listener serves every concurrent execution of its step, e.g. partitions
+    private final Map<Long, StepMeters> executions = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> itemStart = ThreadLocal.withInitial(() -> new long[3]);
 
     public StepMetricsListener(MeterRegistry meterRegistry) {
+        this(meterRegistry, "ingest");
+    }
+
+    /**
+     * @param phase tag separating the phases of a job, e.g. the load and merge steps of the
+     *              bulk mode
+     */
+    public StepMetricsListener(MeterRegistry meterRegistry, String phase) {
         this.meterRegistry = meterRegistry;
+        this.phase = phase;
     }
 
     @Override
     public void beforeStep(StepExecution stepExecution) {
-        startTime = System.currentTimeMillis();
-        timerSample = Timer.start(meterRegistry);
-        lastReadCount = 0;
-        lastWriteCount = 0;
-        lastProcessSkipCount = 0;
-        currentStepExecution = stepExecution;
-
-        log.info("Step [{}] started", stepExecution.getStepName());
+        executions.put(stepExecution.getId(), new StepMeters(stepExecution));
+        log.info("Step [{}] ({}) started", stepExecution.getStepName(), phase);
     }
 
     @Override
     public ExitStatus afterStep(StepExecution stepExecution) {
+        StepMeters meters = executions.remove(stepExecution.getId());
+        if (meters == null) {
+            return stepExecution.getExitStatus();
+        }
 
-        var duration = Duration.ofMillis(System.currentTimeMillis() - startTime);
-
-        timerSample.stop(
-                Timer.builder("batch.step.duration")
-                        .tag("step", stepExecution.getStepName())
-                        .register(meterRegistry)
-        );
+        long nanos = System.nanoTime() - meters.startNanos;
+        meters.duration.record(nanos, TimeUnit.NANOSECONDS);
+        // A partition manager's counts are the sum of its workers'
+        if (!PartitionStep.class.getName().equals(
+                stepExecution.getExecutionContext().get(Step.STEP_TYPE_KEY))) {
+            meters.updateCounts();
+        }
 
+        var duration = Duration.ofNanos(nanos);
         log.info("""
-                Step [{}] finished
+                Step [{}] ({}) finished
                 Read: {}
                 Written: {}
                 Filtered: {}
@@ -65,6 +109,7 @@ public class StepMetricsListener implements StepExecutionListener, ChunkListener
                 Throughput: {} records/sec
                 """,
                 stepExecution.getStepName(),
+                phase,
                 stepExecution.getReadCount(),
                 stepExecution.getWriteCount(),
                 stepExecution.getFilterCount(),
@@ -79,55 +124,185 @@ public class StepMetricsListener implements StepExecutionListener, ChunkListener
     }
 
     @Override
-    public void beforeChunk(Chunk<Object> chunk) {
-        // No-op
+    public void beforeRead() {
+        StepMeters meters = current();
+        if (meters != null && (meters.trace == null || meters.trace.isFinished())) {
+            meters.trace = ChunkTrace.start(meters.stepExecution);
+        }
+        itemStart.get()[0] = System.nanoTime();
     }
 
     @Override
-    public void afterChunk(Chunk<Object> chunk) {
-        if (currentStepExecution == null) {
-            return;
+    public void afterRead(Object item) {
+        StepMeters meters = current();
+        if (meters != null) {
+            meters.readNanos.add(System.nanoTime() - itemStart.get()[0]);
+            ChunkTrace trace = meters.trace;
+            if (trace != null) {
+                trace.itemRead(lineNumber(item));
+            }
         }
+    }
 
-        long readDelta = currentStepExecution.getReadCount() - lastReadCount;
-        long writeDelta = currentStepExecution.getWriteCount() - lastWriteCount;
-        long skipDelta = currentStepExecution.getProcessSkipCount() - lastProcessSkipCount;
+    @Override
+    public void onReadError(Exception exception) {
+        traceFailure(exception);
+    }
 
-        if (readDelta > 0) {
-            meterRegistry.counter(
-                    "batch.step.read",
-                    "step", currentStepExecution.getStepName()
-            ).increment(readDelta);
+    @Override
+    public void beforeProcess(Object item) {
+        StepMeters meters = current();
+        if (meters != null && meters.trace != null) {
+            meters.trace.processing();
         }
+        itemStart.get()[1] = System.nanoTime();
+    }
 
-        if (writeDelta > 0) {
-            meterRegistry.counter(
-                    "batch.step.write",
-                    "step", currentStepExecution.getStepName()
-            ).increment(writeDelta);
+    @Override
+    public void afterProcess(Object item, Object result) {
+        StepMeters meters = current();
+        if (meters != null) {
+            meters.processNanos.add(System.nanoTime() - itemStart.get()[1]);
         }
+    }
+
+    @Override
+    public void onProcessError(Object item, Exception exception) {
+        traceFailure(exception);
+    }
 
-        if (skipDelta > 0) {
-            meterRegistry.counter(
-                    "batch.step.skip",
-                    "step", currentStepExecution.getStepName()
-            ).increment(skipDelta);
+    @Override
+    public void beforeWrite(Chunk<?> items) {
+        StepMeters meters = current();
+        if (meters != null && meters.trace != null) {
+            meters.trace.writing();
         }
+        itemStart.get()[2] = System.nanoTime();
+    }
 
-        lastReadCount = currentStepExecution.getReadCount();
-        lastWriteCount = currentStepExecution.getWriteCount();
-        lastProcessSkipCount = currentStepExecution.getProcessSkipCount();
+    @Override
+    public void afterWrite(Chunk<?> items) {
+        StepMeters meters = current();
+        if (meters == null) {
+            return;
+        }
+        long processNanos = meters.processNanos.sumThenReset();
+        meters.chunkRead.record(meters.readNanos.sumThenReset(), TimeUnit.NANOSECONDS);
+        meters.chunkProcess.record(processNanos, TimeUnit.NANOSECONDS);
+        meters.chunkWrite.record(System.nanoTime() - itemStart.get()[2], TimeUnit.NANOSECONDS);
+        meters.chunkRows.record(items.size());
+        meters.updateCounts();
+        if (meters.trace != null) {
+            meters.trace.written(items.size(), processNanos);
+        }
     }
 
     @Override
-    public void onChunkError(Exception exception, Chunk<Object> chunk) {
-        // No-op
+    public void onWriteError(Exception exception, Chunk<?> items) {
+        StepMeters meters = current();
+        if (meters != null) {
+            meters.readNanos.reset();
+            meters.processNanos.reset();
+            if (meters.trace != null) {
+                meters.trace.failed(exception);
+            }
+        }
+    }
+
+    private void traceFailure(Exception exception) {
+        StepMeters meters = current();
+        if (meters != null && meters.trace != null) {
+            meters.trace.failed(exception);
+        }
+    }
+
+    private static long lineNumber(Object item) {
+        return switch (item) {
+            case TaxiCsvRow row when row.lineNumber() != null -> row.lineNumber();
+            case TaxiTripRaw trip -> trip.lineNumber();
+            default -> -1;
+        };
+    }
+
+    private StepMeters current() {
+        StepContext context = StepSynchronizationManager.getContext();
+        return context == null ? null : executions.get(context.getStepExecution().getId());
     }
 
     private long calculateThroughput(StepExecution stepExecution, Duration duration) {
         if (duration.isZero()) {
             return 0;
         }
-        return stepExecution.getWriteCount() * 1000 / duration.toMillis();
+        return stepExecution.getWriteCount() * 1000 / Math.max(1, duration.toMillis());
+    }
+
+    private final class StepMeters {
+
+        private final StepExecution stepExecution;
+        private final long startNanos = System.nanoTime();
+
+        private final Timer duration;
+        private final Counter read;
+        private final Counter write;
+        private final Counter skip;
+        private final Timer chunkRead;
+        private final Timer chunkProcess;
+        private final Timer chunkWrite;
+        private final DistributionSummary chunkRows;
+
+        // Counts already added to the counters
+        private final AtomicLong countedReads = new AtomicLong();
+        private final AtomicLong countedWrites = new AtomicLong();
+        private final AtomicLong countedSkips = new AtomicLong();
+
+        // Item times of the chunk in progress
+        private final LongAdder readNanos = new LongAdder();
+        private final LongAdder processNanos = new LongAdder();
+
+        // Events of the chunk in progress, null while no recording takes them
+        private volatile ChunkTrace trace;
+
+        private StepMeters(StepExecution stepExecution) {
+            this.stepExecution = stepExecution;
+
+            String stepName = stepExecution.getStepName();
+            int partitionSuffix = stepName.indexOf(':');
+            String step = partitionSuffix < 0 ? stepName : stepName.substring(0, partitionSuffix);
+
+            duration = Timer.builder("batch.step.duration")
+                    .tag("step", step).tag("phase", phase)
+                    .register(meterRegistry);
+            read = meterRegistry.counter("batch.step.read", "step", step, "phase", phase);
+            write = meterRegistry.counter("batch.step.write", "step", step, "phase", phase);
+            skip = meterRegistry.counter("batch.step.skip", "step", step, "phase", phase);
+            chunkRead = chunkTimer("batch.chunk.read", step);
+            chunkProcess = chunkTimer("batch.chunk.process", step);
+            chunkWrite = chunkTimer("batch.chunk.write", step);
+            chunkRows = DistributionSummary.builder("batch.chunk.rows")
+                    .tag("step", step).tag("phase", phase)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        private Timer chunkTimer(String name, String step) {
+            return Timer.builder(name)
+                    .tag("step", step).tag("phase", phase)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        private void updateCounts() {
+            advance(read, countedReads, stepExecution.getReadCount());
+            advance(write, countedWrites, stepExecution.getWriteCount());
+            advance(skip, countedSkips, stepExecution.getProcessSkipCount());
+        }
+
+        // Monotonic: of two racing updates only the higher count adds the difference
+        private static void advance(Counter counter, AtomicLong counted, long count) {
+            long previous = counted.getAndAccumulate(count, Math::max);
+            if (count > previous) {
+                counter.increment(count - previous);
+            }
+        }
     }
 }
@@ -0,0 +1,174 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.partition;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.reader.AbstractCsvByteItemReader;
+import com.poliser.nyc_taxi_batch_ingestion.batch.reader.CompressedFileResource;
+import com.poliser.nyc_taxi_batch_ingestion.batch.reader.MappedRegionInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.Partitioner;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemStreamException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the CSV into newline-aligned byte ranges, one per worker step.
+ * <p>
+ * Every range is pre-scanned (in parallel) to count the records it holds, so each worker
+ * knows the line number of its first record and numbers rows exactly like a sequential
+ * read of the whole file would. Ranges are aligned on line ends, and lines are counted,
+ * the way {@link AbstractCsvByteItemReader#isLineEnd} splits them ({@code \n}, {@code \r},
+ * {@code \r\n}).
+ */
+public class ByteRangePartitioner implements Partitioner {
+
+    public static final String START_OFFSET = "startOffset";
+    public static final String END_OFFSET = "endOffset";
+    public static final String FIRST_LINE_NUMBER = "firstLineNumber";
+    public static final String FIRST_PHYSICAL_LINE = "firstPhysicalLine";
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ByteRangePartitioner.class);
+
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+
+    private final Path file;
+    private final int linesToSkip;
+
+    public ByteRangePartitioner(Path file, int linesToSkip) {
+        this.file = file;
+        this.linesToSkip = linesToSkip;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        if (CompressedFileResource.isCompressed(file.toString())) {
+            throw new IllegalStateException("Byte-range partitions need an uncompressed file, got ["
+                    + file + "]; use another step mode for compressed input");
+        }
+        try {
+            long size = Files.size(file);
+            long dataStart = skipLines(linesToSkip, size);
+            long[] bounds = boundaries(dataStart, size, Math.max(gridSize, 1));
+
+            RangeCount[] counts = IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .mapToObj(i -> count(bounds[i], bounds[i + 1]))
+                    .toArray(RangeCount[]::new);
+
+            Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+            long lineNumber = 1;
+            long physicalLine = linesToSkip + 1L;
+
+            for (int i = 0; i < counts.length; i++) {
+                var context = new ExecutionContext();
+                context.putLong(START_OFFSET, bounds[i]);
+                context.putLong(END_OFFSET, bounds[i + 1]);
+                context.putLong(FIRST_LINE_NUMBER, lineNumber);
+                context.putLong(FIRST_PHYSICAL_LINE, physicalLine);
+                partitions.put("partition" + i, context);
+
+                lineNumber += counts[i].records();
+                physicalLine += counts[i].lines();
+            }
+
+            log.info("Split [{}] ({} bytes) into {} byte ranges", file, size, partitions.size());
+            return partitions;
+
+        } catch (IOException | UncheckedIOException e) {
+            throw new ItemStreamException("Unable to partition input file [" + file + "]", e);
+        }
+    }
+
+    private long skipLines(int lines, long size) throws IOException {
+        long offset = 0;
+        for (int i = 0; i < lines && offset < size; i++) {
+            offset = nextLineStart(offset, size);
+        }
+        return offset;
+    }
+
+    private long[] boundaries(long dataStart, long size, int gridSize) throws IOException {
+        long[] bounds = new long[gridSize + 1];
+        int count = 0;
+        bounds[count++] = dataStart;
+
+        long rangeSize = (size - dataStart) / gridSize;
+        for (int i = 1; i < gridSize && rangeSize > 0; i++) {
+            long boundary = nextLineStart(dataStart + i * rangeSize - 1, size);
+            if (boundary > bounds[count - 1] && boundary < size) {
+                bounds[count++] = boundary;
+            }
+        }
+
+        if (size > bounds[count - 1]) {
+            bounds[count++] = size;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Returns the offset right after the first line end at or after {@code from}.
+     */
+    private long nextLineStart(long from, long size) throws IOException {
+        try (InputStream in = new MappedRegionInputStream(file, from, size)) {
+            byte[] buf = new byte[8192];
+            long offset = from;
+            boolean afterCarriageReturn = false;
+            int read;
+            while ((read = in.read(buf, 0, buf.length)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buf[i];
+                    if (afterCarriageReturn) {
+                        return offset + i + (b == '\n' ? 1 : 0);
+                    }
+                    if (AbstractCsvByteItemReader.isLineEnd(b)) {
+                        if (b == '\n') {
+                            return offset + i + 1;
+                        }
+                        afterCarriageReturn = true;
+                    }
+                }
+                offset += read;
+            }
+            return size;
+        }
+    }
+
+    private RangeCount count(long start, long end) {
+        long lines = 0;
+        long records = 0;
+        byte previous = '\n';
+
+        try (InputStream in = new MappedRegionInputStream(file, start, end)) {
+            byte[] buf = new byte[SCAN_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buf, 0, buf.length)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buf[i];
+                    if (AbstractCsvByteItemReader.isLineEnd(previous)
+                            && !(previous == '\r' && b == '\n')) {
+                        lines++;
+                        if (b != '#') {
+                            records++;
+                        }
+                    }
+                    previous = b;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new RangeCount(lines, records);
+    }
+
+    private record RangeCount(long lines, long records) {}
+}
@@ -0,0 +1,64 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.partition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+
+/**
+ * Cheap identity of a source file's content: its size, its modification time and a SHA-256
+ * over three fixed-size samples (start, middle, end), so a file of any size is
+ * fingerprinted with at most {@value #SAMPLE_SIZE} * 3 bytes read. The file is identified
+ * by its absolute, normalized path, however it was given.
+ */
+public record FileFingerprint(String sourceFile, long size, Instant modifiedAt, String sampleHash) {
+
+    static final int SAMPLE_SIZE = 64 * 1024;
+
+    public static FileFingerprint of(Path file) throws IOException {
+        long size = Files.size(file);
+        // The database keeps microseconds
+        Instant modifiedAt = Files.getLastModifiedTime(file).toInstant().truncatedTo(ChronoUnit.MICROS);
+
+        MessageDigest digest = sha256();
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(0, size));
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer sample = ByteBuffer.allocate(SAMPLE_SIZE);
+            for (long offset : new long[] {0, size / 2 - SAMPLE_SIZE / 2, size - SAMPLE_SIZE}) {
+                sample.clear();
+                long position = Math.max(0, offset);
+                int read;
+                while (sample.hasRemaining() && (read = channel.read(sample, position)) > 0) {
+                    position += read;
+                }
+                digest.update(sample.flip());
+            }
+        }
+        return new FileFingerprint(file.toAbsolutePath().normalize().toString(), size, modifiedAt,
+                HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Whether both fingerprints describe the same content.
+     */
+    public boolean matches(FileFingerprint other) {
+        return other != null
+                && size == other.size
+                && modifiedAt.equals(other.modifiedAt)
+                && sampleHash.equals(other.sampleHash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepExecution;
+
+import java.time.Instant;
+
+/**
+ * Records the fingerprint of a file once its worker step has read it to the end, so the
+ * next run over the same glob skips it.
+ */
+public class FileFingerprintListener implements StepExecutionListener {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(FileFingerprintListener.class);
+
+    private final FileFingerprintStore fingerprintStore;
+
+    public FileFingerprintListener(FileFingerprintStore fingerprintStore) {
+        this.fingerprintStore = fingerprintStore;
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        var context = stepExecution.getExecutionContext();
+        if (stepExecution.getStatus() != BatchStatus.COMPLETED
+                || !context.containsKey(SourceFilePartitioner.SOURCE_FILE)) {
+            return stepExecution.getExitStatus();
+        }
+
+        var fingerprint = new FileFingerprint(
+                context.getString(SourceFilePartitioner.SOURCE_FILE),
+                context.getLong(SourceFilePartitioner.FILE_SIZE),
+                Instant.parse(context.getString(SourceFilePartitioner.FILE_MODIFIED_AT)),
+                context.getString(SourceFilePartitioner.FILE_SAMPLE_HASH));
+        fingerprintStore.record(fingerprint, stepExecution.getReadCount());
+        log.info("Recorded [{}] as ingested ({} rows read)",
+                fingerprint.sourceFile(), stepExecution.getReadCount());
+        return stepExecution.getExitStatus();
+    }
+}
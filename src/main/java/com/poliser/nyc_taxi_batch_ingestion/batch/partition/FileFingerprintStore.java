@@ -0,0 +1,75 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.partition;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fingerprints of the source files that were fully ingested, in
+ * {@code ingestion.source_file_fingerprint}. A file is recorded only once its step
+ * completes, so a stored fingerprint means "nothing left to load".
+ */
+public class FileFingerprintStore {
+
+    private static final String SELECT_FINGERPRINTS = """
+            SELECT source_file, size_bytes, modified_at, sample_hash
+            FROM ingestion.source_file_fingerprint
+            WHERE source_file = ANY (?)
+            """;
+
+    private static final String UPSERT_FINGERPRINT = """
+            INSERT INTO ingestion.source_file_fingerprint
+                (source_file, size_bytes, modified_at, sample_hash, rows_read, ingested_at)
+            VALUES (?, ?, ?, ?, ?, now())
+            ON CONFLICT (source_file) DO UPDATE SET
+                size_bytes = EXCLUDED.size_bytes,
+                modified_at = EXCLUDED.modified_at,
+                sample_hash = EXCLUDED.sample_hash,
+                rows_read = EXCLUDED.rows_read,
+                ingested_at = EXCLUDED.ingested_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FileFingerprintStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Recorded fingerprints of the given files, by source file; one query for all of them.
+     */
+    public Map<String, FileFingerprint> find(Collection<String> sourceFiles) {
+        Map<String, FileFingerprint> fingerprints = new HashMap<>();
+        if (sourceFiles.isEmpty()) {
+            return fingerprints;
+        }
+        jdbcTemplate.query(
+                con -> {
+                    var ps = con.prepareStatement(SELECT_FINGERPRINTS);
+                    ps.setArray(1, con.createArrayOf("varchar", sourceFiles.toArray()));
+                    return ps;
+                },
+                rs -> {
+                    var fingerprint = new FileFingerprint(
+                            rs.getString(1),
+                            rs.getLong(2),
+                            rs.getTimestamp(3).toInstant(),
+                            rs.getString(4));
+                    fingerprints.put(fingerprint.sourceFile(), fingerprint);
+                });
+        return fingerprints;
+    }
+
+    public void record(FileFingerprint fingerprint, long rowsRead) {
+        jdbcTemplate.update(UPSERT_FINGERPRINT,
+                fingerprint.sourceFile(),
+                fingerprint.size(),
+                Timestamp.from(fingerprint.modifiedAt()),
+                fingerprint.sampleHash(),
+                rowsRead);
+    }
+}
@@ -0,0 +1,22 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.partition;
+
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+import org.springframework.batch.core.step.StepExecution;
+
+/**
+ * Routes a job execution launched with a {@code source} parameter (a directory or a glob)
+ * to the multi-file flow; anything else reads the configured source file.
+ */
+public class SourceFileDecider implements JobExecutionDecider {
+
+    public static final String FILES = "FILES";
+    public static final String SINGLE = "SINGLE";
+
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+        String source = jobExecution.getJobParameters().getString(SourceFilePartitioner.SOURCE_PARAMETER);
+        return new FlowExecutionStatus(source == null || source.isBlank() ? SINGLE : FILES);
+    }
+}
@@ -0,0 +1,148 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.Partitioner;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemStreamException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * One partition per source file matched by a directory, a glob or a single path.
+ * <p>
+ * A directory matches its {@code .csv}, {@code .csv.gz} and {@code .csv.zst} files; a glob
+ * ({@code data/2019/yellow_*.csv}, {@code data/**}{@code /*.csv.gz}) matches paths below its
+ * first wildcard-free directory. Files whose {@link FileFingerprint} was recorded by a
+ * completed run are skipped without touching the trip table. Partition names derive from
+ * the path, so a restart finds the same partitions.
+ */
+public class SourceFilePartitioner implements Partitioner {
+
+    public static final String SOURCE_PARAMETER = "source";
+
+    public static final String SOURCE_FILE = "sourceFile";
+    static final String FILE_SIZE = "source.size";
+    static final String FILE_MODIFIED_AT = "source.modifiedAt";
+    static final String FILE_SAMPLE_HASH = "source.sampleHash";
+
+    private static final Logger log =
+            LoggerFactory.getLogger(SourceFilePartitioner.class);
+
+    private static final String DIRECTORY_GLOB = "*.{csv,csv.gz,csv.zst}";
+
+    private final String source;
+    private final FileFingerprintStore fingerprintStore;
+
+    public SourceFilePartitioner(String source, FileFingerprintStore fingerprintStore) {
+        this.source = source;
+        this.fingerprintStore = fingerprintStore;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        try {
+            List<Path> files = match(source);
+            List<FileFingerprint> fingerprints = new ArrayList<>(files.size());
+            for (Path file : files) {
+                fingerprints.add(FileFingerprint.of(file));
+            }
+
+            Map<String, FileFingerprint> ingested = fingerprintStore.find(
+                    fingerprints.stream().map(FileFingerprint::sourceFile).toList());
+
+            Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+            for (FileFingerprint fingerprint : fingerprints) {
+                if (fingerprint.matches(ingested.get(fingerprint.sourceFile()))) {
+                    log.info("Skipping [{}]: already ingested with the same fingerprint",
+                            fingerprint.sourceFile());
+                    continue;
+                }
+
+                var context = new ExecutionContext();
+                context.putString(SOURCE_FILE, fingerprint.sourceFile());
+                context.putLong(FILE_SIZE, fingerprint.size());
+                context.putString(FILE_MODIFIED_AT, fingerprint.modifiedAt().toString());
+                context.putString(FILE_SAMPLE_HASH, fingerprint.sampleHash());
+                partitions.put(partitionName(fingerprint.sourceFile()), context);
+            }
+
+            log.info("Matched {} files for [{}], {} to ingest",
+                    files.size(), source, partitions.size());
+            return partitions;
+
+        } catch (IOException | UncheckedIOException e) {
+            throw new ItemStreamException("Unable to list source files [" + source + "]", e);
+        }
+    }
+
+    /**
+     * Regular files matched by {@code source} as absolute, normalized paths, sorted, so a
+     * relative and an absolute {@code source} name every file the same way.
+     */
+    public static List<Path> match(String source) throws IOException {
+        Path path = Path.of(source);
+        if (Files.isRegularFile(path)) {
+            return List.of(path.toAbsolutePath().normalize());
+        }
+
+        Path root = path;
+        String glob = DIRECTORY_GLOB;
+        int depth = 1;
+        if (!Files.isDirectory(path)) {
+            int segments = 0;
+            while (segments < path.getNameCount() && !isGlob(path.getName(segments).toString())) {
+                segments++;
+            }
+            if (segments == path.getNameCount()) {
+                throw new IOException("No such file or directory: " + path);
+            }
+            root = segments == 0 ? Path.of(".") : path.subpath(0, segments);
+            if (path.isAbsolute()) {
+                root = path.getRoot().resolve(root);
+            }
+            glob = path.subpath(segments, path.getNameCount()).toString();
+            depth = glob.contains("**") ? Integer.MAX_VALUE : path.getNameCount() - segments;
+        }
+
+        Path walkRoot = root;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        try (Stream<Path> paths = Files.walk(walkRoot, depth)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(walkRoot.relativize(file)))
+                    .map(file -> file.toAbsolutePath().normalize())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * The name rows of {@code sourceFile} are stamped with and keyed by: its absolute,
+     * normalized path, the way {@link #match} names it.
+     */
+    public static String normalize(String sourceFile) {
+        return Path.of(sourceFile).toAbsolutePath().normalize().toString();
+    }
+
+    private static boolean isGlob(String segment) {
+        return segment.chars().anyMatch(c -> c == '*' || c == '?' || c == '[' || c == '{');
+    }
+
+    private static String partitionName(String sourceFile) {
+        // Step names are limited to 100 characters
+        String fileName = Path.of(sourceFile).getFileName().toString();
+        return "file-" + Integer.toHexString(sourceFile.hashCode()) + "-"
+                + fileName.substring(Math.max(0, fileName.length() - 60));
+    }
+}
@@ -0,0 +1,167 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.pipeline;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMD controller for the chunk size and the number of active writers of the pipelined
+ * mode, fed by every commit and rollback.
+ * <ul>
+ *     <li>A commit within the target latency grows the chunk by {@code minChunkSize}; a
+ *     slower commit halves it, and so does a rollback.</li>
+ *     <li>Every {@code window} commits the rows/sec of the window is compared with the
+ *     previous one: a gain of more than 5% adds a writer, a loss of more than 5% after
+ *     the last addition removes it again. A rollback halves the writers.</li>
+ * </ul>
+ * An enabled controller starts with {@code minWriters}; a disabled one keeps the initial
+ * values.
+ */
+public class AdaptiveChunkController implements MeterBinder {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(AdaptiveChunkController.class);
+
+    private static final double SIGNIFICANT_CHANGE = 0.05;
+
+    private final String stepName;
+    private final boolean enabled;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final int minWriters;
+    private final int maxWriters;
+    private final long targetCommitNanos;
+    private final int window;
+
+    private volatile int chunkSize;
+    private volatile int writers;
+
+    // guarded by this
+    private int windowCommits;
+    private long windowRows;
+    private long windowStart;
+    private double lastRate;
+    private boolean lastChangeAddedWriter;
+
+    public AdaptiveChunkController(
+            String stepName,
+            boolean enabled,
+            int chunkSize,
+            int minChunkSize,
+            int maxChunkSize,
+            int writers,
+            int minWriters,
+            long targetCommitMillis,
+            int window
+    ) {
+        this.stepName = stepName;
+        this.enabled = enabled;
+        this.minChunkSize = Math.max(1, Math.min(minChunkSize, chunkSize));
+        this.maxChunkSize = Math.max(maxChunkSize, chunkSize);
+        this.minWriters = Math.max(1, Math.min(minWriters, writers));
+        this.maxWriters = writers;
+        this.targetCommitNanos = TimeUnit.MILLISECONDS.toNanos(targetCommitMillis);
+        this.window = Math.max(1, window);
+        this.chunkSize = chunkSize;
+        this.writers = enabled ? this.minWriters : writers;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Number of write threads allowed to take chunks.
+     */
+    public int writers() {
+        return writers;
+    }
+
+    /**
+     * Blocks until write thread {@code index}, counted from 0, is among the
+     * {@link #writers()} allowed to take chunks.
+     */
+    public synchronized void awaitWriter(int index) throws InterruptedException {
+        while (index >= writers) {
+            wait();
+        }
+    }
+
+    public synchronized void reset() {
+        if (enabled) {
+            writers = minWriters;
+            notifyAll();
+        }
+        windowCommits = 0;
+        windowRows = 0;
+        windowStart = System.nanoTime();
+        lastRate = 0;
+        lastChangeAddedWriter = false;
+    }
+
+    public synchronized void recordCommit(int rows, long commitNanos) {
+        if (!enabled) {
+            return;
+        }
+
+        if (commitNanos > targetCommitNanos) {
+            chunkSize = Math.max(minChunkSize, chunkSize / 2);
+        } else {
+            chunkSize = Math.min(maxChunkSize, chunkSize + minChunkSize);
+        }
+
+        windowRows += rows;
+        if (++windowCommits < window) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        double rate = windowRows * 1e9 / Math.max(1, now - windowStart);
+        if (lastRate > 0) {
+            if (rate > lastRate * (1 + SIGNIFICANT_CHANGE) && writers < maxWriters) {
+                writers++;
+                lastChangeAddedWriter = true;
+                notifyAll();
+            } else if (rate < lastRate * (1 - SIGNIFICANT_CHANGE)
+                    && lastChangeAddedWriter && writers > minWriters) {
+                writers--;
+                lastChangeAddedWriter = false;
+            }
+        } else if (writers < maxWriters) {
+            writers++;
+            lastChangeAddedWriter = true;
+            notifyAll();
+        }
+        log.debug("Window of {} commits: {} rows/s, chunk size {}, writers {}",
+                windowCommits, Math.round(rate), chunkSize, writers);
+
+        lastRate = rate;
+        windowCommits = 0;
+        windowRows = 0;
+        windowStart = now;
+    }
+
+    public synchronized void recordRollback() {
+        if (!enabled) {
+            return;
+        }
+        chunkSize = Math.max(minChunkSize, chunkSize / 2);
+        writers = Math.max(minWriters, writers / 2);
+        lastChangeAddedWriter = false;
+        log.info("Rollback: chunk size lowered to {}, writers to {}", chunkSize, writers);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("batch.step.chunk.size", this, AdaptiveChunkController::chunkSize)
+                .tag("step", stepName)
+                .register(registry);
+        Gauge.builder("batch.step.writers", this, AdaptiveChunkController::writers)
+                .tag("step", stepName)
+                .register(registry);
+    }
+}
@@ -0,0 +1,31 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.pipeline;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chunk travelling through the pipeline, with the reader state right after its last
+ * item so the chunk can become the restart point once it is committed.
+ */
+final class PipelineChunk<I, O> {
+
+    final long sequence;
+    final int readCount;
+    final ExecutionContext checkpoint;
+
+    List<I> items;
+    final Chunk<O> output = new Chunk<>();
+    final List<TaxiTripReject> rejects = new ArrayList<>();
+    int filterCount;
+
+    PipelineChunk(long sequence, List<I> items, ExecutionContext checkpoint) {
+        this.sequence = sequence;
+        this.items = items;
+        this.readCount = items.size();
+        this.checkpoint = checkpoint;
+    }
+}
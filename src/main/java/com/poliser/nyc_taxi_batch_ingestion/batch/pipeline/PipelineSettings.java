@@ -0,0 +1,14 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.pipeline;
+
+/**
+ * @param chunkSize      items per chunk and per write transaction
+ * @param bufferSize     chunks each ring buffer holds before the stage feeding it blocks
+ * @param processThreads threads of the process stage
+ * @param writeThreads   threads of the write stage, each with its own connection
+ */
+public record PipelineSettings(
+        int chunkSize,
+        int bufferSize,
+        int processThreads,
+        int writeThreads
+) {}
@@ -0,0 +1,454 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.pipeline;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.StepContribution;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.batch.infrastructure.item.ItemStream;
+import org.springframework.batch.infrastructure.item.ItemStreamReader;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.batch.infrastructure.item.WriteFailedException;
+import org.springframework.batch.infrastructure.repeat.RepeatStatus;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs read/parse, process and write as separate stages connected by
+ * {@link BoundedRingBuffer}s, so parsing of the next chunks overlaps with the commit of the
+ * current one. The reader stage is single-threaded; process and write stages have their
+ * own thread counts, and each write thread commits its chunks in its own transaction.
+ * <p>
+ * Chunks may commit out of order. Each tasklet iteration applies the counters of the
+ * chunks committed contiguously from the start and moves the checkpoint (the reader state
+ * after the last of them) forward, so a restart resumes at that watermark and re-writes at
+ * most the chunks committed beyond it, which the de-duplicating writers absorb.
+ * <p>
+ * The {@link AdaptiveChunkController} sets the size of each chunk as it is read and how
+ * many of the write threads take chunks; the others wait on it until it lets them in. A
+ * chunk whose transaction fails with a transient error is rolled back, reported to the
+ * controller and retried.
+ * <p>
+ * The rows rejected while a chunk is read and processed are written with it, in its
+ * transaction, so the writer must write the table only and not drain the
+ * {@link RejectBuffer} itself.
+ * <p>
+ * Must be registered as a step stream. The step thread only moves the checkpoint and
+ * waits for commits, so register the tasklet with a transaction manager that holds no
+ * connection, e.g. a {@code ResourcelessTransactionManager}.
+ */
+public class PipelinedChunkTasklet<I, O> implements Tasklet, ItemStream {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(PipelinedChunkTasklet.class);
+
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final ItemStreamReader<I> reader;
+    private final ItemProcessor<I, O> processor;
+    private final ItemWriter<O> writer;
+    private final RejectBuffer rejectBuffer;
+    private final TaxiTripRejectWriter rejectWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncTaskExecutor taskExecutor;
+    private final PipelineSettings settings;
+    private final AdaptiveChunkController controller;
+
+    private final BoundedRingBuffer<PipelineChunk<I, O>> parsed;
+    private final BoundedRingBuffer<PipelineChunk<I, O>> processed;
+    private final BoundedRingBuffer<PipelineChunk<I, O>> committed;
+
+    private final PipelineChunk<I, O> endOfInput = new PipelineChunk<>(-1, List.of(), null);
+    private final PipelineChunk<I, O> wakeUp = new PipelineChunk<>(-1, List.of(), null);
+
+    private final Stage readStage;
+    private final Stage processStage;
+    private final Stage writeStage;
+
+    private final Set<Thread> stageThreads = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+    private boolean started;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicInteger runningProcessors = new AtomicInteger();
+    private CountDownLatch stopped = new CountDownLatch(0);
+    private volatile long chunkCount;
+
+    // step thread only
+    private final Map<Long, PipelineChunk<I, O>> pending = new HashMap<>();
+    private long nextSequence;
+    private ExecutionContext watermark;
+
+    public PipelinedChunkTasklet(
+            ItemStreamReader<I> reader,
+            ItemProcessor<I, O> processor,
+            ItemWriter<O> writer,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            PlatformTransactionManager transactionManager,
+            AsyncTaskExecutor taskExecutor,
+            PipelineSettings settings,
+            AdaptiveChunkController controller,
+            MeterRegistry meterRegistry
+    ) {
+        this.reader = reader;
+        this.processor = processor;
+        this.writer = writer;
+        this.rejectBuffer = rejectBuffer;
+        this.rejectWriter = rejectWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.settings = settings;
+        this.controller = controller;
+
+        this.parsed = new BoundedRingBuffer<>(settings.bufferSize());
+        this.processed = new BoundedRingBuffer<>(settings.bufferSize());
+        // room for every chunk in flight plus the wake-ups
+        this.committed = new BoundedRingBuffer<>(
+                2 * settings.bufferSize() + settings.processThreads() + settings.writeThreads() + 2);
+
+        this.readStage = new Stage("read", 1);
+        this.processStage = new Stage("process", settings.processThreads());
+        this.writeStage = new Stage("write", settings.writeThreads());
+
+        registerQueue(meterRegistry, "parsed", parsed);
+        registerQueue(meterRegistry, "processed", processed);
+        for (Stage stage : List.of(readStage, processStage, writeStage)) {
+            Gauge.builder("batch.pipeline.stage.utilization", stage, Stage::utilization)
+                    .tag("stage", stage.name)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        reader.open(executionContext);
+
+        failure.set(null);
+        chunkCount = -1;
+        nextSequence = 0;
+        pending.clear();
+        watermark = null;
+        drain(parsed);
+        drain(processed);
+        drain(committed);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        if (watermark == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : watermark.entrySet()) {
+            executionContext.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void close() {
+        stopWorkers();
+        reader.close();
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext)
+            throws Exception {
+
+        if (!started) {
+            startWorkers();
+        }
+
+        boolean advanced = false;
+        while (true) {
+            PipelineChunk<I, O> done;
+            while ((done = committed.poll()) != null) {
+                accept(done);
+            }
+
+            PipelineChunk<I, O> next;
+            while ((next = pending.remove(nextSequence)) != null) {
+                for (int i = 0; i < next.readCount; i++) {
+                    contribution.incrementReadCount();
+                }
+                contribution.incrementFilterCount(next.filterCount);
+                contribution.incrementWriteCount(next.output.size());
+                watermark = next.checkpoint;
+                nextSequence++;
+                advanced = true;
+            }
+
+            if (advanced) {
+                return RepeatStatus.CONTINUABLE;
+            }
+            if (nextSequence == chunkCount) {
+                return RepeatStatus.FINISHED;
+            }
+            accept(committed.take());
+        }
+    }
+
+    private void accept(PipelineChunk<I, O> chunk) throws Exception {
+        if (chunk == wakeUp) {
+            Throwable error = failure.get();
+            if (error instanceof Exception ex) {
+                throw ex;
+            }
+            if (error != null) {
+                throw (Error) error;
+            }
+            return;
+        }
+        pending.put(chunk.sequence, chunk);
+    }
+
+    private void startWorkers() {
+        int processThreads = settings.processThreads();
+        int writeThreads = settings.writeThreads();
+
+        started = true;
+        stopping = false;
+        stopped = new CountDownLatch(1 + processThreads + writeThreads);
+        runningProcessors.set(processThreads);
+        readStage.reset();
+        processStage.reset();
+        writeStage.reset();
+        controller.reset();
+
+        submit(this::readLoop);
+        for (int i = 0; i < processThreads; i++) {
+            submit(this::processLoop);
+        }
+        for (int i = 0; i < writeThreads; i++) {
+            int index = i;
+            submit(() -> writeLoop(index));
+        }
+        log.info("Pipeline started: chunk size {}, buffer {} chunks, {} process and {} write threads",
+                controller.chunkSize(), parsed.capacity(), processThreads, writeThreads);
+    }
+
+    private void readLoop() throws Exception {
+        long sequence = 0;
+        boolean exhausted = false;
+
+        while (!exhausted) {
+            long start = System.nanoTime();
+            int chunkSize = controller.chunkSize();
+            List<I> items = new ArrayList<>(chunkSize);
+            while (items.size() < chunkSize) {
+                I item = reader.read();
+                if (item == null) {
+                    exhausted = true;
+                    break;
+                }
+                items.add(item);
+            }
+            ExecutionContext checkpoint = new ExecutionContext();
+            reader.update(checkpoint);
+            readStage.busySince(start);
+
+            if (!items.isEmpty()) {
+                parsed.put(new PipelineChunk<>(sequence++, items, checkpoint));
+            }
+        }
+
+        chunkCount = sequence;
+        parsed.put(endOfInput);
+        committed.put(wakeUp);
+    }
+
+    private void processLoop() throws Exception {
+        while (true) {
+            PipelineChunk<I, O> chunk = parsed.take();
+            if (chunk == endOfInput) {
+                parsed.put(endOfInput);
+                if (runningProcessors.decrementAndGet() == 0) {
+                    processed.put(endOfInput);
+                }
+                return;
+            }
+
+            long start = System.nanoTime();
+            rejectBuffer.capture(chunk.rejects);
+            try {
+                for (I item : chunk.items) {
+                    O output = processor.process(item);
+                    if (output == null) {
+                        chunk.filterCount++;
+                    } else {
+                        chunk.output.add(output);
+                    }
+                }
+            } finally {
+                rejectBuffer.release();
+            }
+            chunk.items = null;
+            processStage.busySince(start);
+
+            processed.put(chunk);
+        }
+    }
+
+    private void writeLoop(int index) throws Exception {
+        while (true) {
+            controller.awaitWriter(index);
+
+            PipelineChunk<I, O> chunk = processed.take();
+            if (chunk == endOfInput) {
+                processed.put(endOfInput);
+                return;
+            }
+
+            long start = System.nanoTime();
+            for (int attempt = 1; ; attempt++) {
+                long attemptStart = System.nanoTime();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(chunk));
+                    controller.recordCommit(chunk.output.size(), System.nanoTime() - attemptStart);
+                    break;
+                } catch (TransientDataAccessException ex) {
+                    controller.recordRollback();
+                    if (attempt == MAX_WRITE_ATTEMPTS) {
+                        throw ex;
+                    }
+                    log.warn("Chunk {} rolled back (attempt {} of {}), retrying: {}",
+                            chunk.sequence, attempt, MAX_WRITE_ATTEMPTS, ex.getMessage());
+                }
+            }
+            writeStage.busySince(start);
+
+            committed.put(chunk);
+        }
+    }
+
+    private void write(PipelineChunk<I, O> chunk) {
+        rejectWriter.write(chunk.rejects);
+        try {
+            writer.write(chunk.output);
+        } catch (Exception ex) {
+            throw ex instanceof RuntimeException runtime
+                    ? runtime
+                    : new WriteFailedException("Could not write chunk " + chunk.sequence, ex);
+        }
+    }
+
+    private void submit(StageLoop loop) {
+        CountDownLatch latch = stopped;
+        taskExecutor.execute(() -> {
+            Thread thread = Thread.currentThread();
+            stageThreads.add(thread);
+            try {
+                if (!stopping) {
+                    loop.run();
+                }
+            } catch (InterruptedException ex) {
+                // stopped
+            } catch (Throwable ex) {
+                fail(ex);
+            } finally {
+                stageThreads.remove(thread);
+                Thread.interrupted();
+                latch.countDown();
+            }
+        });
+    }
+
+    private void fail(Throwable ex) {
+        if (!failure.compareAndSet(null, ex)) {
+            return;
+        }
+        log.error("Pipeline stage failed, stopping the pipeline", ex);
+        try {
+            committed.put(wakeUp);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stopWorkers() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        stopping = true;
+        stageThreads.forEach(Thread::interrupt);
+        try {
+            if (!stopped.await(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Pipeline stages still running after {} s", STOP_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void drain(BoundedRingBuffer<?> buffer) {
+        while (buffer.poll() != null) {
+            // discard leftovers of a failed run
+        }
+    }
+
+    private static void registerQueue(MeterRegistry meterRegistry, String name,
+                                      BoundedRingBuffer<?> buffer) {
+        Gauge.builder("batch.pipeline.queue.depth", buffer, BoundedRingBuffer::size)
+                .tag("queue", name)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface StageLoop {
+        void run() throws Exception;
+    }
+
+    /**
+     * Busy time of a stage, reported as the share of its threads' wall time spent working
+     * rather than waiting on a buffer.
+     */
+    private static final class Stage {
+
+        private final String name;
+        private final int threads;
+        private final AtomicLong busyNanos = new AtomicLong();
+        private volatile long startedAt;
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        void reset() {
+            busyNanos.set(0);
+            startedAt = System.nanoTime();
+        }
+
+        void busySince(long start) {
+            busyNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        double utilization() {
+            long elapsed = System.nanoTime() - startedAt;
+            if (startedAt == 0 || elapsed <= 0) {
+                return 0;
+            }
+            return (double) busyNanos.get() / elapsed / threads;
+        }
+    }
+}
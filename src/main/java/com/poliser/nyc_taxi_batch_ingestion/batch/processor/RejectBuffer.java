@@ -0,0 +1,66 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.processor;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.jfr.RowRejectEvent;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hands rejected rows from the processors to the writer of the same chunk.
+ * <p>
+ * Rejects are grouped by the step execution registered on the calling thread, so
+ * concurrent partitions never drain each other's rows. Spring Batch finishes processing a
+ * chunk before writing it, so a drain in the writer sees exactly that chunk's rejects.
+ */
+@Component
+public class RejectBuffer {
+
+    private static final long NO_STEP = -1L;
+
+    private final Map<Long, Queue<TaxiTripReject>> rejects = new ConcurrentHashMap<>();
+    private final ThreadLocal<List<TaxiTripReject>> captured = new ThreadLocal<>();
+
+    public void add(TaxiTripReject reject) {
+        RowRejectEvent.record(reject);
+        List<TaxiTripReject> sink = captured.get();
+        if (sink != null) {
+            sink.add(reject);
+            return;
+        }
+        rejects.computeIfAbsent(currentStepExecutionId(), id -> new ConcurrentLinkedQueue<>())
+                .add(reject);
+    }
+
+    /**
+     * Removes and returns the rejects collected for the current step execution.
+     */
+    public List<TaxiTripReject> drain() {
+        Queue<TaxiTripReject> queue = rejects.remove(currentStepExecutionId());
+        return queue == null ? List.of() : new ArrayList<>(queue);
+    }
+
+    /**
+     * Sends the rejects added by this thread to {@code sink} until {@link #release()}, for
+     * callers that process and write a chunk on different threads.
+     */
+    public void capture(List<TaxiTripReject> sink) {
+        captured.set(sink);
+    }
+
+    public void release() {
+        captured.remove();
+    }
+
+    private static long currentStepExecutionId() {
+        StepContext context = StepSynchronizationManager.getContext();
+        return context == null ? NO_STEP : context.getStepExecution().getId();
+    }
+}
@@ -0,0 +1,47 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.processor;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFilePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.RejectReason;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripBlock;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Columnar counterpart of {@link TaxiTripItemProcessor}: applies the same validation on the
+ * primitive columns and compacts the surviving rows in place. Dropped rows go to the
+ * {@link RejectBuffer} and their number is left in {@link TaxiTripBlock#rejectedCount()}.
+ */
+@Component
+public class TaxiTripBlockProcessor implements ItemProcessor<TaxiTripBlock, TaxiTripBlock> {
+
+    private final String sourceFile;
+    private final RejectBuffer rejectBuffer;
+
+    public TaxiTripBlockProcessor(
+            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile,
+            RejectBuffer rejectBuffer
+    ) {
+        this.sourceFile = SourceFilePartitioner.normalize(sourceFile);
+        this.rejectBuffer = rejectBuffer;
+    }
+
+    @Override
+    public TaxiTripBlock process(TaxiTripBlock block) {
+        int kept = 0;
+        for (int row = 0; row < block.size(); row++) {
+            RejectReason reason = TaxiTripValidator.validate(block, row);
+            if (reason == null) {
+                block.moveRow(row, kept++);
+            } else {
+                rejectBuffer.add(new TaxiTripReject(sourceFile, block.lineNumber(row), reason));
+            }
+        }
+
+        block.setRejectedCount(block.size() - kept);
+        block.truncate(kept);
+        block.setSourceFile(sourceFile);
+        return block;
+    }
+}
@@ -1,29 +1,65 @@
 package com.poliser.nyc_taxi_batch_ingestion.batch.processor;
 
+import com.poliser.nyc_taxi_batch_ingestion.batch.dedup.LoadedRowFilter;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFilePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.RejectReason;
 import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
 import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
 import org.springframework.batch.infrastructure.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-
+/**
+ * Maps valid rows to {@link TaxiTripRaw}. Invalid rows are filtered (the processor returns
+ * {@code null}) and handed to the {@link RejectBuffer}, so they never cost a rollback.
+ * <p>
+ * Rows are stamped with the file of the current partition when the step reads one file
+ * per partition, and with the configured source file otherwise, named the same way as
+ * {@link SourceFilePartitioner#normalize}. Rows the
+ * {@link LoadedRowFilter} knows to be loaded are filtered before validation.
+ */
 @Component
 public class TaxiTripItemProcessor implements ItemProcessor<TaxiCsvRow, TaxiTripRaw> {
 
-    private static final BigDecimal MAX_DISTANCE = new BigDecimal("9999999.999");
-
     private final String sourceFile;
+    private final RejectBuffer rejectBuffer;
+    private final LoadedRowFilter loadedRowFilter;
 
+    /**
+     * @param loadedRowFilter filter of already loaded rows, or {@code null}
+     */
     public TaxiTripItemProcessor(
-            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile
+            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile,
+            RejectBuffer rejectBuffer,
+            LoadedRowFilter loadedRowFilter
     ) {
-        this.sourceFile = sourceFile;
+        this.sourceFile = SourceFilePartitioner.normalize(sourceFile);
+        this.rejectBuffer = rejectBuffer;
+        this.loadedRowFilter = loadedRowFilter;
     }
 
     @Override
     public TaxiTripRaw process(TaxiCsvRow row) {
-        validate(row);
+        return process(row, currentSourceFile());
+    }
+
+    /**
+     * Same as {@link #process(TaxiCsvRow)} for callers outside a step that know the file.
+     */
+    public TaxiTripRaw process(TaxiCsvRow row, String sourceFile) {
+        if (loadedRowFilter != null && row.lineNumber() != null
+                && loadedRowFilter.isLoaded(sourceFile, row.lineNumber())) {
+            return null;
+        }
+
+        RejectReason reason = TaxiTripValidator.validate(row);
+        if (reason != null) {
+            rejectBuffer.add(new TaxiTripReject(sourceFile, row.lineNumber(), reason));
+            return null;
+        }
 
         return new TaxiTripRaw(
                 sourceFile,
@@ -39,6 +75,8 @@ public class TaxiTripItemProcessor implements ItemProcessor<TaxiCsvRow, TaxiTrip
                 row.pickupLatitude(),
                 row.dropoffLongitude(),
                 row.dropoffLatitude(),
+                row.pickupLocationId(),
+                row.dropoffLocationId(),
 
                 row.rateCodeId(),
                 row.storeAndFwdFlag(),
@@ -50,32 +88,21 @@ public class TaxiTripItemProcessor implements ItemProcessor<TaxiCsvRow, TaxiTrip
                 row.tipAmount(),
                 row.tollsAmount(),
                 row.improvementSurcharge(),
-                row.totalAmount()
+                row.totalAmount(),
+                row.congestionSurcharge(),
+                row.airportFee()
         );
     }
 
-    private void validate(TaxiCsvRow row) {
-
-        if (row.pickupDatetime() == null || row.dropoffDatetime() == null) {
-            throw new IllegalArgumentException("Pickup or dropoff datetime is null");
-        }
-
-        if (row.pickupDatetime().isAfter(row.dropoffDatetime())) {
-            throw new IllegalArgumentException("Pickup after dropoff");
-        }
-
-        if (row.passengerCount() != null && row.passengerCount() < 0) {
-            throw new IllegalArgumentException("Negative passenger count");
-        }
-
-        if (row.tripDistance() != null &&
-                row.tripDistance().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("Negative trip distance");
-        }
-
-        if (row.tripDistance() != null &&
-                row.tripDistance().abs().compareTo(MAX_DISTANCE) > 0) {
-            throw new IllegalArgumentException("Trip distance exceeds supported precision");
+    private String currentSourceFile() {
+        StepContext context = StepSynchronizationManager.getContext();
+        if (context != null) {
+            Object partitionFile = context.getStepExecution().getExecutionContext()
+                    .get(SourceFilePartitioner.SOURCE_FILE);
+            if (partitionFile != null) {
+                return (String) partitionFile;
+            }
         }
+        return sourceFile;
     }
 }
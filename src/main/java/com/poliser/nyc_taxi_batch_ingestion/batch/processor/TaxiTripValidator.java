@@ -0,0 +1,82 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.processor;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.RejectReason;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripBlock;
+
+import java.math.BigDecimal;
+
+/**
+ * Validation rules shared by the row and block processors. A verdict is returned rather
+ * than thrown, so bad rows are filtered without triggering skip/rollback handling.
+ */
+public final class TaxiTripValidator {
+
+    private static final BigDecimal MAX_DISTANCE = new BigDecimal("9999999.999");
+
+    // MAX_DISTANCE at the trip_distance scale of 3
+    private static final long MAX_SCALED_DISTANCE = 9_999_999_999L;
+
+    private TaxiTripValidator() {
+    }
+
+    /**
+     * @return the reject reason, or {@code null} when the row is valid
+     */
+    public static RejectReason validate(TaxiCsvRow row) {
+
+        if (row.pickupDatetime() == null || row.dropoffDatetime() == null) {
+            return RejectReason.MISSING_DATETIME;
+        }
+
+        if (row.pickupDatetime().isAfter(row.dropoffDatetime())) {
+            return RejectReason.PICKUP_AFTER_DROPOFF;
+        }
+
+        if (row.passengerCount() != null && row.passengerCount() < 0) {
+            return RejectReason.NEGATIVE_PASSENGER_COUNT;
+        }
+
+        if (row.tripDistance() != null &&
+                row.tripDistance().compareTo(BigDecimal.ZERO) < 0) {
+            return RejectReason.NEGATIVE_TRIP_DISTANCE;
+        }
+
+        if (row.tripDistance() != null &&
+                row.tripDistance().abs().compareTo(MAX_DISTANCE) > 0) {
+            return RejectReason.TRIP_DISTANCE_OUT_OF_RANGE;
+        }
+        return null;
+    }
+
+    /**
+     * Same rules on a row of a {@link TaxiTripBlock}.
+     */
+    public static RejectReason validate(TaxiTripBlock block, int row) {
+
+        if (block.isTimestampNull(TaxiTripBlock.PICKUP_DATETIME, row)
+                || block.isTimestampNull(TaxiTripBlock.DROPOFF_DATETIME, row)) {
+            return RejectReason.MISSING_DATETIME;
+        }
+
+        if (block.timestamp(TaxiTripBlock.PICKUP_DATETIME, row)
+                > block.timestamp(TaxiTripBlock.DROPOFF_DATETIME, row)) {
+            return RejectReason.PICKUP_AFTER_DROPOFF;
+        }
+
+        if (block.intValue(TaxiTripBlock.PASSENGER_COUNT, row) < 0) {
+            return RejectReason.NEGATIVE_PASSENGER_COUNT;
+        }
+
+        if (!block.isDecimalNull(TaxiTripBlock.TRIP_DISTANCE, row)) {
+            long distance = block.decimal(TaxiTripBlock.TRIP_DISTANCE, row);
+            if (distance < 0) {
+                return RejectReason.NEGATIVE_TRIP_DISTANCE;
+            }
+            if (distance > MAX_SCALED_DISTANCE) {
+                return RejectReason.TRIP_DISTANCE_OUT_OF_RANGE;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,421 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.IngestionProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemStreamException;
+import org.springframework.batch.infrastructure.item.file.FlatFileParseException;
+import org.springframework.batch.infrastructure.item.file.NonTransientFlatFileException;
+import org.springframework.batch.infrastructure.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Base of the byte-level CSV readers: scans raw bytes from a reusable buffer and exposes
+ * one record at a time as a {@code [lineStart, lineEnd)} slice for subclasses to decode.
+ * <p>
+ * Line splitting follows {@code BufferedReader.readLine} ({@code \n}, {@code \r},
+ * {@code \r\n}) and {@code #} lines are comments, exactly like the flat file reader with its
+ * default record separator policy.
+ * <p>
+ * With {@link #setRange} the reader only consumes that newline-aligned byte range through a
+ * {@link MappedRegionInputStream} and, given {@link #setFirstLineNumber}, line numbers are
+ * derived from the record count so ranges can be read independently of each other.
+ * Subclasses see the file's header through {@link #onHeader} either way.
+ * <p>
+ * Alongside the item count, every checkpoint records the byte offset right after the last
+ * record read, its physical line and the number of records read, so a restart seeks
+ * straight there instead of scanning the file again. For a {@link CompressedFileResource}
+ * the offset is a decompressed one and the checkpoint also records the frame holding it:
+ * a restart decodes from that frame and skips only the rest of it.
+ * <p>
+ * Given an {@link IngestionProgress}, the reader reports the bytes it consumed, updated
+ * on every buffer refill; compressed input is measured in compressed bytes, up to the
+ * frame being read, and only when split into frames.
+ */
+public abstract class AbstractCsvByteItemReader<T> extends AbstractItemCountingItemStreamItemReader<T>
+        implements IngestionProgress.Source {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(AbstractCsvByteItemReader.class);
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final String READ_OFFSET = "read.offset";
+    private static final String READ_LINE = "read.line";
+    private static final String READ_RECORDS = "read.records";
+    private static final String READ_FRAME_OFFSET = "read.frame.offset";
+    private static final String READ_FRAME_START = "read.frame.start";
+
+    protected final Resource resource;
+
+    private int linesToSkip = 0;
+    private boolean strict = true;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private long rangeStart = -1;
+    private long rangeEnd = -1;
+    private Long firstLineNumber;
+    private int firstPhysicalLine = 1;
+
+    private long restartOffset = -1;
+    private int restartLine;
+    private long restartRecords;
+    private long restartFrameOffset;
+    private long restartFrameStart;
+
+    private IngestionProgress progress;
+    private volatile long progressBytes;
+    private volatile long progressTotal = -1;
+
+    private InputStream input;
+    private long bufferOffset;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private long recordCount;
+
+    protected byte[] buf;
+    protected boolean noInput;
+    protected int lineCount;
+    protected int lineStart;
+    protected int lineEnd;
+
+    protected AbstractCsvByteItemReader(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setLinesToSkip(int linesToSkip) {
+        this.linesToSkip = linesToSkip;
+    }
+
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Restricts reading to {@code [start, end)}; both offsets must sit on line starts.
+     */
+    public void setRange(long start, long end) {
+        this.rangeStart = start;
+        this.rangeEnd = end;
+    }
+
+    /**
+     * Line number assigned to the first record read; {@code null} leaves it to the caller.
+     */
+    public void setFirstLineNumber(Long firstLineNumber) {
+        this.firstLineNumber = firstLineNumber;
+    }
+
+    /**
+     * Physical line of the first byte read, used in parse error messages.
+     */
+    public void setFirstPhysicalLine(int firstPhysicalLine) {
+        this.firstPhysicalLine = firstPhysicalLine;
+    }
+
+    public void setProgress(IngestionProgress progress) {
+        this.progress = progress;
+    }
+
+    @Override
+    public long bytesRead() {
+        return progressBytes;
+    }
+
+    @Override
+    public long bytesTotal() {
+        return progressTotal;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        restartOffset = -1;
+        if (isSaveState() && executionContext.containsKey(getExecutionContextKey(READ_OFFSET))) {
+            restartOffset = executionContext.getLong(getExecutionContextKey(READ_OFFSET));
+            restartLine = executionContext.getInt(getExecutionContextKey(READ_LINE));
+            restartRecords = executionContext.getLong(getExecutionContextKey(READ_RECORDS),
+                    executionContext.getInt(getExecutionContextKey("read.count"), 0));
+            restartFrameOffset = executionContext.getLong(getExecutionContextKey(READ_FRAME_OFFSET), 0L);
+            restartFrameStart = executionContext.getLong(getExecutionContextKey(READ_FRAME_START), 0L);
+        }
+        super.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (isSaveState() && input != null) {
+            executionContext.putLong(getExecutionContextKey(READ_OFFSET), bufferOffset + pos);
+            executionContext.putInt(getExecutionContextKey(READ_LINE), lineCount);
+            executionContext.putLong(getExecutionContextKey(READ_RECORDS), recordCount);
+
+            long[] frame = CompressedFileResource.frameAt(input, bufferOffset + pos);
+            if (frame != null) {
+                executionContext.putLong(getExecutionContextKey(READ_FRAME_OFFSET), frame[0]);
+                executionContext.putLong(getExecutionContextKey(READ_FRAME_START), frame[1]);
+            }
+        }
+    }
+
+    /**
+     * Line number of the current record, or {@code null} when numbering is left to the caller.
+     */
+    protected Long currentLineNumber() {
+        return firstLineNumber == null ? null : firstLineNumber + recordCount - 1;
+    }
+
+    /**
+     * Receives the header on open, before any record is read: the first skipped line or,
+     * for a range past the start of the file, the file's first line. Ignored by default.
+     */
+    protected void onHeader(String header) throws Exception {
+    }
+
+    protected FlatFileParseException parseError(Exception ex) {
+        String line = new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+        return new FlatFileParseException(
+                "Parsing error at line: " + lineCount + " in resource=["
+                        + resource.getDescription() + "], input=[" + line + "]",
+                ex, line, lineCount);
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        noInput = true;
+
+        if (!resource.exists()) {
+            if (strict) {
+                throw new IllegalStateException(
+                        "Input resource must exist (reader is in 'strict' mode): " + resource);
+            }
+            log.warn("Input resource does not exist {}", resource.getDescription());
+            return;
+        }
+
+        if (!resource.isReadable()) {
+            if (strict) {
+                throw new IllegalStateException(
+                        "Input resource must be readable (reader is in 'strict' mode): " + resource);
+            }
+            log.warn("Input resource is not readable {}", resource.getDescription());
+            return;
+        }
+
+        buf = new byte[bufferSize];
+        if (rangeStart > 0) {
+            String header = firstLine();
+            if (header != null) {
+                onHeader(header);
+            }
+        }
+        position(Math.max(rangeStart, 0), firstPhysicalLine - 1, 0, 0);
+        if (progress != null) {
+            if (rangeStart >= 0) {
+                progressTotal = rangeEnd - rangeStart;
+            } else if (resource instanceof CompressedFileResource) {
+                progressTotal = input instanceof FrameInputStream ? resource.contentLength() : -1;
+            } else {
+                progressTotal = resource.contentLength();
+            }
+            progress.register(this);
+        }
+
+        for (int i = 0; i < linesToSkip; i++) {
+            if (nextRecord() && i == 0 && rangeStart <= 0) {
+                onHeader(new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+            }
+        }
+        recordCount = 0;
+        noInput = false;
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        if (restartOffset >= 0) {
+            log.info("Resuming [{}] at byte offset {} (line {})",
+                    resource.getDescription(), restartOffset, restartLine);
+            input.close();
+            position(restartOffset, restartLine, restartFrameOffset, restartFrameStart);
+            recordCount = restartRecords;
+            return;
+        }
+        for (long i = 0, records = (long) itemIndex * recordsPerItem(); i < records; i++) {
+            nextRecord();
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (progress != null) {
+            progress.unregister(this);
+            progressBytes = 0;
+            progressTotal = -1;
+        }
+        lineCount = 0;
+        buf = null;
+        if (input != null) {
+            input.close();
+            input = null;
+        }
+    }
+
+    /**
+     * Records consumed by a full item, used to replay a checkpoint that has no byte offset.
+     */
+    protected int recordsPerItem() {
+        return 1;
+    }
+
+    private String firstLine() throws IOException {
+        try (var reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.readLine();
+        }
+    }
+
+    /**
+     * (Re)opens the input at {@code offset}, which must be a line start, with
+     * {@code linesBefore} physical lines already consumed. Compressed input is decoded from
+     * the frame at {@code frameOffset}, which starts at decompressed {@code frameStart}.
+     */
+    private void position(long offset, int linesBefore, long frameOffset, long frameStart)
+            throws IOException {
+        if (resource instanceof CompressedFileResource compressed) {
+            input = compressed.open(frameOffset, frameStart);
+            input.skipNBytes(offset - frameStart);
+        } else if (rangeStart < 0) {
+            input = resource.getInputStream();
+            input.skipNBytes(offset);
+        } else {
+            input = new MappedRegionInputStream(resource.getFile().toPath(), offset, rangeEnd);
+        }
+        bufferOffset = offset;
+        pos = 0;
+        limit = 0;
+        eof = false;
+        lineCount = linesBefore;
+        trackProgress();
+    }
+
+    private void trackProgress() {
+        if (progress == null) {
+            return;
+        }
+        long offset = bufferOffset + pos;
+        if (rangeStart >= 0) {
+            progressBytes = offset - rangeStart;
+        } else if (resource instanceof CompressedFileResource) {
+            long[] frame = CompressedFileResource.frameAt(input, offset);
+            progressBytes = frame == null ? 0 : frame[0];
+        } else {
+            progressBytes = offset;
+        }
+    }
+
+    /**
+     * Positions the current line on the next record, skipping {@code #} comment lines.
+     */
+    protected boolean nextRecord() {
+        try {
+            do {
+                if (!nextLine()) {
+                    return false;
+                }
+            } while (lineEnd > lineStart && buf[lineStart] == '#');
+            recordCount++;
+            return true;
+
+        } catch (IOException e) {
+            noInput = true;
+            throw new NonTransientFlatFileException("Unable to read from resource: [" + resource + "]", e);
+        }
+    }
+
+    private boolean nextLine() throws IOException {
+        int scan = pos;
+
+        while (true) {
+            int i = scan;
+            while (i < limit) {
+                if (isLineEnd(buf[i])) {
+                    break;
+                }
+                i++;
+            }
+
+            // A trailing '\r' needs one byte of lookahead to swallow a following '\n'
+            if (i < limit && (buf[i] == '\n' || i + 1 < limit || eof)) {
+                lineStart = pos;
+                lineEnd = i;
+                pos = i + 1;
+                if (buf[i] == '\r' && pos < limit && buf[pos] == '\n') {
+                    pos++;
+                }
+                lineCount++;
+                return true;
+            }
+
+            if (eof) {
+                if (pos == limit) {
+                    return false;
+                }
+                lineStart = pos;
+                lineEnd = limit;
+                pos = limit;
+                lineCount++;
+                return true;
+            }
+
+            scan = i - pos;
+            fill();
+            scan += pos;
+        }
+    }
+
+    /**
+     * Whether {@code b} ends a line: {@code \n} or {@code \r}, where a {@code \n} right
+     * after a {@code \r} belongs to the same line end. Byte-range partitions count lines
+     * with the same definition.
+     */
+    public static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private void fill() throws IOException {
+        int remaining = limit - pos;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, remaining);
+            bufferOffset += pos;
+            pos = 0;
+            limit = remaining;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+
+        trackProgress();
+
+        int read = input.read(buf, limit, buf.length - limit);
+        if (read < 0) {
+            eof = true;
+            if (progressTotal >= 0) {
+                progressBytes = progressTotal;
+            }
+        } else {
+            limit += read;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@code .gz} or {@code .zst} file read as its decompressed content.
+ * <p>
+ * Input cut into independent frames (BGZF gzip, multi-frame zstd) is decoded frame by frame
+ * on the given executor and can be reopened at any frame boundary with {@link #open};
+ * anything else is decoded as a single stream, whose only boundary is its start.
+ */
+public class CompressedFileResource extends FileSystemResource {
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final FrameCodec codec;
+    private final Executor executor;
+    private final int window;
+
+    private volatile Boolean splittable;
+
+    private CompressedFileResource(String path, FrameCodec codec, Executor executor, int window) {
+        super(path);
+        this.codec = codec;
+        this.executor = executor;
+        this.window = window;
+    }
+
+    /**
+     * Resource for {@code path}: decompressing when the extension names a supported
+     * format, a plain {@link FileSystemResource} otherwise.
+     *
+     * @param window segments of frames decoded ahead of the reader
+     */
+    public static FileSystemResource of(String path, Executor executor, int window) {
+        FrameCodec codec = FrameCodec.forFileName(path);
+        return codec == null
+                ? new FileSystemResource(path)
+                : new CompressedFileResource(path, codec, executor, window);
+    }
+
+    public static boolean isCompressed(String path) {
+        return FrameCodec.forFileName(path) != null;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return open(0, 0);
+    }
+
+    /**
+     * Decompressed content from the frame at compressed {@code frameOffset}, whose first
+     * byte is at decompressed position {@code frameStart}.
+     */
+    public InputStream open(long frameOffset, long frameStart) throws IOException {
+        if (frameOffset == 0 && !isSplittable()) {
+            return codec.stream(new BufferedInputStream(super.getInputStream(), READ_BUFFER_SIZE));
+        }
+        var channel = FileChannel.open(getFile().toPath()).position(frameOffset);
+        return new FrameInputStream(codec,
+                new BufferedInputStream(Channels.newInputStream(channel), READ_BUFFER_SIZE),
+                executor, window, frameOffset, frameStart);
+    }
+
+    /**
+     * Frame boundary at or before the decompressed {@code position} of a stream returned
+     * by this resource, as {@code {compressed offset, decompressed start}}.
+     */
+    public static long[] frameAt(InputStream stream, long position) {
+        return stream instanceof FrameInputStream frames ? frames.frameAt(position) : null;
+    }
+
+    private boolean isSplittable() throws IOException {
+        if (splittable == null) {
+            try (InputStream in = new BufferedInputStream(super.getInputStream(), READ_BUFFER_SIZE)) {
+                splittable = codec.splittable(in);
+            }
+        }
+        return splittable;
+    }
+}
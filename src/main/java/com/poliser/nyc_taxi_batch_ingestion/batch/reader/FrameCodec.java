@@ -0,0 +1,284 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import io.airlift.compress.zstd.ZstdDecompressor;
+import io.airlift.compress.zstd.ZstdInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed input formats, detected by file extension. Each format knows how to cut its
+ * input into independently decodable frames without decompressing it (BGZF blocks for
+ * gzip, frames for zstd), how to decode one frame, and how to stream the whole input when
+ * it cannot be cut (plain gzip, single-frame zstd).
+ */
+enum FrameCodec {
+
+    GZIP(".gz") {
+        private static final int FEXTRA = 0x04;
+        private static final int FIXED_HEADER = 12;
+
+        @Override
+        int frameLength(byte[] head, int length) {
+            if (length < FIXED_HEADER || (head[0] & 0xFF) != 0x1F || (head[1] & 0xFF) != 0x8B
+                    || (head[3] & FEXTRA) == 0) {
+                return -1;
+            }
+            int extraLength = le16(head, 10);
+            for (int i = FIXED_HEADER; i + 4 <= Math.min(length, FIXED_HEADER + extraLength); ) {
+                int subLength = le16(head, i + 2);
+                if (head[i] == 'B' && head[i + 1] == 'C' && subLength == 2 && i + 6 <= length) {
+                    return le16(head, i + 4) + 1;
+                }
+                i += 4 + subLength;
+            }
+            return -1;
+        }
+
+        @Override
+        void decode(byte[] frame, int offset, int length, ByteArrayOutputStream out)
+                throws IOException {
+            int headerLength = FIXED_HEADER + le16(frame, offset + 10);
+            int trailer = offset + length - 8;
+            int size = le32(frame, trailer + 4);
+            byte[] output = new byte[size];
+
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(frame, offset + headerLength, trailer - offset - headerLength);
+                int produced = 0;
+                while (produced < size && !inflater.finished()) {
+                    int n = inflater.inflate(output, produced, size - produced);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new EOFException("Truncated BGZF block");
+                    }
+                    produced += n;
+                }
+            } catch (DataFormatException ex) {
+                throw new IOException("Corrupt BGZF block", ex);
+            } finally {
+                inflater.end();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(output, 0, size);
+            if ((int) crc.getValue() != le32(frame, trailer)) {
+                throw new IOException("BGZF block checksum mismatch");
+            }
+            out.write(output, 0, size);
+        }
+
+        @Override
+        InputStream stream(InputStream compressed) throws IOException {
+            return new GZIPInputStream(compressed, 1 << 16);
+        }
+    },
+
+    ZSTD(".zst") {
+        private static final int MAGIC = 0xFD2FB528;
+        private static final int SKIPPABLE_MASK = 0xFFFFFFF0;
+        private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+        private static final int[] DICTIONARY_ID_SIZES = {0, 1, 2, 4};
+        private static final int[] CONTENT_SIZE_SIZES = {0, 2, 4, 8};
+
+        @Override
+        int frameLength(byte[] head, int length) {
+            return -1;
+        }
+
+        @Override
+        boolean splittable(InputStream in) throws IOException {
+            return readFrame(in, null) && in.read() >= 0;
+        }
+
+        /**
+         * Walks the frame and block headers; with a {@code null} target the frame is
+         * skipped instead of copied.
+         */
+        @Override
+        boolean readFrame(InputStream in, ByteArrayOutputStream frame) throws IOException {
+            byte[] header = new byte[4];
+            int read = in.readNBytes(header, 0, 4);
+            if (read == 0) {
+                return false;
+            }
+            if (read < 4) {
+                throw new EOFException("Truncated zstd frame");
+            }
+            write(frame, header, 4);
+            int magic = le32(header, 0);
+
+            if ((magic & SKIPPABLE_MASK) == SKIPPABLE_MAGIC) {
+                readFully(in, header, 4);
+                write(frame, header, 4);
+                copy(in, frame, le32(header, 0));
+                return true;
+            }
+            if (magic != MAGIC) {
+                throw new IOException("Not a zstd frame");
+            }
+
+            readFully(in, header, 1);
+            write(frame, header, 1);
+            int descriptor = header[0] & 0xFF;
+            boolean singleSegment = (descriptor & 0x20) != 0;
+            int contentSizeFlag = descriptor >>> 6;
+            int headerRest = (singleSegment ? 0 : 1)
+                    + DICTIONARY_ID_SIZES[descriptor & 0x03]
+                    + (contentSizeFlag == 0 && singleSegment ? 1 : CONTENT_SIZE_SIZES[contentSizeFlag]);
+            copy(in, frame, headerRest);
+
+            boolean last;
+            do {
+                readFully(in, header, 3);
+                write(frame, header, 3);
+                int value = (header[0] & 0xFF) | (header[1] & 0xFF) << 8 | (header[2] & 0xFF) << 16;
+                last = (value & 1) != 0;
+                int type = (value >>> 1) & 0x03;
+                if (type == 3) {
+                    throw new IOException("Reserved zstd block type");
+                }
+                // An RLE block stores its single repeated byte
+                copy(in, frame, type == 1 ? 1 : value >>> 3);
+            } while (!last);
+
+            if ((descriptor & 0x04) != 0) {
+                copy(in, frame, 4);
+            }
+            return true;
+        }
+
+        @Override
+        void decode(byte[] frame, int offset, int length, ByteArrayOutputStream out)
+                throws IOException {
+            if ((le32(frame, offset) & SKIPPABLE_MASK) == SKIPPABLE_MAGIC) {
+                return;
+            }
+            long size = ZstdDecompressor.getDecompressedSize(frame, offset, length);
+            if (size >= 0 && size <= Integer.MAX_VALUE) {
+                byte[] output = new byte[(int) size];
+                int produced = new ZstdDecompressor().decompress(
+                        frame, offset, length, output, 0, output.length);
+                out.write(output, 0, produced);
+                return;
+            }
+            try (InputStream in = stream(new ByteArrayInputStream(frame, offset, length))) {
+                in.transferTo(out);
+            }
+        }
+
+        @Override
+        InputStream stream(InputStream compressed) {
+            return new ZstdInputStream(compressed);
+        }
+    };
+
+    /**
+     * Longest header {@link #frameLength} needs to see.
+     */
+    static final int HEAD_LENGTH = 64;
+
+    private final String extension;
+
+    FrameCodec(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the codec matching the file name, or {@code null} for uncompressed input
+     */
+    static FrameCodec forFileName(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        for (FrameCodec codec : values()) {
+            if (fileName.endsWith(codec.extension)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Length of the frame starting with {@code head}, when the header carries it, or -1.
+     */
+    abstract int frameLength(byte[] head, int length);
+
+    /**
+     * Whether the input, read from its first byte, holds more than one frame to decode
+     * independently. Consumes {@code in}.
+     */
+    boolean splittable(InputStream in) throws IOException {
+        byte[] head = new byte[HEAD_LENGTH];
+        return frameLength(head, in.readNBytes(head, 0, HEAD_LENGTH)) >= 0;
+    }
+
+    /**
+     * Appends the next whole frame of {@code in}, which must support mark, to {@code frame}.
+     *
+     * @return {@code false} at the end of input
+     */
+    boolean readFrame(InputStream in, ByteArrayOutputStream frame) throws IOException {
+        byte[] head = new byte[HEAD_LENGTH];
+        in.mark(HEAD_LENGTH);
+        int read = in.readNBytes(head, 0, HEAD_LENGTH);
+        in.reset();
+        if (read == 0) {
+            return false;
+        }
+        int length = frameLength(head, read);
+        if (length < 0) {
+            throw new IOException("Input is not cut into " + name() + " frames");
+        }
+        copy(in, frame, length);
+        return true;
+    }
+
+    abstract void decode(byte[] frame, int offset, int length, ByteArrayOutputStream out)
+            throws IOException;
+
+    /**
+     * Decoder for the whole remaining input, used when it cannot be cut into frames.
+     */
+    abstract InputStream stream(InputStream compressed) throws IOException;
+
+    private static void copy(InputStream in, ByteArrayOutputStream out, int length)
+            throws IOException {
+        if (out == null) {
+            in.skipNBytes(length);
+            return;
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("Truncated frame");
+        }
+        out.write(bytes, 0, length);
+    }
+
+    private static void write(ByteArrayOutputStream out, byte[] bytes, int length) {
+        if (out != null) {
+            out.write(bytes, 0, length);
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] bytes, int length) throws IOException {
+        if (in.readNBytes(bytes, 0, length) < length) {
+            throw new EOFException("Truncated frame");
+        }
+    }
+
+    private static int le16(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8;
+    }
+
+    private static int le32(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,179 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Decompressed view of a framed input, starting at a frame boundary.
+ * <p>
+ * The calling thread cuts the compressed input into segments of whole frames and submits
+ * up to {@code window} of them for decoding at once; decoded segments are handed out
+ * strictly in input order. The compressed offset of every segment handed out is kept, so
+ * {@link #frameAt} can map a decompressed position back to a frame to resume from.
+ */
+final class FrameInputStream extends InputStream {
+
+    private static final int SEGMENT_SIZE = 256 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final FrameCodec codec;
+    private final InputStream compressed;
+    private final Executor executor;
+    private final int window;
+
+    private final ArrayDeque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+    private final ArrayDeque<Long> inFlightOffsets = new ArrayDeque<>();
+    // {decompressed start, compressed offset} of the segments handed out, oldest first
+    private final ArrayDeque<long[]> frames = new ArrayDeque<>();
+
+    private long compressedOffset;
+    private long segmentStart;
+    private boolean endOfFrames;
+    private byte[] segment = EMPTY;
+    private int segmentPos;
+
+    /**
+     * @param compressed the compressed input, positioned at {@code frameOffset}
+     * @param frameStart decompressed position of that frame
+     */
+    FrameInputStream(
+            FrameCodec codec,
+            InputStream compressed,
+            Executor executor,
+            int window,
+            long frameOffset,
+            long frameStart
+    ) {
+        this.codec = codec;
+        this.compressed = compressed;
+        this.executor = executor;
+        this.window = Math.max(1, window);
+        this.compressedOffset = frameOffset;
+        this.segmentStart = frameStart;
+        frames.add(new long[] {frameStart, frameOffset});
+    }
+
+    /**
+     * Frame containing the decompressed {@code position}, as {@code {compressed offset,
+     * decompressed start}}. Positions must not go backwards between calls.
+     */
+    long[] frameAt(long position) {
+        long[] frame = frames.pollFirst();
+        while (!frames.isEmpty() && frames.peekFirst()[0] <= position) {
+            frame = frames.pollFirst();
+        }
+        frames.addFirst(frame);
+        return new long[] {frame[1], frame[0]};
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextSegment()) {
+            return -1;
+        }
+        return segment[segmentPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextSegment()) {
+            return -1;
+        }
+        int n = Math.min(len, segment.length - segmentPos);
+        System.arraycopy(segment, segmentPos, b, off, n);
+        segmentPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inFlight.forEach(future -> future.cancel(false));
+        inFlight.clear();
+        compressed.close();
+    }
+
+    private boolean nextSegment() throws IOException {
+        while (segmentPos == segment.length) {
+            submit();
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            segmentStart += segment.length;
+            long offset = inFlightOffsets.removeFirst();
+            segment = await(inFlight.removeFirst());
+            segmentPos = 0;
+            if (frames.peekLast()[1] != offset) {
+                frames.addLast(new long[] {segmentStart, offset});
+            }
+        }
+        return true;
+    }
+
+    private void submit() throws IOException {
+        while (!endOfFrames && inFlight.size() < window) {
+            var bytes = new ByteArrayOutputStream(SEGMENT_SIZE + (SEGMENT_SIZE >> 2));
+            var ends = new int[16];
+            int count = 0;
+            while (bytes.size() < SEGMENT_SIZE) {
+                if (!codec.readFrame(compressed, bytes)) {
+                    endOfFrames = true;
+                    break;
+                }
+                if (count == ends.length) {
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                ends[count++] = bytes.size();
+            }
+            if (count == 0) {
+                return;
+            }
+
+            byte[] input = bytes.toByteArray();
+            int[] frameEnds = ends;
+            int frameCount = count;
+            inFlightOffsets.addLast(compressedOffset);
+            inFlight.addLast(CompletableFuture.supplyAsync(
+                    () -> decode(input, frameEnds, frameCount), executor));
+            compressedOffset += input.length;
+        }
+    }
+
+    private byte[] decode(byte[] input, int[] frameEnds, int frameCount) {
+        var out = new ByteArrayOutputStream(Math.min(input.length, 1 << 22) * 4);
+        try {
+            int start = 0;
+            for (int i = 0; i < frameCount; i++) {
+                codec.decode(input, start, frameEnds[i] - start, out);
+                start = frameEnds[i];
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompressing");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Unable to decompress input", ex.getCause());
+        }
+    }
+}
@@ -10,9 +10,12 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * Wrapper that reads TaxiCsvRow and adds line number to each record.
  * Implements ItemStreamReader for thread-safe usage with SynchronizedItemStreamReader.
+ * The next line number is saved with every checkpoint so a restart continues the numbering.
  */
 public class LineTrackingItemReader<T> implements ItemStreamReader<TaxiCsvRow> {
 
+    private static final String LINE_NUMBER_KEY = "lineTracking.lineNumber";
+
     private final ItemStreamReader<T> delegate;
     private final AtomicLong lineNumber = new AtomicLong(1);
 
@@ -22,12 +25,13 @@ public class LineTrackingItemReader<T> implements ItemStreamReader<TaxiCsvRow> {
 
     @Override
     public void open(ExecutionContext executionContext) throws ItemStreamException {
-        lineNumber.set(1);
+        lineNumber.set(executionContext.getLong(LINE_NUMBER_KEY, 1));
         delegate.open(executionContext);
     }
 
     @Override
     public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(LINE_NUMBER_KEY, lineNumber.get());
         delegate.update(executionContext);
     }
 
@@ -69,7 +73,11 @@ public class LineTrackingItemReader<T> implements ItemStreamReader<TaxiCsvRow> {
                 item.tipAmount(),
                 item.tollsAmount(),
                 item.improvementSurcharge(),
-                item.totalAmount()
+                item.totalAmount(),
+                item.pickupLocationId(),
+                item.dropoffLocationId(),
+                item.congestionSurcharge(),
+                item.airportFee()
         );
     }
 }
@@ -0,0 +1,51 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.jfr.ReaderLockWaitEvent;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemStreamReader;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe reader like Spring Batch's {@code SynchronizedItemStreamReader}, recording
+ * a {@link ReaderLockWaitEvent} whenever a thread has to wait for another one's read.
+ * An uncontended read takes the lock without creating the event.
+ */
+public class LockWaitRecordingItemStreamReader<T> implements ItemStreamReader<T> {
+
+    private final ItemStreamReader<T> delegate;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public LockWaitRecordingItemStreamReader(ItemStreamReader<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public T read() throws Exception {
+        if (!lock.tryLock()) {
+            var event = ReaderLockWaitEvent.start();
+            lock.lock();
+            event.commit(lock.getQueueLength());
+        }
+        try {
+            return delegate.read();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        delegate.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        delegate.update(executionContext);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
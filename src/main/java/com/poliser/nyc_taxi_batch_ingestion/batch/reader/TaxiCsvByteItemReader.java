@@ -0,0 +1,39 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import org.springframework.core.io.Resource;
+
+/**
+ * Drop-in replacement for {@code FlatFileItemReader} + {@code DefaultLineMapper} that hands
+ * each record of the raw byte buffer to {@link TaxiCsvLineParser}.
+ */
+public class TaxiCsvByteItemReader extends AbstractCsvByteItemReader<TaxiCsvRow> {
+
+    private final TaxiCsvLineParser parser;
+
+    public TaxiCsvByteItemReader(Resource resource, TaxiCsvLineParser parser) {
+        super(resource);
+        this.parser = parser;
+    }
+
+    /**
+     * Parses by the layout of the file's header from here on.
+     */
+    @Override
+    protected void onHeader(String header) {
+        parser.setSchema(TaxiCsvSchema.forHeader(header));
+    }
+
+    @Override
+    protected TaxiCsvRow doRead() throws Exception {
+        if (noInput || !nextRecord()) {
+            return null;
+        }
+
+        try {
+            return parser.parse(buf, lineStart, lineEnd, currentLineNumber(), lineCount);
+        } catch (Exception ex) {
+            throw parseError(ex);
+        }
+    }
+}
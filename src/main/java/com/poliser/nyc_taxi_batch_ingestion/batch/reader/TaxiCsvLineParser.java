@@ -0,0 +1,594 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripBlock;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Byte-level parser for the taxi CSV layouts described by {@link TaxiCsvSchema}.
+ * <p>
+ * Fields are located and decoded straight from byte offsets in the caller's buffer: ints,
+ * plain decimals and {@code yyyy-MM-dd HH:mm:ss} timestamps never go through a String.
+ * Each field is read from the source column its schema resolved once from the header, so
+ * no name is looked up per record. Anything outside the fast path (quoted records,
+ * grouping, exponents, out-of-range dates) is handed to the same conversions
+ * {@code DefaultFieldSet} uses, so the produced {@link TaxiCsvRow} and the failures are
+ * identical to the schema's {@link TaxiCsvSchema#lineMapper() DelimitedLineTokenizer
+ * mapping}. Not thread-safe: one instance per reader.
+ * <p>
+ * {@link #parseInto} decodes the same fields into a {@link TaxiTripBlock} row instead,
+ * rounding decimals half-up to their column scale as PostgreSQL would on insert.
+ */
+public class TaxiCsvLineParser {
+
+    private static final DateTimeFormatter DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int MAX_FAST_INT_DIGITS = 9;
+    private static final int MAX_FAST_DECIMAL_DIGITS = 18;
+    private static final int DATE_TIME_LENGTH = 19;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+            100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L,
+            1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L,
+            1_000_000_000_000_000_000L
+    };
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+
+    private final NumberFormat numberFormat = NumberFormat.getInstance(Locale.US);
+
+    private TaxiCsvSchema schema;
+    // Source column of every TaxiCsvSchema field, -1 when absent
+    private int[] columns;
+    private int width;
+
+    private int[] fieldStart;
+    private int[] fieldEnd;
+    private byte[] buf;
+
+    // Result of the last successful fast decimal scan
+    private long scannedUnscaled;
+    private int scannedScale;
+
+    public TaxiCsvLineParser(TaxiCsvSchema schema) {
+        setSchema(schema);
+    }
+
+    /**
+     * Switches to another layout, e.g. the one of the header just read.
+     */
+    public final void setSchema(TaxiCsvSchema schema) {
+        this.schema = schema;
+        this.width = schema.width();
+        this.columns = new int[TaxiCsvSchema.FIELD_COUNT];
+        for (int field = 0; field < columns.length; field++) {
+            columns[field] = schema.column(field);
+        }
+        this.fieldStart = new int[width];
+        this.fieldEnd = new int[width];
+    }
+
+    public TaxiCsvSchema schema() {
+        return schema;
+    }
+
+    /**
+     * Parses the record in {@code bytes[start, end)} (line terminator excluded).
+     */
+    public TaxiCsvRow parse(byte[] bytes, int start, int end, Long lineNumber, int physicalLine)
+            throws Exception {
+
+        if (!tokenize(bytes, start, end)) {
+            TaxiCsvRow row = schema.lineMapper().mapLine(
+                    new String(bytes, start, end - start, StandardCharsets.UTF_8), physicalLine);
+            return lineNumber == null ? row : withLineNumber(row, lineNumber);
+        }
+
+        int[] c = columns;
+        return new TaxiCsvRow(
+                lineNumber,
+                readInteger(c[TaxiCsvSchema.VENDOR_ID]),
+                readDateTime(c[TaxiCsvSchema.PICKUP_DATETIME]),
+                readDateTime(c[TaxiCsvSchema.DROPOFF_DATETIME]),
+                readInteger(c[TaxiCsvSchema.PASSENGER_COUNT]),
+                readDecimal(c[TaxiCsvSchema.TRIP_DISTANCE]),
+                readDecimal(c[TaxiCsvSchema.PICKUP_LONGITUDE]),
+                readDecimal(c[TaxiCsvSchema.PICKUP_LATITUDE]),
+                readInteger(c[TaxiCsvSchema.RATE_CODE_ID]),
+                readString(c[TaxiCsvSchema.STORE_AND_FWD_FLAG]),
+                readDecimal(c[TaxiCsvSchema.DROPOFF_LONGITUDE]),
+                readDecimal(c[TaxiCsvSchema.DROPOFF_LATITUDE]),
+                readInteger(c[TaxiCsvSchema.PAYMENT_TYPE]),
+                readDecimal(c[TaxiCsvSchema.FARE_AMOUNT]),
+                readDecimal(c[TaxiCsvSchema.EXTRA]),
+                readDecimal(c[TaxiCsvSchema.MTA_TAX]),
+                readDecimal(c[TaxiCsvSchema.TIP_AMOUNT]),
+                readDecimal(c[TaxiCsvSchema.TOLLS_AMOUNT]),
+                readDecimal(c[TaxiCsvSchema.IMPROVEMENT_SURCHARGE]),
+                readDecimal(c[TaxiCsvSchema.TOTAL_AMOUNT]),
+                readInteger(c[TaxiCsvSchema.PICKUP_LOCATION_ID]),
+                readInteger(c[TaxiCsvSchema.DROPOFF_LOCATION_ID]),
+                readDecimal(c[TaxiCsvSchema.CONGESTION_SURCHARGE]),
+                readDecimal(c[TaxiCsvSchema.AIRPORT_FEE])
+        );
+    }
+
+    /**
+     * Parses the record in {@code bytes[start, end)} into a new row of {@code block}. On
+     * failure the row is removed again and the exception propagates.
+     */
+    public void parseInto(TaxiTripBlock block, byte[] bytes, int start, int end,
+                          long lineNumber, int physicalLine) throws Exception {
+
+        if (!tokenize(bytes, start, end)) {
+            TaxiCsvRow row = schema.lineMapper().mapLine(
+                    new String(bytes, start, end - start, StandardCharsets.UTF_8), physicalLine);
+            copyInto(block, row, lineNumber);
+            return;
+        }
+
+        int[] c = columns;
+        int row = block.addRow();
+        try {
+            block.setLineNumber(row, lineNumber);
+            readIntInto(c[TaxiCsvSchema.VENDOR_ID], block, TaxiTripBlock.VENDOR_ID, row);
+            readDateTimeInto(c[TaxiCsvSchema.PICKUP_DATETIME], block, TaxiTripBlock.PICKUP_DATETIME, row);
+            readDateTimeInto(c[TaxiCsvSchema.DROPOFF_DATETIME], block, TaxiTripBlock.DROPOFF_DATETIME, row);
+            readIntInto(c[TaxiCsvSchema.PASSENGER_COUNT], block, TaxiTripBlock.PASSENGER_COUNT, row);
+            readDecimalInto(c[TaxiCsvSchema.TRIP_DISTANCE], block, TaxiTripBlock.TRIP_DISTANCE, row);
+            readDecimalInto(c[TaxiCsvSchema.PICKUP_LONGITUDE], block, TaxiTripBlock.PICKUP_LONGITUDE, row);
+            readDecimalInto(c[TaxiCsvSchema.PICKUP_LATITUDE], block, TaxiTripBlock.PICKUP_LATITUDE, row);
+            readIntInto(c[TaxiCsvSchema.RATE_CODE_ID], block, TaxiTripBlock.RATE_CODE_ID, row);
+            block.setStoreAndFwdFlag(row, readString(c[TaxiCsvSchema.STORE_AND_FWD_FLAG]));
+            readDecimalInto(c[TaxiCsvSchema.DROPOFF_LONGITUDE], block, TaxiTripBlock.DROPOFF_LONGITUDE, row);
+            readDecimalInto(c[TaxiCsvSchema.DROPOFF_LATITUDE], block, TaxiTripBlock.DROPOFF_LATITUDE, row);
+            readIntInto(c[TaxiCsvSchema.PAYMENT_TYPE], block, TaxiTripBlock.PAYMENT_TYPE, row);
+            readDecimalInto(c[TaxiCsvSchema.FARE_AMOUNT], block, TaxiTripBlock.FARE_AMOUNT, row);
+            readDecimalInto(c[TaxiCsvSchema.EXTRA], block, TaxiTripBlock.EXTRA, row);
+            readDecimalInto(c[TaxiCsvSchema.MTA_TAX], block, TaxiTripBlock.MTA_TAX, row);
+            readDecimalInto(c[TaxiCsvSchema.TIP_AMOUNT], block, TaxiTripBlock.TIP_AMOUNT, row);
+            readDecimalInto(c[TaxiCsvSchema.TOLLS_AMOUNT], block, TaxiTripBlock.TOLLS_AMOUNT, row);
+            readDecimalInto(c[TaxiCsvSchema.IMPROVEMENT_SURCHARGE], block, TaxiTripBlock.IMPROVEMENT_SURCHARGE, row);
+            readDecimalInto(c[TaxiCsvSchema.TOTAL_AMOUNT], block, TaxiTripBlock.TOTAL_AMOUNT, row);
+            readIntInto(c[TaxiCsvSchema.PICKUP_LOCATION_ID], block, TaxiTripBlock.PICKUP_LOCATION_ID, row);
+            readIntInto(c[TaxiCsvSchema.DROPOFF_LOCATION_ID], block, TaxiTripBlock.DROPOFF_LOCATION_ID, row);
+            readDecimalInto(c[TaxiCsvSchema.CONGESTION_SURCHARGE], block, TaxiTripBlock.CONGESTION_SURCHARGE, row);
+            readDecimalInto(c[TaxiCsvSchema.AIRPORT_FEE], block, TaxiTripBlock.AIRPORT_FEE, row);
+        } catch (Exception e) {
+            block.removeLastRow();
+            throw e;
+        }
+    }
+
+    /**
+     * Splits the leading {@link TaxiCsvSchema#width()} columns of the record on commas into
+     * trimmed field offsets. Missing trailing fields are empty and extra fields are ignored,
+     * matching the non-strict tokenizer.
+     *
+     * @return {@code false} when the record contains a quote and needs the slow path
+     */
+    private boolean tokenize(byte[] bytes, int start, int end) {
+        buf = bytes;
+        int field = 0;
+        int cut = start;
+
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '"') {
+                return false;
+            }
+            if (b == ',') {
+                if (field < width) {
+                    setField(field, cut, i);
+                }
+                field++;
+                cut = i + 1;
+            }
+        }
+
+        if (field < width) {
+            setField(field++, cut, end);
+        }
+        for (; field < width; field++) {
+            fieldStart[field] = end;
+            fieldEnd[field] = end;
+        }
+        return true;
+    }
+
+    private void setField(int field, int from, int to) {
+        while (from < to && (buf[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (buf[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        fieldStart[field] = from;
+        fieldEnd[field] = to;
+    }
+
+    private Integer readInteger(int field) {
+        return field < 0 ? null : readInt(field);
+    }
+
+    private void readIntInto(int field, TaxiTripBlock block, int column, int row) {
+        if (field < 0) {
+            block.setIntNull(column, row);
+        } else {
+            block.setInt(column, row, readInt(field));
+        }
+    }
+
+    private int readInt(int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        boolean negative = from < to && buf[from] == '-';
+        int digitsFrom = negative ? from + 1 : from;
+        int digits = to - digitsFrom;
+
+        if (digits > 0 && digits <= MAX_FAST_INT_DIGITS) {
+            int value = 0;
+            int i = digitsFrom;
+            for (; i < to; i++) {
+                int d = buf[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                value = value * 10 + d;
+            }
+            if (i == to) {
+                return negative ? -value : value;
+            }
+        }
+
+        String candidate = text(field);
+        try {
+            return numberFormat.parse(candidate).intValue();
+        } catch (ParseException e) {
+            throw new NumberFormatException("Unparseable number: " + candidate);
+        }
+    }
+
+    private BigDecimal readDecimal(int field) {
+        if (field < 0) {
+            return null;
+        }
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        if (from == to) {
+            return null;
+        }
+        if (!scanDecimal(from, to)) {
+            return readDecimalSlow(field);
+        }
+        return BigDecimal.valueOf(scannedUnscaled, scannedScale);
+    }
+
+    private void readDecimalInto(int field, TaxiTripBlock block, int column, int row) {
+        if (field < 0) {
+            block.setDecimalNull(column, row);
+            return;
+        }
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        if (from == to) {
+            block.setDecimalNull(column, row);
+            return;
+        }
+
+        int targetScale = TaxiTripBlock.DECIMAL_SCALES[column];
+        if (scanDecimal(from, to)) {
+            long rescaled = rescale(scannedUnscaled, scannedScale, targetScale);
+            if (rescaled != Long.MIN_VALUE) {
+                block.setDecimal(column, row, rescaled);
+                return;
+            }
+        }
+        block.setDecimal(column, row, unscaled(readDecimalSlow(field), targetScale));
+    }
+
+    /**
+     * Scans a plain {@code [+-]digits[.digits]} decimal of at most 18 digits into
+     * {@link #scannedUnscaled} and {@link #scannedScale}.
+     */
+    private boolean scanDecimal(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            i++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            byte b = buf[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            int d = b - '0';
+            if (d < 0 || d > 9 || ++digits > MAX_FAST_DECIMAL_DIGITS) {
+                return false;
+            }
+            unscaled = unscaled * 10 + d;
+            if (fraction) {
+                scale++;
+            }
+        }
+
+        if (digits == 0) {
+            return false;
+        }
+        scannedUnscaled = negative ? -unscaled : unscaled;
+        scannedScale = scale;
+        return true;
+    }
+
+    private BigDecimal readDecimalSlow(int field) {
+        String candidate = text(field);
+        try {
+            return new BigDecimal(candidate.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException(
+                    "Unparseable number: " + candidate + ", name: [" + schema.columnName(field) + "]");
+        }
+    }
+
+    private LocalDateTime readDateTime(int field) {
+        if (field < 0) {
+            return null;
+        }
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        if (from == to) {
+            return null;
+        }
+
+        if (to - from == DATE_TIME_LENGTH
+                && buf[from + 4] == '-' && buf[from + 7] == '-' && buf[from + 10] == ' '
+                && buf[from + 13] == ':' && buf[from + 16] == ':') {
+
+            int year = digits(from, 4);
+            int month = digits(from + 5, 2);
+            int day = digits(from + 8, 2);
+            int hour = digits(from + 11, 2);
+            int minute = digits(from + 14, 2);
+            int second = digits(from + 17, 2);
+
+            if (year > 0 && month >= 1 && month <= 12 && day >= 1
+                    && day <= daysInMonth(year, month)
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59
+                    && second >= 0 && second <= 59) {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            }
+        }
+
+        // Lenient SMART resolution and the error messages stay with java.time
+        return LocalDateTime.parse(text(field), DATE_TIME);
+    }
+
+    private void readDateTimeInto(int field, TaxiTripBlock block, int column, int row) {
+        if (field < 0) {
+            block.setTimestampNull(column, row);
+            return;
+        }
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        if (from == to) {
+            block.setTimestampNull(column, row);
+            return;
+        }
+
+        if (to - from == DATE_TIME_LENGTH
+                && buf[from + 4] == '-' && buf[from + 7] == '-' && buf[from + 10] == ' '
+                && buf[from + 13] == ':' && buf[from + 16] == ':') {
+
+            int year = digits(from, 4);
+            int month = digits(from + 5, 2);
+            int day = digits(from + 8, 2);
+            int hour = digits(from + 11, 2);
+            int minute = digits(from + 14, 2);
+            int second = digits(from + 17, 2);
+
+            if (year > 0 && month >= 1 && month <= 12 && day >= 1
+                    && day <= daysInMonth(year, month)
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59
+                    && second >= 0 && second <= 59) {
+                block.setTimestamp(column, row,
+                        epochDay(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second);
+                return;
+            }
+        }
+
+        block.setTimestamp(column, row,
+                LocalDateTime.parse(text(field), DATE_TIME).toEpochSecond(ZoneOffset.UTC));
+    }
+
+    private String readString(int field) {
+        if (field < 0) {
+            return null;
+        }
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        if (from == to) {
+            return "";
+        }
+        if (to - from == 1) {
+            if (buf[from] == 'N') {
+                return "N";
+            }
+            if (buf[from] == 'Y') {
+                return "Y";
+            }
+        }
+        return text(field);
+    }
+
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private String text(int field) {
+        return new String(buf, fieldStart[field], fieldEnd[field] - fieldStart[field],
+                StandardCharsets.UTF_8);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Same as {@code LocalDate.toEpochDay} for positive years.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (daysInMonth(year, 2) == 28) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Rescales half-up (away from zero), or returns {@link Long#MIN_VALUE} on overflow.
+     */
+    private static long rescale(long unscaled, int scale, int targetScale) {
+        if (scale == targetScale) {
+            return unscaled;
+        }
+        if (scale < targetScale) {
+            long factor = POW10[targetScale - scale];
+            return Math.abs(unscaled) > Long.MAX_VALUE / factor ? Long.MIN_VALUE : unscaled * factor;
+        }
+        long factor = POW10[scale - targetScale];
+        long quotient = unscaled / factor;
+        if (Math.abs(unscaled % factor) * 2 >= factor) {
+            quotient += Long.signum(unscaled);
+        }
+        return quotient;
+    }
+
+    private static long unscaled(BigDecimal value, int targetScale) {
+        return value.setScale(targetScale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static void copyInto(TaxiTripBlock block, TaxiCsvRow item, long lineNumber) {
+        int row = block.addRow();
+        try {
+            copyInto(block, row, item, lineNumber);
+        } catch (RuntimeException e) {
+            block.removeLastRow();
+            throw e;
+        }
+    }
+
+    private static void copyInto(TaxiTripBlock block, int row, TaxiCsvRow item, long lineNumber) {
+        block.setLineNumber(row, lineNumber);
+        copyInt(block, TaxiTripBlock.VENDOR_ID, row, item.vendorId());
+        copyTimestamp(block, TaxiTripBlock.PICKUP_DATETIME, row, item.pickupDatetime());
+        copyTimestamp(block, TaxiTripBlock.DROPOFF_DATETIME, row, item.dropoffDatetime());
+        copyInt(block, TaxiTripBlock.PASSENGER_COUNT, row, item.passengerCount());
+        copyDecimal(block, TaxiTripBlock.TRIP_DISTANCE, row, item.tripDistance());
+        copyDecimal(block, TaxiTripBlock.PICKUP_LONGITUDE, row, item.pickupLongitude());
+        copyDecimal(block, TaxiTripBlock.PICKUP_LATITUDE, row, item.pickupLatitude());
+        copyInt(block, TaxiTripBlock.RATE_CODE_ID, row, item.rateCodeId());
+        block.setStoreAndFwdFlag(row, item.storeAndFwdFlag());
+        copyDecimal(block, TaxiTripBlock.DROPOFF_LONGITUDE, row, item.dropoffLongitude());
+        copyDecimal(block, TaxiTripBlock.DROPOFF_LATITUDE, row, item.dropoffLatitude());
+        copyInt(block, TaxiTripBlock.PAYMENT_TYPE, row, item.paymentType());
+        copyDecimal(block, TaxiTripBlock.FARE_AMOUNT, row, item.fareAmount());
+        copyDecimal(block, TaxiTripBlock.EXTRA, row, item.extra());
+        copyDecimal(block, TaxiTripBlock.MTA_TAX, row, item.mtaTax());
+        copyDecimal(block, TaxiTripBlock.TIP_AMOUNT, row, item.tipAmount());
+        copyDecimal(block, TaxiTripBlock.TOLLS_AMOUNT, row, item.tollsAmount());
+        copyDecimal(block, TaxiTripBlock.IMPROVEMENT_SURCHARGE, row, item.improvementSurcharge());
+        copyDecimal(block, TaxiTripBlock.TOTAL_AMOUNT, row, item.totalAmount());
+        copyInt(block, TaxiTripBlock.PICKUP_LOCATION_ID, row, item.pickupLocationId());
+        copyInt(block, TaxiTripBlock.DROPOFF_LOCATION_ID, row, item.dropoffLocationId());
+        copyDecimal(block, TaxiTripBlock.CONGESTION_SURCHARGE, row, item.congestionSurcharge());
+        copyDecimal(block, TaxiTripBlock.AIRPORT_FEE, row, item.airportFee());
+    }
+
+    private static void copyInt(TaxiTripBlock block, int column, int row, Integer value) {
+        if (value == null) {
+            block.setIntNull(column, row);
+        } else {
+            block.setInt(column, row, value);
+        }
+    }
+
+    private static void copyTimestamp(TaxiTripBlock block, int column, int row, LocalDateTime value) {
+        if (value == null) {
+            block.setTimestampNull(column, row);
+        } else {
+            block.setTimestamp(column, row, value.toEpochSecond(ZoneOffset.UTC));
+        }
+    }
+
+    private static void copyDecimal(TaxiTripBlock block, int column, int row, BigDecimal value) {
+        if (value == null) {
+            block.setDecimalNull(column, row);
+        } else {
+            block.setDecimal(column, row, unscaled(value, TaxiTripBlock.DECIMAL_SCALES[column]));
+        }
+    }
+
+    private static TaxiCsvRow withLineNumber(TaxiCsvRow item, long lineNumber) {
+        return new TaxiCsvRow(
+                lineNumber,
+                item.vendorId(),
+                item.pickupDatetime(),
+                item.dropoffDatetime(),
+                item.passengerCount(),
+                item.tripDistance(),
+                item.pickupLongitude(),
+                item.pickupLatitude(),
+                item.rateCodeId(),
+                item.storeAndFwdFlag(),
+                item.dropoffLongitude(),
+                item.dropoffLatitude(),
+                item.paymentType(),
+                item.fareAmount(),
+                item.extra(),
+                item.mtaTax(),
+                item.tipAmount(),
+                item.tollsAmount(),
+                item.improvementSurcharge(),
+                item.totalAmount(),
+                item.pickupLocationId(),
+                item.dropoffLocationId(),
+                item.congestionSurcharge(),
+                item.airportFee()
+        );
+    }
+}
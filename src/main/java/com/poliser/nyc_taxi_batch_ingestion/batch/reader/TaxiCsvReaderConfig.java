@@ -1,113 +1,175 @@
 package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
 
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.IngestionProgress;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.ByteRangePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFilePartitioner;
 import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.infrastructure.item.ItemStreamReader;
 import org.springframework.batch.infrastructure.item.file.FlatFileItemReader;
-import org.springframework.batch.infrastructure.item.file.mapping.DefaultLineMapper;
-import org.springframework.batch.infrastructure.item.file.transform.DelimitedLineTokenizer;
-import org.springframework.batch.infrastructure.item.support.SynchronizedItemStreamReader;
-import org.springframework.batch.infrastructure.item.support.builder.SynchronizedItemStreamReaderBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.AsyncTaskExecutor;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Path;
 
 @Configuration
 public class TaxiCsvReaderConfig {
 
-    private static final DateTimeFormatter DATE_TIME =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final AsyncTaskExecutor decompressionTaskExecutor;
+    private final int decompressionWindow;
+    private final IngestionProgress ingestionProgress;
+
+    public TaxiCsvReaderConfig(
+            @Qualifier("decompressionTaskExecutor") AsyncTaskExecutor decompressionTaskExecutor,
+            @Value("${taxi.ingestion.decompression.threads:0}") int decompressionThreads,
+            @Value("${taxi.ingestion.decompression.window:0}") int decompressionWindow,
+            IngestionProgress ingestionProgress
+    ) {
+        int threads = decompressionThreads > 0
+                ? decompressionThreads
+                : Runtime.getRuntime().availableProcessors();
+        this.decompressionTaskExecutor = decompressionTaskExecutor;
+        this.decompressionWindow = decompressionWindow > 0 ? decompressionWindow : 2 * threads;
+        this.ingestionProgress = ingestionProgress;
+    }
 
     @Bean
-    public SynchronizedItemStreamReader<TaxiCsvRow> taxiCsvReader(
-            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile
+    public ItemStreamReader<TaxiCsvRow> taxiCsvReader(
+            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile,
+            @Value("${taxi.ingestion.parser:bytes}") String parser
     ) {
 
-        var flatFileReader = new FlatFileItemReader<TaxiCsvRow>(
-                new FileSystemResource(sourceFile),
-                lineMapper()
+        var resource = sourceResource(sourceFile);
+
+        // The byte reader numbers lines itself and checkpoints byte offsets
+        ItemStreamReader<TaxiCsvRow> fileReader = "delimited".equalsIgnoreCase(parser)
+                ? new LineTrackingItemReader<>(flatFileReader(resource))
+                : byteReader(resource);
+
+        return new LockWaitRecordingItemStreamReader<>(fileReader);
+    }
+
+    /**
+     * Reader for one byte range produced by {@link ByteRangePartitioner}; every partition
+     * gets its own instance and its own mapped view of the file.
+     */
+    @Bean
+    @StepScope
+    public TaxiCsvByteItemReader taxiCsvPartitionReader(
+            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile,
+            @Value("#{stepExecutionContext['" + ByteRangePartitioner.START_OFFSET + "']}") long startOffset,
+            @Value("#{stepExecutionContext['" + ByteRangePartitioner.END_OFFSET + "']}") long endOffset,
+            @Value("#{stepExecutionContext['" + ByteRangePartitioner.FIRST_LINE_NUMBER + "']}") long firstLineNumber,
+            @Value("#{stepExecutionContext['" + ByteRangePartitioner.FIRST_PHYSICAL_LINE + "']}") long firstPhysicalLine
+    ) {
+
+        var byteReader = new TaxiCsvByteItemReader(
+                new FileSystemResource(SourceFilePartitioner.normalize(sourceFile)),
+                new TaxiCsvLineParser(TaxiCsvSchema.YELLOW_2015)
         );
 
-        flatFileReader.setLinesToSkip(1);
-        flatFileReader.setStrict(true);
+        byteReader.setRange(startOffset, endOffset);
+        byteReader.setFirstLineNumber(firstLineNumber);
+        byteReader.setFirstPhysicalLine(Math.toIntExact(firstPhysicalLine));
+        byteReader.setStrict(true);
+        byteReader.setProgress(ingestionProgress);
+        return byteReader;
+    }
+
+    /**
+     * Reader for one file of a multi-file run, see {@link SourceFilePartitioner}.
+     */
+    @Bean
+    @StepScope
+    public TaxiCsvByteItemReader taxiCsvFileReader(
+            @Value("#{stepExecutionContext['" + SourceFilePartitioner.SOURCE_FILE + "']}") String sourceFile
+    ) {
+        return byteReader(sourceResource(sourceFile));
+    }
 
-        var lineTrackingReader = new LineTrackingItemReader<TaxiCsvRow>(flatFileReader);
+    /**
+     * Reader for the complete lines {@code [start, end)} appended to a tailed file; the
+     * header is skipped when reading from the start.
+     */
+    public static TaxiCsvByteItemReader tailReader(
+            Path file,
+            long start,
+            long end,
+            long firstLineNumber,
+            int firstPhysicalLine
+    ) {
+        var byteReader = new TaxiCsvByteItemReader(
+                new FileSystemResource(file),
+                new TaxiCsvLineParser(TaxiCsvSchema.YELLOW_2015)
+        );
+
+        byteReader.setName("tail");
+        byteReader.setRange(start, end);
+        byteReader.setLinesToSkip(start == 0 ? 1 : 0);
+        byteReader.setFirstLineNumber(firstLineNumber);
+        byteReader.setFirstPhysicalLine(firstPhysicalLine);
+        byteReader.setStrict(true);
+        return byteReader;
+    }
+
+    /**
+     * Block reader of the columnar step mode.
+     */
+    @Bean
+    public TaxiTripBlockItemReader taxiTripBlockReader(
+            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile,
+            @Value("${taxi.ingestion.columnar.block-size:10000}") int blockSize
+    ) {
+
+        var blockReader = new TaxiTripBlockItemReader(
+                sourceResource(sourceFile),
+                new TaxiCsvLineParser(TaxiCsvSchema.YELLOW_2015),
+                blockSize
+        );
 
-        return new SynchronizedItemStreamReaderBuilder<TaxiCsvRow>()
-                .delegate(lineTrackingReader)
-                .build();
+        blockReader.setLinesToSkip(1);
+        blockReader.setFirstLineNumber(1L);
+        blockReader.setStrict(true);
+        blockReader.setProgress(ingestionProgress);
+        return blockReader;
     }
 
-    private DefaultLineMapper<TaxiCsvRow> lineMapper() {
-
-        var tokenizer = getDelimitedLineTokenizer();
-
-        var mapper = new DefaultLineMapper<TaxiCsvRow>();
-        mapper.setLineTokenizer(tokenizer);
-        mapper.setFieldSetMapper(fieldSet -> {
-
-            var pickup = fieldSet.readString("pickupDatetime");
-            var dropoff = fieldSet.readString("dropoffDatetime");
-
-            return new TaxiCsvRow(
-                    null, // lineNumber will be set by LineTrackingItemReader
-                    fieldSet.readInt("vendorId"),
-                    pickup == null || pickup.isBlank()
-                            ? null
-                            : LocalDateTime.parse(pickup, DATE_TIME),
-                    dropoff == null || dropoff.isBlank()
-                            ? null
-                            : LocalDateTime.parse(dropoff, DATE_TIME),
-                    fieldSet.readInt("passengerCount"),
-                    fieldSet.readBigDecimal("tripDistance"),
-                    fieldSet.readBigDecimal("pickupLongitude"),
-                    fieldSet.readBigDecimal("pickupLatitude"),
-                    fieldSet.readInt("rateCodeId"),
-                    fieldSet.readString("storeAndFwdFlag"),
-                    fieldSet.readBigDecimal("dropoffLongitude"),
-                    fieldSet.readBigDecimal("dropoffLatitude"),
-                    fieldSet.readInt("paymentType"),
-                    fieldSet.readBigDecimal("fareAmount"),
-                    fieldSet.readBigDecimal("extra"),
-                    fieldSet.readBigDecimal("mtaTax"),
-                    fieldSet.readBigDecimal("tipAmount"),
-                    fieldSet.readBigDecimal("tollsAmount"),
-                    fieldSet.readBigDecimal("improvementSurcharge"),
-                    fieldSet.readBigDecimal("totalAmount")
-            );
-        });
-
-        return mapper;
+    /**
+     * The source file by the name its rows are stamped with, decompressed on the fly when it
+     * is a {@code .gz} or {@code .zst}.
+     */
+    private FileSystemResource sourceResource(String sourceFile) {
+        return CompressedFileResource.of(SourceFilePartitioner.normalize(sourceFile),
+                decompressionTaskExecutor, decompressionWindow);
     }
 
-    private static DelimitedLineTokenizer getDelimitedLineTokenizer() {
-        var tokenizer = new DelimitedLineTokenizer();
-        tokenizer.setDelimiter(",");
-        tokenizer.setStrict(false);
-
-        tokenizer.setNames(
-                "vendorId",
-                "pickupDatetime",
-                "dropoffDatetime",
-                "passengerCount",
-                "tripDistance",
-                "pickupLongitude",
-                "pickupLatitude",
-                "rateCodeId",
-                "storeAndFwdFlag",
-                "dropoffLongitude",
-                "dropoffLatitude",
-                "paymentType",
-                "fareAmount",
-                "extra",
-                "mtaTax",
-                "tipAmount",
-                "tollsAmount",
-                "improvementSurcharge",
-                "totalAmount"
+    private static FlatFileItemReader<TaxiCsvRow> flatFileReader(FileSystemResource resource) {
+
+        var flatFileReader = new FlatFileItemReader<TaxiCsvRow>(
+                resource, TaxiCsvSchema.YELLOW_2015.lineMapper());
+
+        flatFileReader.setLinesToSkip(1);
+        flatFileReader.setSkippedLinesCallback(header ->
+                flatFileReader.setLineMapper(TaxiCsvSchema.forHeader(header).lineMapper()));
+        flatFileReader.setStrict(true);
+        return flatFileReader;
+    }
+
+    private TaxiCsvByteItemReader byteReader(FileSystemResource resource) {
+
+        var byteReader = new TaxiCsvByteItemReader(
+                resource,
+                new TaxiCsvLineParser(TaxiCsvSchema.YELLOW_2015)
         );
-        return tokenizer;
+
+        byteReader.setLinesToSkip(1);
+        byteReader.setFirstLineNumber(1L);
+        byteReader.setStrict(true);
+        byteReader.setProgress(ingestionProgress);
+        return byteReader;
     }
 }
@@ -0,0 +1,282 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.infrastructure.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.infrastructure.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.infrastructure.item.file.transform.FieldSet;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column layout of a taxi CSV file, detected from its header.
+ * <p>
+ * The TLC layouts differ by year: 2015 files carry pickup and dropoff coordinates, files
+ * from mid 2016 on replace them with {@code PULocationID}/{@code DOLocationID}, and later
+ * ones append {@code congestion_surcharge} and {@code airport_fee}. Header names are
+ * matched case- and underscore-insensitively to the {@link TaxiCsvRow} fields, unknown
+ * columns are ignored and fields without a column read as {@code null}.
+ * <p>
+ * A schema is resolved once per distinct header and cached, so each reader pays for the
+ * name matching on open only; parsing then goes by {@link #column} index.
+ */
+public final class TaxiCsvSchema {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaxiCsvSchema.class);
+
+    // Fields in TaxiCsvRow order, line number excluded
+    static final int VENDOR_ID = 0;
+    static final int PICKUP_DATETIME = 1;
+    static final int DROPOFF_DATETIME = 2;
+    static final int PASSENGER_COUNT = 3;
+    static final int TRIP_DISTANCE = 4;
+    static final int PICKUP_LONGITUDE = 5;
+    static final int PICKUP_LATITUDE = 6;
+    static final int RATE_CODE_ID = 7;
+    static final int STORE_AND_FWD_FLAG = 8;
+    static final int DROPOFF_LONGITUDE = 9;
+    static final int DROPOFF_LATITUDE = 10;
+    static final int PAYMENT_TYPE = 11;
+    static final int FARE_AMOUNT = 12;
+    static final int EXTRA = 13;
+    static final int MTA_TAX = 14;
+    static final int TIP_AMOUNT = 15;
+    static final int TOLLS_AMOUNT = 16;
+    static final int IMPROVEMENT_SURCHARGE = 17;
+    static final int TOTAL_AMOUNT = 18;
+    static final int PICKUP_LOCATION_ID = 19;
+    static final int DROPOFF_LOCATION_ID = 20;
+    static final int CONGESTION_SURCHARGE = 21;
+    static final int AIRPORT_FEE = 22;
+    static final int FIELD_COUNT = 23;
+
+    static final String[] FIELD_NAMES = {
+            "vendorId",
+            "pickupDatetime",
+            "dropoffDatetime",
+            "passengerCount",
+            "tripDistance",
+            "pickupLongitude",
+            "pickupLatitude",
+            "rateCodeId",
+            "storeAndFwdFlag",
+            "dropoffLongitude",
+            "dropoffLatitude",
+            "paymentType",
+            "fareAmount",
+            "extra",
+            "mtaTax",
+            "tipAmount",
+            "tollsAmount",
+            "improvementSurcharge",
+            "totalAmount",
+            "pickupLocationId",
+            "dropoffLocationId",
+            "congestionSurcharge",
+            "airportFee"
+    };
+
+    // Normalized header names, see normalize()
+    private static final Map<String, Integer> HEADER_NAMES = Map.ofEntries(
+            Map.entry("vendorid", VENDOR_ID),
+            Map.entry("tpeppickupdatetime", PICKUP_DATETIME),
+            Map.entry("lpeppickupdatetime", PICKUP_DATETIME),
+            Map.entry("pickupdatetime", PICKUP_DATETIME),
+            Map.entry("tpepdropoffdatetime", DROPOFF_DATETIME),
+            Map.entry("lpepdropoffdatetime", DROPOFF_DATETIME),
+            Map.entry("dropoffdatetime", DROPOFF_DATETIME),
+            Map.entry("passengercount", PASSENGER_COUNT),
+            Map.entry("tripdistance", TRIP_DISTANCE),
+            Map.entry("pickuplongitude", PICKUP_LONGITUDE),
+            Map.entry("pickuplatitude", PICKUP_LATITUDE),
+            Map.entry("ratecodeid", RATE_CODE_ID),
+            Map.entry("storeandfwdflag", STORE_AND_FWD_FLAG),
+            Map.entry("dropofflongitude", DROPOFF_LONGITUDE),
+            Map.entry("dropofflatitude", DROPOFF_LATITUDE),
+            Map.entry("paymenttype", PAYMENT_TYPE),
+            Map.entry("fareamount", FARE_AMOUNT),
+            Map.entry("extra", EXTRA),
+            Map.entry("mtatax", MTA_TAX),
+            Map.entry("tipamount", TIP_AMOUNT),
+            Map.entry("tollsamount", TOLLS_AMOUNT),
+            Map.entry("improvementsurcharge", IMPROVEMENT_SURCHARGE),
+            Map.entry("totalamount", TOTAL_AMOUNT),
+            Map.entry("pulocationid", PICKUP_LOCATION_ID),
+            Map.entry("dolocationid", DROPOFF_LOCATION_ID),
+            Map.entry("congestionsurcharge", CONGESTION_SURCHARGE),
+            Map.entry("airportfee", AIRPORT_FEE)
+    );
+
+    private static final DateTimeFormatter DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final Map<String, TaxiCsvSchema> SCHEMAS = new ConcurrentHashMap<>();
+
+    /**
+     * The 19-column 2015 yellow taxi layout, used when a reader never sees a header.
+     */
+    public static final TaxiCsvSchema YELLOW_2015 = forHeader(
+            "VendorID,tpep_pickup_datetime,tpep_dropoff_datetime,passenger_count,trip_distance,"
+                    + "pickup_longitude,pickup_latitude,RateCodeID,store_and_fwd_flag,"
+                    + "dropoff_longitude,dropoff_latitude,payment_type,fare_amount,extra,mta_tax,"
+                    + "tip_amount,tolls_amount,improvement_surcharge,total_amount");
+
+    private final int[] columns;
+    private final String[] columnNames;
+    private volatile DefaultLineMapper<TaxiCsvRow> lineMapper;
+
+    private TaxiCsvSchema(int[] columns, String[] columnNames) {
+        this.columns = columns;
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the header has no pickup or dropoff time column
+     */
+    public static TaxiCsvSchema forHeader(String header) {
+        return SCHEMAS.computeIfAbsent(header.strip(), TaxiCsvSchema::resolve);
+    }
+
+    private static TaxiCsvSchema resolve(String header) {
+        String[] names = header.split(",", -1);
+        int[] columns = new int[FIELD_COUNT];
+        Arrays.fill(columns, -1);
+
+        int width = 0;
+        for (int column = 0; column < names.length; column++) {
+            Integer field = HEADER_NAMES.get(normalize(names[column]));
+            if (field != null && columns[field] < 0) {
+                columns[field] = column;
+                width = column + 1;
+            }
+        }
+        if (columns[PICKUP_DATETIME] < 0 || columns[DROPOFF_DATETIME] < 0) {
+            throw new IllegalArgumentException(
+                    "Not a taxi trip header, no pickup and dropoff time columns: [" + header + "]");
+        }
+
+        // Columns past the last known one are never tokenized
+        String[] columnNames = new String[width];
+        for (int column = 0; column < width; column++) {
+            columnNames[column] = "column" + column;
+        }
+        var missing = new ArrayList<String>();
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            if (columns[field] >= 0) {
+                columnNames[columns[field]] = FIELD_NAMES[field];
+            } else {
+                missing.add(FIELD_NAMES[field]);
+            }
+        }
+
+        log.info("Resolved CSV layout of {} columns, {} used, without {}",
+                names.length, FIELD_COUNT - missing.size(), missing);
+        return new TaxiCsvSchema(columns, columnNames);
+    }
+
+    private static String normalize(String name) {
+        var normalized = new StringBuilder(name.length());
+        for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * @return the source column of {@code field}, or {@code -1} if the file lacks it
+     */
+    int column(int field) {
+        return columns[field];
+    }
+
+    boolean has(int field) {
+        return columns[field] >= 0;
+    }
+
+    /**
+     * Number of leading columns holding every known field.
+     */
+    int width() {
+        return columnNames.length;
+    }
+
+    /**
+     * Field name of a source column, for error messages.
+     */
+    String columnName(int column) {
+        return columnNames[column];
+    }
+
+    /**
+     * Name-based {@code DelimitedLineTokenizer} mapping of this layout, used by the
+     * {@code delimited} parser and for the quoted records of the byte parser.
+     */
+    public DefaultLineMapper<TaxiCsvRow> lineMapper() {
+        DefaultLineMapper<TaxiCsvRow> mapper = lineMapper;
+        if (mapper == null) {
+            var tokenizer = new DelimitedLineTokenizer();
+            tokenizer.setDelimiter(",");
+            tokenizer.setStrict(false);
+            tokenizer.setNames(columnNames);
+
+            mapper = new DefaultLineMapper<>();
+            mapper.setLineTokenizer(tokenizer);
+            mapper.setFieldSetMapper(this::mapFieldSet);
+            lineMapper = mapper;
+        }
+        return mapper;
+    }
+
+    private TaxiCsvRow mapFieldSet(FieldSet fieldSet) {
+        return new TaxiCsvRow(
+                null, // lineNumber will be set by the reader
+                readInt(fieldSet, VENDOR_ID),
+                readDateTime(fieldSet, PICKUP_DATETIME),
+                readDateTime(fieldSet, DROPOFF_DATETIME),
+                readInt(fieldSet, PASSENGER_COUNT),
+                readDecimal(fieldSet, TRIP_DISTANCE),
+                readDecimal(fieldSet, PICKUP_LONGITUDE),
+                readDecimal(fieldSet, PICKUP_LATITUDE),
+                readInt(fieldSet, RATE_CODE_ID),
+                has(STORE_AND_FWD_FLAG) ? fieldSet.readString(FIELD_NAMES[STORE_AND_FWD_FLAG]) : null,
+                readDecimal(fieldSet, DROPOFF_LONGITUDE),
+                readDecimal(fieldSet, DROPOFF_LATITUDE),
+                readInt(fieldSet, PAYMENT_TYPE),
+                readDecimal(fieldSet, FARE_AMOUNT),
+                readDecimal(fieldSet, EXTRA),
+                readDecimal(fieldSet, MTA_TAX),
+                readDecimal(fieldSet, TIP_AMOUNT),
+                readDecimal(fieldSet, TOLLS_AMOUNT),
+                readDecimal(fieldSet, IMPROVEMENT_SURCHARGE),
+                readDecimal(fieldSet, TOTAL_AMOUNT),
+                readInt(fieldSet, PICKUP_LOCATION_ID),
+                readInt(fieldSet, DROPOFF_LOCATION_ID),
+                readDecimal(fieldSet, CONGESTION_SURCHARGE),
+                readDecimal(fieldSet, AIRPORT_FEE)
+        );
+    }
+
+    private Integer readInt(FieldSet fieldSet, int field) {
+        return has(field) ? fieldSet.readInt(FIELD_NAMES[field]) : null;
+    }
+
+    private BigDecimal readDecimal(FieldSet fieldSet, int field) {
+        return has(field) ? fieldSet.readBigDecimal(FIELD_NAMES[field]) : null;
+    }
+
+    private LocalDateTime readDateTime(FieldSet fieldSet, int field) {
+        var value = fieldSet.readString(FIELD_NAMES[field]);
+        return value == null || value.isBlank() ? null : LocalDateTime.parse(value, DATE_TIME);
+    }
+}
@@ -0,0 +1,53 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.reader;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripBlock;
+import org.springframework.core.io.Resource;
+
+/**
+ * Byte-level reader of the columnar mode: each item is a {@link TaxiTripBlock} of up to
+ * {@code blockSize} records parsed straight into primitive columns.
+ * <p>
+ * The same block instance is cleared and returned by every read, so it must be fully
+ * written before the next one; the columnar tasklet guarantees that.
+ */
+public class TaxiTripBlockItemReader extends AbstractCsvByteItemReader<TaxiTripBlock> {
+
+    private final TaxiCsvLineParser parser;
+    private final TaxiTripBlock block;
+
+    public TaxiTripBlockItemReader(Resource resource, TaxiCsvLineParser parser, int blockSize) {
+        super(resource);
+        this.parser = parser;
+        this.block = new TaxiTripBlock(blockSize);
+    }
+
+    /**
+     * Parses by the layout of the file's header from here on.
+     */
+    @Override
+    protected void onHeader(String header) {
+        parser.setSchema(TaxiCsvSchema.forHeader(header));
+    }
+
+    @Override
+    protected TaxiTripBlock doRead() throws Exception {
+        if (noInput) {
+            return null;
+        }
+
+        block.clear();
+        while (!block.isFull() && nextRecord()) {
+            try {
+                parser.parseInto(block, buf, lineStart, lineEnd, currentLineNumber(), lineCount);
+            } catch (Exception ex) {
+                throw parseError(ex);
+            }
+        }
+        return block.isEmpty() ? null : block;
+    }
+
+    @Override
+    protected int recordsPerItem() {
+        return block.capacity();
+    }
+}
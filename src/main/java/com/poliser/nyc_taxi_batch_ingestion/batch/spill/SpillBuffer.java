@@ -0,0 +1,363 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.spill;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.batch.infrastructure.support.transaction.ResourcelessTransactionManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local write-ahead buffer between the processors and the database: a chunk the database
+ * cannot take right now is appended to the {@link SpillLog} instead, and a drainer thread
+ * replays the log in order once the database is back.
+ * <p>
+ * A chunk goes to the database in its own transaction bounded by {@code writeTimeout}.
+ * When that fails because the database is unavailable or too slow (connection errors,
+ * timeouts, transient errors), the chunk is spilled and so is every chunk after it, until
+ * the drainer has written the whole backlog, so chunks reach the database in the order
+ * they were spilled. A backlog left by an earlier run is drained the same way before new
+ * chunks go to the database. The drainer uses the same writers, so replayed rows keep
+ * their {@code (source_file, line_number)} de-duplication. A chunk that fails for any other
+ * reason is quarantined next to the log. When the backlog reaches {@code quotaBytes},
+ * writers block until the drainer makes room, which holds the steps back.
+ * <p>
+ * Chunk steps run with {@link #stepTransactionManager} while the buffer is enabled, so a
+ * chunk commits once it is in the database or on disk. While {@link #isSpilling} the
+ * {@code CheckpointPolicy} defers the steps' metadata writes, which would otherwise fail
+ * on a database that is down. Callers writing inside their own database transaction
+ * always write through.
+ */
+public class SpillBuffer implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(SpillBuffer.class);
+
+    private final boolean enabled;
+    private final SpillLog spillLog;
+    private final Duration retryInterval;
+    private final ItemWriter<TaxiTripRaw> writer;
+    private final TaxiTripRejectWriter rejectWriter;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final PlatformTransactionManager stepTransactionManager = new ResourcelessTransactionManager();
+
+    private final Counter spilled;
+    private final Counter drained;
+    private final Counter quarantined;
+
+    // Set while chunks go to the spill log; cleared under the lock once its backlog is empty
+    private volatile boolean unavailable;
+    private volatile long oldestSpilledAt;
+    private volatile boolean running;
+    private Thread drainer;
+
+    /**
+     * @param writer       writer of the trip table, without reject handling
+     * @param writeTimeout limit of one chunk's database transaction
+     */
+    public SpillBuffer(
+            boolean enabled,
+            Path directory,
+            long segmentBytes,
+            long quotaBytes,
+            Duration writeTimeout,
+            Duration retryInterval,
+            ItemWriter<TaxiTripRaw> writer,
+            TaxiTripRejectWriter rejectWriter,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.spillLog = new SpillLog(directory, segmentBytes, quotaBytes);
+        this.retryInterval = retryInterval;
+        this.writer = writer;
+        this.rejectWriter = rejectWriter;
+        this.dataSource = dataSource;
+
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setTimeout(Math.toIntExact(Math.max(1, writeTimeout.toSeconds())));
+
+        spilled = meterRegistry.counter("batch.spill.chunks", "result", "spilled");
+        drained = meterRegistry.counter("batch.spill.chunks", "result", "drained");
+        quarantined = meterRegistry.counter("batch.spill.chunks", "result", "quarantined");
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("batch.spill.backlog.bytes", spillLog, SpillLog::backlogBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("batch.spill.backlog.chunks", spillLog, SpillLog::backlogChunks)
+                .register(registry);
+        Gauge.builder("batch.spill.backlog.age", this, buffer -> buffer.backlogAge().toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Transaction manager for the chunk steps: a resourceless one while the buffer is
+     * enabled, since chunks then commit their own database transactions.
+     */
+    public PlatformTransactionManager stepTransactionManager(PlatformTransactionManager transactionManager) {
+        return enabled ? stepTransactionManager : transactionManager;
+    }
+
+    /**
+     * Whether chunks go to the spill log, from the first failed write until the drainer has
+     * written the whole backlog.
+     */
+    public boolean isSpilling() {
+        return enabled && unavailable;
+    }
+
+    /**
+     * Number of spilled chunks not yet written to the database.
+     */
+    public long backlogChunks() {
+        return spillLog.backlogChunks();
+    }
+
+    /**
+     * Time since the oldest chunk of the backlog was spilled.
+     */
+    public Duration backlogAge() {
+        long since = oldestSpilledAt;
+        return since == 0 || spillLog.backlogChunks() == 0
+                ? Duration.ZERO
+                : Duration.ofMillis(Math.max(0, System.currentTimeMillis() - since));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        try {
+            spillLog.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to recover the spill log", e);
+        }
+        unavailable = spillLog.backlogChunks() > 0;
+        running = true;
+        drainer = Thread.ofPlatform().name("spill-drainer").daemon().start(this::drain);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (drainer != null) {
+            drainer.interrupt();
+            try {
+                drainer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            drainer = null;
+        }
+        try {
+            spillLog.close();
+        } catch (IOException e) {
+            log.warn("Unable to close the spill log", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Writes a chunk and its rejects to the database, or spills them if the database
+     * cannot take them.
+     */
+    public void write(List<? extends TaxiTripRaw> trips, List<TaxiTripReject> rejects) throws Exception {
+        if (!enabled || TransactionSynchronizationManager.hasResource(dataSource)) {
+            writeChunk(trips, rejects);
+            return;
+        }
+        while (true) {
+            if (unavailable && spill(trips, rejects)) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeChunk(trips, rejects));
+                return;
+            } catch (RuntimeException e) {
+                if (!isUnavailable(e)) {
+                    throw e;
+                }
+                synchronized (this) {
+                    if (!unavailable) {
+                        log.warn("Database unavailable, spilling chunks to disk: {}", e.toString());
+                        unavailable = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the chunk to the log, waiting for room while the backlog is at its quota.
+     *
+     * @return {@code false} if the backlog drained meanwhile and the chunk may go to the
+     *         database
+     */
+    private boolean spill(List<? extends TaxiTripRaw> trips, List<TaxiTripReject> rejects)
+            throws IOException, InterruptedException {
+        byte[] payload = SpillCodec.encode(trips, rejects);
+        boolean waiting = false;
+        while (true) {
+            synchronized (this) {
+                if (!unavailable) {
+                    return false;
+                }
+                long now = System.currentTimeMillis();
+                if (spillLog.append(payload, now)) {
+                    if (oldestSpilledAt == 0) {
+                        oldestSpilledAt = now;
+                    }
+                    spilled.increment();
+                    return true;
+                }
+            }
+            if (!running) {
+                throw new IllegalStateException("Spill backlog at its quota and the drainer is stopped");
+            }
+            if (!waiting) {
+                log.warn("Spill backlog at its quota of {} bytes, waiting for the drainer", spillLog.backlogBytes());
+                waiting = true;
+            }
+            sleep(retryInterval);
+        }
+    }
+
+    private void writeChunk(List<? extends TaxiTripRaw> trips, List<TaxiTripReject> rejects) {
+        rejectWriter.write(rejects);
+        if (!trips.isEmpty()) {
+            try {
+                writer.write(new Chunk<>(trips));
+            } catch (Exception e) {
+                throw e instanceof RuntimeException runtime
+                        ? runtime
+                        : new IllegalStateException("Unable to write chunk", e);
+            }
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                SpillLog.Record record = spillLog.peek();
+                if (record == null) {
+                    oldestSpilledAt = 0;
+                    sleep(retryInterval);
+                    continue;
+                }
+                oldestSpilledAt = record.spilledAt();
+
+                SpilledChunk chunk;
+                try {
+                    chunk = SpillCodec.decode(record.payload(), record.spilledAt());
+                } catch (IOException | RuntimeException e) {
+                    log.error("Unable to decode a spilled chunk", e);
+                    spillLog.quarantine(record);
+                    quarantined.increment();
+                    continue;
+                }
+
+                try {
+                    transactionTemplate.executeWithoutResult(status -> writeChunk(chunk.trips(), chunk.rejects()));
+                } catch (RuntimeException e) {
+                    if (isUnavailable(e)) {
+                        log.debug("Database still unavailable, retrying in {}", retryInterval);
+                        sleep(retryInterval);
+                    } else {
+                        log.error("Unable to write a spilled chunk of {} rows", chunk.trips().size(), e);
+                        spillLog.quarantine(record);
+                        quarantined.increment();
+                    }
+                    continue;
+                }
+
+                spillLog.advance(record);
+                drained.increment();
+                synchronized (this) {
+                    if (unavailable && spillLog.backlogChunks() == 0) {
+                        log.info("Spill backlog drained, writing to the database again");
+                        unavailable = false;
+                    }
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("Unable to read the spill log", e);
+                try {
+                    sleep(retryInterval);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether a write failed because the database is unreachable, overloaded or too slow,
+     * as opposed to a problem with the rows.
+     */
+    static boolean isUnavailable(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof TransientDataAccessException
+                    || e instanceof DataAccessResourceFailureException
+                    || e instanceof RecoverableDataAccessException
+                    || e instanceof CannotCreateTransactionException
+                    || e instanceof TransactionTimedOutException) {
+                return true;
+            }
+            // Connection (08), resources (53), operator intervention such as a cancelled
+            // statement (57), serialization failures and deadlocks (40)
+            if (e instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().length() >= 2
+                    && List.of("08", "53", "57", "40").contains(sql.getSQLState().substring(0, 2))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(Duration duration) throws InterruptedException {
+        Thread.sleep(duration);
+    }
+}
@@ -0,0 +1,199 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.spill;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.RejectReason;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of a spilled chunk: its trips and rejects, with source file names written
+ * once per chunk and a null mask per trip instead of per-field markers.
+ */
+final class SpillCodec {
+
+    private static final RejectReason[] REASONS = RejectReason.values();
+
+    private SpillCodec() {
+    }
+
+    static byte[] encode(List<? extends TaxiTripRaw> trips, List<TaxiTripReject> rejects) throws IOException {
+        var bytes = new ByteArrayOutputStream(64 + trips.size() * 96);
+        var out = new DataOutputStream(bytes);
+        var files = new HashMap<String, Integer>();
+
+        out.writeInt(trips.size());
+        for (TaxiTripRaw trip : trips) {
+            writeFile(out, files, trip.sourceFile());
+            out.writeLong(trip.lineNumber());
+            Object[] fields = fields(trip);
+            int nulls = 0;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] == null) {
+                    nulls |= 1 << i;
+                }
+            }
+            out.writeInt(nulls);
+            for (Object field : fields) {
+                switch (field) {
+                    case null -> { }
+                    case Integer value -> out.writeInt(value);
+                    case BigDecimal value -> writeDecimal(out, value);
+                    case LocalDateTime value -> {
+                        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+                        out.writeInt(value.getNano());
+                    }
+                    case String value -> out.writeUTF(value);
+                    default -> throw new IllegalStateException("Unexpected field " + field.getClass());
+                }
+            }
+        }
+
+        out.writeInt(rejects.size());
+        for (TaxiTripReject reject : rejects) {
+            writeFile(out, files, reject.sourceFile());
+            out.writeLong(reject.lineNumber());
+            out.writeByte(reject.reason().ordinal());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static SpilledChunk decode(byte[] payload, long spilledAt) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(payload));
+        var files = new ArrayList<String>();
+
+        int tripCount = in.readInt();
+        var trips = new ArrayList<TaxiTripRaw>(tripCount);
+        for (int t = 0; t < tripCount; t++) {
+            String sourceFile = readFile(in, files);
+            long lineNumber = in.readLong();
+            int nulls = in.readInt();
+            trips.add(new TaxiTripRaw(
+                    sourceFile,
+                    lineNumber,
+                    readInt(in, nulls, 0),
+                    readDateTime(in, nulls, 1),
+                    readDateTime(in, nulls, 2),
+                    readInt(in, nulls, 3),
+                    readDecimal(in, nulls, 4),
+                    readDecimal(in, nulls, 5),
+                    readDecimal(in, nulls, 6),
+                    readDecimal(in, nulls, 7),
+                    readDecimal(in, nulls, 8),
+                    readInt(in, nulls, 9),
+                    readInt(in, nulls, 10),
+                    readInt(in, nulls, 11),
+                    (nulls & 1 << 12) != 0 ? null : in.readUTF(),
+                    readInt(in, nulls, 13),
+                    readDecimal(in, nulls, 14),
+                    readDecimal(in, nulls, 15),
+                    readDecimal(in, nulls, 16),
+                    readDecimal(in, nulls, 17),
+                    readDecimal(in, nulls, 18),
+                    readDecimal(in, nulls, 19),
+                    readDecimal(in, nulls, 20),
+                    readDecimal(in, nulls, 21),
+                    readDecimal(in, nulls, 22)));
+        }
+
+        int rejectCount = in.readInt();
+        var rejects = new ArrayList<TaxiTripReject>(rejectCount);
+        for (int r = 0; r < rejectCount; r++) {
+            rejects.add(new TaxiTripReject(readFile(in, files), in.readLong(), REASONS[in.readByte()]));
+        }
+        return new SpilledChunk(trips, rejects, spilledAt);
+    }
+
+    // Fields after the line number, in record order; decode() reads them in the same order
+    private static Object[] fields(TaxiTripRaw trip) {
+        return new Object[] {
+                trip.vendorId(),
+                trip.pickupDatetime(),
+                trip.dropoffDatetime(),
+                trip.passengerCount(),
+                trip.tripDistance(),
+                trip.pickupLongitude(),
+                trip.pickupLatitude(),
+                trip.dropoffLongitude(),
+                trip.dropoffLatitude(),
+                trip.pickupLocationId(),
+                trip.dropoffLocationId(),
+                trip.rateCodeId(),
+                trip.storeAndFwdFlag(),
+                trip.paymentType(),
+                trip.fareAmount(),
+                trip.extra(),
+                trip.mtaTax(),
+                trip.tipAmount(),
+                trip.tollsAmount(),
+                trip.improvementSurcharge(),
+                trip.totalAmount(),
+                trip.congestionSurcharge(),
+                trip.airportFee()
+        };
+    }
+
+    /**
+     * Index of a file already written in this chunk, or -1 followed by its name.
+     */
+    private static void writeFile(DataOutputStream out, Map<String, Integer> files, String file) throws IOException {
+        Integer index = files.get(file);
+        if (index != null) {
+            out.writeInt(index);
+            return;
+        }
+        files.put(file, files.size());
+        out.writeInt(-1);
+        out.writeUTF(file);
+    }
+
+    private static String readFile(DataInputStream in, List<String> files) throws IOException {
+        int index = in.readInt();
+        if (index >= 0) {
+            return files.get(index);
+        }
+        String file = in.readUTF();
+        files.add(file);
+        return file;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeShort(value.scale());
+        out.writeShort(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static Integer readInt(DataInputStream in, int nulls, int field) throws IOException {
+        return (nulls & 1 << field) != 0 ? null : in.readInt();
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in, int nulls, int field) throws IOException {
+        if ((nulls & 1 << field) != 0) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in, int nulls, int field) throws IOException {
+        if ((nulls & 1 << field) != 0) {
+            return null;
+        }
+        int scale = in.readShort();
+        byte[] unscaled = in.readNBytes(in.readUnsignedShort());
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
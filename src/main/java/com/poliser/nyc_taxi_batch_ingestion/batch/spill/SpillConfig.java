@@ -0,0 +1,52 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.spill;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class SpillConfig {
+
+    /**
+     * Recovers the spill log and starts draining it with the application when
+     * {@code taxi.ingestion.spill.enabled=true}.
+     */
+    @Bean
+    public SpillBuffer spillBuffer(
+            @Value("${taxi.ingestion.spill.enabled:false}") boolean enabled,
+            @Value("${taxi.ingestion.spill.directory:data/spill}") String directory,
+            @Value("${taxi.ingestion.spill.segment-mb:64}") long segmentMegabytes,
+            @Value("${taxi.ingestion.spill.quota-mb:4096}") long quotaMegabytes,
+            @Value("${taxi.ingestion.spill.write-timeout-seconds:10}") long writeTimeoutSeconds,
+            @Value("${taxi.ingestion.spill.retry-ms:1000}") long retryMillis,
+            @Qualifier("taxiTripTableWriter") ItemWriter<TaxiTripRaw> tableWriter,
+            TaxiTripRejectWriter rejectWriter,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        return new SpillBuffer(
+                enabled,
+                Path.of(directory),
+                segmentMegabytes * 1024 * 1024,
+                quotaMegabytes * 1024 * 1024,
+                Duration.ofSeconds(writeTimeoutSeconds),
+                Duration.ofMillis(retryMillis),
+                tableWriter,
+                rejectWriter,
+                dataSource,
+                transactionManager,
+                meterRegistry
+        );
+    }
+}
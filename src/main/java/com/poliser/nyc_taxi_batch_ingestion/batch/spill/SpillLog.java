@@ -0,0 +1,359 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.spill;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of spilled chunks in segment files {@code spill-<sequence>.seg}.
+ * <p>
+ * A segment starts with a magic number, followed by records of
+ * {@code [length][crc32c][spilledAt][payload]}; the checksum covers the timestamp and the
+ * payload. Every append is forced to disk before it returns, and so is the directory
+ * entry of every new segment. On {@link #recover} a segment is cut at its first record
+ * that is incomplete or fails its checksum, which is where a crash interrupted an append.
+ * <p>
+ * Appends may come from any thread; {@link #peek}, {@link #advance} and
+ * {@link #quarantine} belong to the single draining thread. A segment is deleted once
+ * drained, so what is on disk is the backlog; drained records of the head segment are not
+ * remembered across restarts and are replayed.
+ */
+final class SpillLog {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(SpillLog.class);
+
+    private static final long MAGIC = 0x5441584953504C31L; // "TAXISPL1"
+    private static final int MAGIC_SIZE = Long.BYTES;
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final String PREFIX = "spill-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long quotaBytes;
+
+    // Guarded by this
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Segment active;
+    private FileChannel activeChannel;
+    private long nextSequence;
+    private long backlogBytes;
+    private long backlogChunks;
+
+    // Draining thread only
+    private Segment reading;
+    private FileChannel readChannel;
+    private long readPosition;
+
+    SpillLog(Path directory, long segmentBytes, long quotaBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.quotaBytes = quotaBytes;
+    }
+
+    /**
+     * Loads the segments left by a previous run, cutting each at its last valid record.
+     */
+    synchronized void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name, PREFIX.length(), name.length() - SUFFIX.length(), 10);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+
+            var segment = new Segment(sequence, file);
+            long records = scan(segment);
+            if (records == 0) {
+                Files.delete(file);
+                continue;
+            }
+            segments.addLast(segment);
+            backlogBytes += segment.size - MAGIC_SIZE;
+            backlogChunks += records;
+        }
+        if (backlogChunks > 0) {
+            log.info("Recovered a spill backlog of {} chunks ({} bytes) in [{}]",
+                    backlogChunks, backlogBytes, directory);
+        }
+    }
+
+    /**
+     * Validates a segment's records, truncating it after the last valid one.
+     *
+     * @return the number of valid records
+     */
+    private long scan(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fileSize = channel.size();
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC_SIZE);
+            if (fileSize < MAGIC_SIZE || readFully(channel, magic, 0) < MAGIC_SIZE || magic.getLong(0) != MAGIC) {
+                log.warn("[{}] is not a spill segment, ignoring it", segment.path);
+                return 0;
+            }
+
+            long position = MAGIC_SIZE;
+            long records = 0;
+            Record record;
+            while ((record = read(channel, position, fileSize)) != null) {
+                position += record.size();
+                records++;
+            }
+            if (position < fileSize) {
+                log.warn("Cutting [{}] at byte {} of {}: incomplete or corrupt record",
+                        segment.path, position, fileSize);
+                channel.truncate(position);
+                channel.force(true);
+            }
+            segment.size = position;
+            return records;
+        }
+    }
+
+    /**
+     * @return {@code false} if the record does not fit the quota
+     */
+    synchronized boolean append(byte[] payload, long spilledAt) throws IOException {
+        long size = HEADER_SIZE + payload.length;
+        if (backlogBytes + size > quotaBytes) {
+            return false;
+        }
+        if (active == null || (active.size > MAGIC_SIZE && active.size + size > segmentBytes)) {
+            roll();
+        }
+
+        var crc = new CRC32C();
+        ByteBuffer record = ByteBuffer.allocate((int) size);
+        record.putInt(payload.length).putInt(0).putLong(spilledAt).put(payload);
+        crc.update(record.array(), 2 * Integer.BYTES, Long.BYTES + payload.length);
+        record.putInt(Integer.BYTES, (int) crc.getValue()).flip();
+
+        long position = active.size;
+        while (record.hasRemaining()) {
+            position += activeChannel.write(record, position);
+        }
+        activeChannel.force(false);
+
+        active.size = position;
+        backlogBytes += size;
+        backlogChunks++;
+        return true;
+    }
+
+    private void roll() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+        var segment = new Segment(nextSequence++,
+                directory.resolve(PREFIX + String.format("%016d", nextSequence - 1) + SUFFIX));
+        activeChannel = FileChannel.open(segment.path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC_SIZE).putLong(0, MAGIC);
+        while (magic.hasRemaining()) {
+            activeChannel.write(magic);
+        }
+        activeChannel.force(true);
+        forceDirectory();
+        segment.size = MAGIC_SIZE;
+        active = segment;
+        segments.addLast(segment);
+    }
+
+    /**
+     * Forces the directory entry of a new segment, without which the segment itself may be
+     * lost in a crash.
+     */
+    private void forceDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * The oldest record not drained yet, or {@code null} when the backlog is empty.
+     */
+    Record peek() throws IOException {
+        while (true) {
+            Segment head;
+            synchronized (this) {
+                head = segments.peekFirst();
+            }
+            if (head == null) {
+                return null;
+            }
+            if (head != reading) {
+                openForReading(head);
+            }
+
+            Record record = read(readChannel, readPosition, head.size);
+            if (record != null) {
+                return record;
+            }
+            if (!dropIfDrained(head)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Marks the record returned by {@link #peek} as drained.
+     */
+    void advance(Record record) throws IOException {
+        readPosition += record.size();
+        synchronized (this) {
+            backlogBytes -= record.size();
+            backlogChunks--;
+        }
+        dropIfDrained(reading);
+    }
+
+    /**
+     * Moves a record that cannot be written aside to {@code failed-<sequence>-<offset>.seg},
+     * a one-record segment, and drains it.
+     */
+    void quarantine(Record record) throws IOException {
+        Path failed = directory.resolve("failed-%016d-%d%s".formatted(reading.sequence, readPosition, SUFFIX));
+        ByteBuffer bytes = ByteBuffer.allocate(MAGIC_SIZE + record.size()).putLong(MAGIC);
+        readFully(readChannel, bytes, readPosition);
+        Files.write(failed, bytes.array());
+        log.error("Quarantined a spilled chunk as [{}]", failed);
+        advance(record);
+    }
+
+    /**
+     * Deletes the head segment once all of it is drained and nothing appends to it.
+     *
+     * @return {@code true} if it was deleted
+     */
+    private boolean dropIfDrained(Segment segment) throws IOException {
+        synchronized (this) {
+            if (readPosition < segment.size) {
+                return false;
+            }
+            if (segment == active) {
+                activeChannel.close();
+                activeChannel = null;
+                active = null;
+            }
+            segments.remove(segment);
+        }
+        readChannel.close();
+        readChannel = null;
+        reading = null;
+        Files.deleteIfExists(segment.path);
+        return true;
+    }
+
+    private void openForReading(Segment segment) throws IOException {
+        if (readChannel != null) {
+            readChannel.close();
+        }
+        readChannel = FileChannel.open(segment.path, StandardOpenOption.READ);
+        reading = segment;
+        readPosition = MAGIC_SIZE;
+    }
+
+    /**
+     * The valid record at {@code position}, or {@code null} if none ends before {@code limit}.
+     */
+    private static Record read(FileChannel channel, long position, long limit) throws IOException {
+        if (limit - position < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (readFully(channel, header, position) < HEADER_SIZE) {
+            return null;
+        }
+        int length = header.getInt(0);
+        int checksum = header.getInt(Integer.BYTES);
+        long spilledAt = header.getLong(2 * Integer.BYTES);
+        if (length < 0 || length > limit - position - HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        if (readFully(channel, payload, position + HEADER_SIZE) < length) {
+            return null;
+        }
+        var crc = new CRC32C();
+        crc.update(header.array(), 2 * Integer.BYTES, Long.BYTES);
+        crc.update(payload.array());
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        return new Record(spilledAt, payload.array());
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    synchronized long backlogBytes() {
+        return backlogBytes;
+    }
+
+    synchronized long backlogChunks() {
+        return backlogChunks;
+    }
+
+    synchronized void close() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+            activeChannel = null;
+            active = null;
+        }
+        if (readChannel != null) {
+            readChannel.close();
+            readChannel = null;
+            reading = null;
+        }
+    }
+
+    record Record(long spilledAt, byte[] payload) {
+
+        int size() {
+            return HEADER_SIZE + payload.length;
+        }
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final Path path;
+        private volatile long size;
+
+        private Segment(long sequence, Path path) {
+            this.sequence = sequence;
+            this.path = path;
+        }
+    }
+}
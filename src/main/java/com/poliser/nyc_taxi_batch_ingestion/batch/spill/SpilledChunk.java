@@ -0,0 +1,12 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.spill;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+
+import java.util.List;
+
+/**
+ * A chunk read back from the {@link SpillLog}, with the time it was spilled.
+ */
+record SpilledChunk(List<TaxiTripRaw> trips, List<TaxiTripReject> rejects, long spilledAt) {
+}
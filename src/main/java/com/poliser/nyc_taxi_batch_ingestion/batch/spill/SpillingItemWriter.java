@@ -0,0 +1,26 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.spill;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+
+/**
+ * Hands every chunk with the rejects collected while processing it to the
+ * {@link SpillBuffer}, which writes both to the database or spills both to disk.
+ */
+public class SpillingItemWriter implements ItemWriter<TaxiTripRaw> {
+
+    private final SpillBuffer spillBuffer;
+    private final RejectBuffer rejectBuffer;
+
+    public SpillingItemWriter(SpillBuffer spillBuffer, RejectBuffer rejectBuffer) {
+        this.spillBuffer = spillBuffer;
+        this.rejectBuffer = rejectBuffer;
+    }
+
+    @Override
+    public void write(Chunk<? extends TaxiTripRaw> chunk) throws Exception {
+        spillBuffer.write(chunk.getItems(), rejectBuffer.drain());
+    }
+}
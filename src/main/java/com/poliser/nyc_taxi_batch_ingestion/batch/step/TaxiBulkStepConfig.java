@@ -0,0 +1,96 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.step;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.BulkMergeTasklet;
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.BulkStagePrepareTasklet;
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.BulkStageRecoveryListener;
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.LoadModeDecider;
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.StepMetricsListener;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.listener.StepListener;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.Step;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.batch.infrastructure.item.ItemStreamReader;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Steps of the bulk mode: prepare an UNLOGGED staging table, COPY the file into it and
+ * merge it into {@code ingestion.taxi_trip_raw} in one statement.
+ */
+@Configuration
+public class TaxiBulkStepConfig {
+
+    private static final int CHUNK_SIZE = 10_000;
+
+    @Bean
+    public LoadModeDecider loadModeDecider() {
+        return new LoadModeDecider();
+    }
+
+    @Bean
+    public Step taxiBulkPrepareStep(
+            JobRepository jobRepository,
+            PlatformTransactionManager transactionManager,
+            DataSource dataSource,
+            MeterRegistry meterRegistry
+    ) {
+        return new StepBuilder("taxiBulkPrepareStep", jobRepository)
+                .tasklet(new BulkStagePrepareTasklet(dataSource), transactionManager)
+                .listener((StepExecutionListener) new StepMetricsListener(meterRegistry, "prepare"))
+                .build();
+    }
+
+    @Bean
+    public Step taxiBulkLoadStep(
+            JobRepository jobRepository,
+            PlatformTransactionManager transactionManager,
+            DataSource dataSource,
+            @Qualifier("taxiCsvReader") ItemStreamReader<TaxiCsvRow> reader,
+            ItemProcessor<TaxiCsvRow, TaxiTripRaw> processor,
+            @Qualifier("taxiTripStageWriter") ItemWriter<TaxiTripRaw> writer,
+            @Qualifier("batchTaskExecutor") AsyncTaskExecutor batchTaskExecutor,
+            MeterRegistry meterRegistry
+    ) {
+        var stageRecovery = new BulkStageRecoveryListener(dataSource);
+
+        return new StepBuilder("taxiBulkLoadStep", jobRepository)
+                .<TaxiCsvRow, TaxiTripRaw>chunk(CHUNK_SIZE)
+                .transactionManager(transactionManager)
+                .reader(reader)
+                .processor(processor)
+                .writer(writer)
+                .taskExecutor(batchTaskExecutor)
+                .stream(stageRecovery)
+                .listener(stageRecovery)
+                .listener((StepListener) new StepMetricsListener(meterRegistry, "load"))
+                .build();
+    }
+
+    @Bean
+    public Step taxiBulkMergeStep(
+            JobRepository jobRepository,
+            PlatformTransactionManager transactionManager,
+            DataSource dataSource,
+            @Value("${taxi.ingestion.bulk.maintenance-workers:4}") int maintenanceWorkers,
+            @Value("${taxi.ingestion.bulk.maintenance-work-mem:1GB}") String maintenanceWorkMem,
+            MeterRegistry meterRegistry
+    ) {
+        return new StepBuilder("taxiBulkMergeStep", jobRepository)
+                .tasklet(new BulkMergeTasklet(dataSource, maintenanceWorkers, maintenanceWorkMem),
+                        transactionManager)
+                .listener((StepExecutionListener) new StepMetricsListener(meterRegistry, "merge"))
+                .build();
+    }
+}
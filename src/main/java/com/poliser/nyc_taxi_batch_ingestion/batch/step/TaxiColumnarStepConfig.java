@@ -0,0 +1,42 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.step;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.StepMetricsListener;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.TaxiTripBlockProcessor;
+import com.poliser.nyc_taxi_batch_ingestion.batch.reader.TaxiTripBlockItemReader;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripBlock;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.Step;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Columnar mode: whole blocks of trips travel from reader to writer as primitive arrays.
+ */
+@Configuration
+public class TaxiColumnarStepConfig {
+
+    @Bean
+    public Step taxiTripColumnarStep(
+            JobRepository jobRepository,
+            PlatformTransactionManager transactionManager,
+            TaxiTripBlockItemReader taxiTripBlockReader,
+            TaxiTripBlockProcessor taxiTripBlockProcessor,
+            @Qualifier("taxiTripBlockWriter") ItemWriter<TaxiTripBlock> taxiTripBlockWriter,
+            MeterRegistry meterRegistry
+    ) {
+        var tasklet = new TaxiTripBlockTasklet(
+                taxiTripBlockReader, taxiTripBlockProcessor, taxiTripBlockWriter);
+
+        return new StepBuilder("taxiTripColumnarStep", jobRepository)
+                .tasklet(tasklet, transactionManager)
+                .stream(taxiTripBlockReader)
+                .listener((StepExecutionListener) new StepMetricsListener(meterRegistry))
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.step;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.StepMetricsListener;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.FileFingerprintListener;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.FileFingerprintStore;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFilePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.batch.spill.SpillBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.listener.StepListener;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.Step;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.batch.infrastructure.item.ItemStreamReader;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Multi-file mode: a directory or glob given as the {@code source} job parameter is split
+ * into one partition per file, each ingested by its own worker step. The
+ * {@code fileTaskExecutor} runs up to {@code taxi.ingestion.files.concurrency} of them at
+ * once; the partitioner ignores the grid size.
+ */
+@Configuration
+public class TaxiFileStepConfig {
+
+    private static final int CHUNK_SIZE = 1_000;
+
+    @Bean
+    public FileFingerprintStore fileFingerprintStore(DataSource dataSource) {
+        return new FileFingerprintStore(dataSource);
+    }
+
+    @Bean
+    @StepScope
+    public SourceFilePartitioner sourceFilePartitioner(
+            @Value("#{jobParameters['" + SourceFilePartitioner.SOURCE_PARAMETER + "']}") String source,
+            FileFingerprintStore fileFingerprintStore
+    ) {
+        return new SourceFilePartitioner(source, fileFingerprintStore);
+    }
+
+    @Bean
+    public Step taxiTripFilesStep(
+            JobRepository jobRepository,
+            SourceFilePartitioner sourceFilePartitioner,
+            @Qualifier("taxiTripFileWorkerStep") Step workerStep,
+            @Qualifier("fileTaskExecutor") AsyncTaskExecutor fileTaskExecutor,
+            MeterRegistry meterRegistry
+    ) {
+        return new StepBuilder("taxiTripFilesStep", jobRepository)
+                .partitioner("taxiTripFileWorkerStep", sourceFilePartitioner)
+                .step(workerStep)
+                .taskExecutor(fileTaskExecutor)
+                .listener(new StepMetricsListener(meterRegistry))
+                .build();
+    }
+
+    @Bean
+    public Step taxiTripFileWorkerStep(
+            JobRepository jobRepository,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("taxiCsvFileReader") ItemStreamReader<TaxiCsvRow> reader,
+            ItemProcessor<TaxiCsvRow, TaxiTripRaw> processor,
+            @Qualifier("taxiTripWriter") ItemWriter<TaxiTripRaw> writer,
+            FileFingerprintStore fileFingerprintStore,
+            SpillBuffer spillBuffer,
+            MeterRegistry meterRegistry
+    ) {
+        return new StepBuilder("taxiTripFileWorkerStep", jobRepository)
+                .<TaxiCsvRow, TaxiTripRaw>chunk(CHUNK_SIZE)
+                .transactionManager(spillBuffer.stepTransactionManager(transactionManager))
+                .reader(reader)
+                .processor(processor)
+                .writer(writer)
+                .listener((StepExecutionListener) new FileFingerprintListener(fileFingerprintStore))
+                .listener((StepListener) new StepMetricsListener(meterRegistry))
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.step;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.StepMetricsListener;
+import com.poliser.nyc_taxi_batch_ingestion.batch.pipeline.AdaptiveChunkController;
+import com.poliser.nyc_taxi_batch_ingestion.batch.pipeline.PipelineSettings;
+import com.poliser.nyc_taxi_batch_ingestion.batch.pipeline.PipelinedChunkTasklet;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.Step;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.batch.infrastructure.item.ItemStreamReader;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.batch.infrastructure.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Pipelined mode: the chunked step's reader, processor and writer run as separate stages
+ * so reading and parsing never wait on a commit.
+ */
+@Configuration
+public class TaxiPipelinedStepConfig {
+
+    private static final String STEP_NAME = "taxiTripPipelinedStep";
+
+    @Bean
+    public PipelineSettings taxiTripPipelineSettings(
+            @Value("${taxi.ingestion.pipeline.chunk-size:1000}") int chunkSize,
+            @Value("${taxi.ingestion.pipeline.buffer-size:8}") int bufferSize,
+            @Value("${taxi.ingestion.pipeline.process-threads:0}") int processThreads,
+            @Value("${taxi.ingestion.pipeline.write-threads:2}") int writeThreads
+    ) {
+        return new PipelineSettings(
+                chunkSize,
+                bufferSize,
+                processThreads > 0 ? processThreads : Runtime.getRuntime().availableProcessors(),
+                writeThreads);
+    }
+
+    /**
+     * Registered as a {@code MeterBinder}, so its gauges appear with the step metrics.
+     */
+    @Bean
+    public AdaptiveChunkController taxiTripChunkController(
+            PipelineSettings taxiTripPipelineSettings,
+            @Value("${taxi.ingestion.pipeline.adaptive.enabled:false}") boolean enabled,
+            @Value("${taxi.ingestion.pipeline.adaptive.min-chunk-size:250}") int minChunkSize,
+            @Value("${taxi.ingestion.pipeline.adaptive.max-chunk-size:20000}") int maxChunkSize,
+            @Value("${taxi.ingestion.pipeline.adaptive.min-writers:1}") int minWriters,
+            @Value("${taxi.ingestion.pipeline.adaptive.target-commit-ms:500}") long targetCommitMillis,
+            @Value("${taxi.ingestion.pipeline.adaptive.window:8}") int window
+    ) {
+        return new AdaptiveChunkController(
+                STEP_NAME,
+                enabled,
+                taxiTripPipelineSettings.chunkSize(),
+                minChunkSize,
+                maxChunkSize,
+                taxiTripPipelineSettings.writeThreads(),
+                minWriters,
+                targetCommitMillis,
+                window);
+    }
+
+    @Bean
+    public PipelinedChunkTasklet<TaxiCsvRow, TaxiTripRaw> taxiTripPipelineTasklet(
+            @Qualifier("taxiCsvReader") ItemStreamReader<TaxiCsvRow> reader,
+            ItemProcessor<TaxiCsvRow, TaxiTripRaw> processor,
+            @Qualifier("taxiTripTableWriter") ItemWriter<TaxiTripRaw> writer,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("pipelineTaskExecutor") AsyncTaskExecutor pipelineTaskExecutor,
+            PipelineSettings taxiTripPipelineSettings,
+            AdaptiveChunkController taxiTripChunkController,
+            MeterRegistry meterRegistry
+    ) {
+        return new PipelinedChunkTasklet<>(
+                reader, processor, writer, rejectBuffer, rejectWriter,
+                transactionManager, pipelineTaskExecutor, taxiTripPipelineSettings,
+                taxiTripChunkController, meterRegistry);
+    }
+
+    @Bean
+    public Step taxiTripPipelinedStep(
+            JobRepository jobRepository,
+            PipelinedChunkTasklet<TaxiCsvRow, TaxiTripRaw> taxiTripPipelineTasklet,
+            MeterRegistry meterRegistry
+    ) {
+        return new StepBuilder(STEP_NAME, jobRepository)
+                // The write threads commit the chunks; the step thread would only hold a
+                // connection while it waits for them
+                .tasklet(taxiTripPipelineTasklet, new ResourcelessTransactionManager())
+                .stream(taxiTripPipelineTasklet)
+                .listener((StepExecutionListener) new StepMetricsListener(meterRegistry))
+                .build();
+    }
+}
@@ -1,20 +1,27 @@
 package com.poliser.nyc_taxi_batch_ingestion.batch.step;
 
 import com.poliser.nyc_taxi_batch_ingestion.batch.observability.StepMetricsListener;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.ByteRangePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.batch.spill.SpillBuffer;
 import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
 import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
 import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.core.listener.StepListener;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.Step;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.infrastructure.item.ItemProcessor;
 import org.springframework.batch.infrastructure.item.ItemStreamReader;
-import org.springframework.batch.infrastructure.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import java.nio.file.Path;
+
 @Configuration
 public class TaxiStepConfig {
 
@@ -24,23 +31,70 @@ public class TaxiStepConfig {
     public Step taxiTripIngestionStep(
             JobRepository jobRepository,
             PlatformTransactionManager transactionManager,
-            ItemStreamReader<TaxiCsvRow> reader,
+            @Qualifier("taxiCsvReader") ItemStreamReader<TaxiCsvRow> reader,
             ItemProcessor<TaxiCsvRow, TaxiTripRaw> processor,
-            JdbcBatchItemWriter<TaxiTripRaw> writer,
-            AsyncTaskExecutor batchTaskExecutor,
+            @Qualifier("taxiTripWriter") ItemWriter<TaxiTripRaw> writer,
+            @Qualifier("batchTaskExecutor") AsyncTaskExecutor batchTaskExecutor,
+            SpillBuffer spillBuffer,
             MeterRegistry meterRegistry
     ) {
         return new StepBuilder("taxiTripIngestionStep", jobRepository)
                 .<TaxiCsvRow, TaxiTripRaw>chunk(CHUNK_SIZE)
-                .transactionManager(transactionManager)
+                .transactionManager(spillBuffer.stepTransactionManager(transactionManager))
                 .reader(reader)
                 .processor(processor)
                 .writer(writer)
                 .taskExecutor(batchTaskExecutor)
+                .listener((StepListener) new StepMetricsListener(meterRegistry))
+                .build();
+    }
+
+    @Bean
+    public ByteRangePartitioner byteRangePartitioner(
+            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile
+    ) {
+        return new ByteRangePartitioner(Path.of(sourceFile), 1);
+    }
+
+    /**
+     * Manager step of the partitioned mode: each byte range runs as its own worker step
+     * execution on a dedicated thread, with its own reader and no shared lock.
+     */
+    @Bean
+    public Step taxiTripPartitionedStep(
+            JobRepository jobRepository,
+            ByteRangePartitioner byteRangePartitioner,
+            @Qualifier("taxiTripPartitionWorkerStep") Step workerStep,
+            @Qualifier("partitionTaskExecutor") AsyncTaskExecutor partitionTaskExecutor,
+            @Value("${taxi.ingestion.partition.grid-size:0}") int gridSize,
+            MeterRegistry meterRegistry
+    ) {
+        return new StepBuilder("taxiTripPartitionedStep", jobRepository)
+                .partitioner("taxiTripPartitionWorkerStep", byteRangePartitioner)
+                .step(workerStep)
+                .gridSize(gridSize > 0 ? gridSize : Runtime.getRuntime().availableProcessors())
+                .taskExecutor(partitionTaskExecutor)
                 .listener(new StepMetricsListener(meterRegistry))
-                .faultTolerant()
-                .skip(IllegalArgumentException.class)
-                .skipLimit(100_000)
+                .build();
+    }
+
+    @Bean
+    public Step taxiTripPartitionWorkerStep(
+            JobRepository jobRepository,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("taxiCsvPartitionReader") ItemStreamReader<TaxiCsvRow> reader,
+            ItemProcessor<TaxiCsvRow, TaxiTripRaw> processor,
+            @Qualifier("taxiTripWriter") ItemWriter<TaxiTripRaw> writer,
+            SpillBuffer spillBuffer,
+            MeterRegistry meterRegistry
+    ) {
+        return new StepBuilder("taxiTripPartitionWorkerStep", jobRepository)
+                .<TaxiCsvRow, TaxiTripRaw>chunk(CHUNK_SIZE)
+                .transactionManager(spillBuffer.stepTransactionManager(transactionManager))
+                .reader(reader)
+                .processor(processor)
+                .writer(writer)
+                .listener((StepListener) new StepMetricsListener(meterRegistry))
                 .build();
     }
 }
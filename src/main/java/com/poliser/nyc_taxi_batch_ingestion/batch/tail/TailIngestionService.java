@@ -0,0 +1,386 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.tail;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.TaxiTripItemProcessor;
+import com.poliser.nyc_taxi_batch_ingestion.batch.reader.TaxiCsvReaderConfig;
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.RejectReason;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.batch.infrastructure.item.file.FlatFileParseException;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Long-running ingestion of a landing directory: new files are picked up and growing files
+ * are tailed from their last committed byte offset.
+ * <p>
+ * One watcher thread wakes on {@link WatchService} events, and at least every
+ * {@code maxLatency} in case the file system misses an append. Only complete lines are
+ * read; each micro-batch of up to {@code batchSize} rows commits together with its
+ * {@link TailOffset}, so a restart continues exactly after the last committed line.
+ * Files are named by their absolute, normalized path, as in every other mode.
+ * <p>
+ * A line that does not parse is rejected as {@link RejectReason#UNPARSEABLE_LINE} with the
+ * micro-batch, like rows failing validation. A file whose new lines fail to ingest
+ * {@code maxAttempts} wake-ups in a row is marked poisoned and left alone until restart.
+ */
+public class TailIngestionService implements SmartLifecycle {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TailIngestionService.class);
+
+    private static final int SCAN_BLOCK_SIZE = 64 * 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final PathMatcher matcher;
+    private final int batchSize;
+    private final Duration maxLatency;
+    private final int maxAttempts;
+    private final TaxiTripItemProcessor processor;
+    private final ItemWriter<TaxiTripRaw> writer;
+    private final RejectBuffer rejectBuffer;
+    private final TaxiTripRejectWriter rejectWriter;
+    private final TailOffsetStore offsetStore;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Path, TailedFile> files = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread watcher;
+
+    /**
+     * @param writer writer of the trip table, without reject handling
+     */
+    public TailIngestionService(
+            boolean enabled,
+            Path directory,
+            String pattern,
+            int batchSize,
+            Duration maxLatency,
+            int maxAttempts,
+            TaxiTripItemProcessor processor,
+            ItemWriter<TaxiTripRaw> writer,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            TailOffsetStore offsetStore,
+            TransactionTemplate transactionTemplate
+    ) {
+        this.enabled = enabled;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxLatency = maxLatency;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.processor = processor;
+        this.writer = writer;
+        this.rejectBuffer = rejectBuffer;
+        this.rejectWriter = rejectWriter;
+        this.offsetStore = offsetStore;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        watcher = Thread.ofPlatform().name("tail-watcher").daemon().start(this::watch);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (watcher != null) {
+            watcher.interrupt();
+            try {
+                watcher.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            watcher = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Lag of every file seen so far, by file.
+     */
+    public List<TailLag> lag() {
+        Instant now = Instant.now();
+        return files.entrySet().stream()
+                .map(entry -> {
+                    TailedFile file = entry.getValue();
+                    long committed = file.offset.byteOffset();
+                    long size = sizeOf(entry.getKey(), committed);
+                    long lagBytes = Math.max(0, size - committed);
+                    Instant since = file.pendingSince;
+                    long lagSeconds = lagBytes == 0 || since == null
+                            ? 0
+                            : Duration.between(since, now).toSeconds();
+                    return new TailLag(file.offset.sourceFile(), committed, size, lagBytes, lagSeconds,
+                            file.state(), file.failures, file.lastError);
+                })
+                .sorted(Comparator.comparing(TailLag::sourceFile))
+                .toList();
+    }
+
+    private void watch() {
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            Map<String, TailOffset> committed = offsetStore.findAll();
+            log.info("Tailing [{}] ({} offsets committed), max latency {}",
+                    directory, committed.size(), maxLatency);
+
+            while (running) {
+                scan(committed);
+                WatchKey key = watchService.poll(maxLatency.toMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Unable to watch [{}]", directory, e);
+        } finally {
+            running = false;
+        }
+    }
+
+    private void scan(Map<String, TailOffset> committed) throws IOException {
+        List<Path> matched;
+        try (Stream<Path> paths = Files.list(directory)) {
+            matched = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(path.getFileName()))
+                    .sorted()
+                    .toList();
+        }
+
+        for (Path path : matched) {
+            TailedFile file = files.computeIfAbsent(path, p -> new TailedFile(
+                    committed.getOrDefault(p.toString(), TailOffset.start(p.toString()))));
+            if (file.poisoned) {
+                continue;
+            }
+            try {
+                ingest(path, file);
+                file.failures = 0;
+                file.lastError = null;
+            } catch (Exception e) {
+                file.failures++;
+                file.lastError = e.toString();
+                if (file.failures >= maxAttempts) {
+                    file.poisoned = true;
+                    log.error("Unable to ingest new lines of [{}] after {} attempts, not tailing it any more",
+                            path, file.failures, e);
+                } else {
+                    // Retried on the next wake-up, from the last committed offset
+                    log.warn("Unable to ingest new lines of [{}] (attempt {} of {})",
+                            path, file.failures, maxAttempts, e);
+                }
+            }
+        }
+    }
+
+    private void ingest(Path path, TailedFile file) throws Exception {
+        TailOffset base = file.offset;
+        long size = Files.size(path);
+
+        if (size < base.byteOffset()) {
+            if (!file.shrunk) {
+                log.warn("[{}] shrank below its committed offset {}, not tailing it any more",
+                        path, base.byteOffset());
+                file.shrunk = true;
+            }
+            return;
+        }
+        if (size == base.byteOffset()) {
+            file.pendingSince = null;
+            return;
+        }
+        if (file.pendingSince == null) {
+            file.pendingSince = Instant.now();
+        }
+
+        long end = lastLineEnd(path, base.byteOffset(), size);
+        if (end == base.byteOffset()) {
+            return;
+        }
+
+        var reader = TaxiCsvReaderConfig.tailReader(path, base.byteOffset(), end,
+                base.records() + 1, Math.toIntExact(base.physicalLines() + 1));
+        var context = new ExecutionContext();
+        reader.open(context);
+        try {
+            List<TaxiCsvRow> rows = new ArrayList<>(batchSize);
+            List<TaxiTripReject> rejects = new ArrayList<>();
+            long lineNumber = base.records();
+            boolean more = true;
+            while (more) {
+                rows.clear();
+                rejects.clear();
+                rejectBuffer.capture(rejects);
+                try {
+                    while (rows.size() + rejects.size() < batchSize) {
+                        TaxiCsvRow row;
+                        try {
+                            row = reader.read();
+                        } catch (FlatFileParseException e) {
+                            lineNumber++;
+                            log.debug("Rejecting line {} of [{}]: {}", lineNumber, path, e.getMessage());
+                            rejectBuffer.add(new TaxiTripReject(base.sourceFile(), lineNumber,
+                                    RejectReason.UNPARSEABLE_LINE));
+                            continue;
+                        }
+                        if (row == null) {
+                            more = false;
+                            break;
+                        }
+                        lineNumber = row.lineNumber();
+                        rows.add(row);
+                    }
+                    if (rows.isEmpty() && rejects.isEmpty()) {
+                        break;
+                    }
+
+                    reader.update(context);
+                    var next = new TailOffset(
+                            base.sourceFile(),
+                            context.getLong("tail.read.offset"),
+                            base.records() + context.getLong("tail.read.records"),
+                            context.getInt("tail.read.line"));
+                    commit(rows, rejects, next);
+                    file.offset = next;
+                } finally {
+                    rejectBuffer.release();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        file.pendingSince = file.offset.byteOffset() < size ? Instant.now() : null;
+        log.debug("[{}] committed up to byte {} ({} records)",
+                path, file.offset.byteOffset(), file.offset.records());
+    }
+
+    /**
+     * Processes the rows, adding their rejects to {@code rejects}, and commits the valid rows
+     * and all rejects with the offset.
+     */
+    private void commit(List<TaxiCsvRow> rows, List<TaxiTripReject> rejects, TailOffset offset) {
+        var trips = new Chunk<TaxiTripRaw>();
+        for (TaxiCsvRow row : rows) {
+            TaxiTripRaw trip = processor.process(row, offset.sourceFile());
+            if (trip != null) {
+                trips.add(trip);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            rejectWriter.write(rejects);
+            if (!trips.isEmpty()) {
+                try {
+                    writer.write(trips);
+                } catch (Exception e) {
+                    throw e instanceof RuntimeException runtime
+                            ? runtime
+                            : new IllegalStateException("Unable to write rows of " + offset.sourceFile(), e);
+                }
+            }
+            offsetStore.save(offset);
+        });
+    }
+
+    /**
+     * Offset right after the last {@code \n} in {@code [from, size)}, or {@code from} when
+     * only a partial line was appended.
+     */
+    private static long lastLineEnd(Path path, long from, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+            long blockEnd = size;
+            while (blockEnd > from) {
+                long blockStart = Math.max(from, blockEnd - SCAN_BLOCK_SIZE);
+                block.clear().limit((int) (blockEnd - blockStart));
+                long position = blockStart;
+                int read;
+                while (block.hasRemaining() && (read = channel.read(block, position)) > 0) {
+                    position += read;
+                }
+                for (int i = block.position() - 1; i >= 0; i--) {
+                    if (block.get(i) == '\n') {
+                        return blockStart + i + 1;
+                    }
+                }
+                blockEnd = blockStart;
+            }
+            return from;
+        }
+    }
+
+    private static long sizeOf(Path path, long fallback) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return fallback;
+        }
+    }
+
+    private static final class TailedFile {
+        private volatile TailOffset offset;
+        private volatile Instant pendingSince;
+        private volatile boolean shrunk;
+        private volatile boolean poisoned;
+        private volatile int failures;
+        private volatile String lastError;
+
+        private TailedFile(TailOffset offset) {
+            this.offset = offset;
+        }
+
+        private String state() {
+            return poisoned ? "POISONED" : shrunk ? "SHRUNK" : "TAILING";
+        }
+    }
+}
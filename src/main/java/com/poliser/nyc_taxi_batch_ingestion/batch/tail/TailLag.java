@@ -0,0 +1,22 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.tail;
+
+/**
+ * How far ingestion trails one tailed file: bytes on disk past the committed offset, and
+ * seconds since those bytes were first seen.
+ *
+ * @param state         {@code TAILING}, {@code SHRUNK} or {@code POISONED}; the last two are
+ *                      no longer read until the application restarts
+ * @param failures      consecutive failed attempts to ingest the file's new lines
+ * @param lastError     the last of those failures, or {@code null}
+ */
+public record TailLag(
+        String sourceFile,
+        long committedOffset,
+        long fileSize,
+        long lagBytes,
+        long lagSeconds,
+        String state,
+        int failures,
+        String lastError
+) {
+}
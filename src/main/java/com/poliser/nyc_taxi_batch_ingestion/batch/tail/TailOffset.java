@@ -0,0 +1,12 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.tail;
+
+/**
+ * Committed progress through a tailed file: the byte right after the last ingested line,
+ * the number of records ingested and the physical lines consumed (header included).
+ */
+public record TailOffset(String sourceFile, long byteOffset, long records, long physicalLines) {
+
+    static TailOffset start(String sourceFile) {
+        return new TailOffset(sourceFile, 0, 0, 0);
+    }
+}
@@ -0,0 +1,54 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.tail;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tail offsets in {@code ingestion.source_file_offset}. {@link #save} runs on the
+ * connection of the surrounding transaction, so an offset commits with its rows.
+ */
+public class TailOffsetStore {
+
+    private static final String SELECT_OFFSETS = """
+            SELECT source_file, byte_offset, records, physical_lines
+            FROM ingestion.source_file_offset
+            """;
+
+    private static final String UPSERT_OFFSET = """
+            INSERT INTO ingestion.source_file_offset
+                (source_file, byte_offset, records, physical_lines, updated_at)
+            VALUES (?, ?, ?, ?, now())
+            ON CONFLICT (source_file) DO UPDATE SET
+                byte_offset = EXCLUDED.byte_offset,
+                records = EXCLUDED.records,
+                physical_lines = EXCLUDED.physical_lines,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TailOffsetStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public Map<String, TailOffset> findAll() {
+        Map<String, TailOffset> offsets = new HashMap<>();
+        jdbcTemplate.query(SELECT_OFFSETS, rs -> {
+            var offset = new TailOffset(
+                    rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+            offsets.put(offset.sourceFile(), offset);
+        });
+        return offsets;
+    }
+
+    public void save(TailOffset offset) {
+        jdbcTemplate.update(UPSERT_OFFSET,
+                offset.sourceFile(),
+                offset.byteOffset(),
+                offset.records(),
+                offset.physicalLines());
+    }
+}
@@ -0,0 +1,60 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.tail;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.TaxiTripItemProcessor;
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class TaxiTailConfig {
+
+    @Bean
+    public TailOffsetStore tailOffsetStore(DataSource dataSource) {
+        return new TailOffsetStore(dataSource);
+    }
+
+    /**
+     * Started with the application when {@code taxi.ingestion.watch.enabled=true}.
+     */
+    @Bean
+    public TailIngestionService tailIngestionService(
+            @Value("${taxi.ingestion.watch.enabled:false}") boolean enabled,
+            @Value("${taxi.ingestion.watch.directory:data/landing}") String directory,
+            @Value("${taxi.ingestion.watch.pattern:*.csv}") String pattern,
+            @Value("${taxi.ingestion.watch.batch-size:1000}") int batchSize,
+            @Value("${taxi.ingestion.watch.max-latency-ms:1000}") long maxLatencyMillis,
+            @Value("${taxi.ingestion.watch.max-attempts:5}") int maxAttempts,
+            TaxiTripItemProcessor processor,
+            @Qualifier("taxiTripTableWriter") ItemWriter<TaxiTripRaw> writer,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            TailOffsetStore tailOffsetStore,
+            PlatformTransactionManager transactionManager
+    ) {
+        return new TailIngestionService(
+                enabled,
+                Path.of(directory),
+                pattern,
+                batchSize,
+                Duration.ofMillis(maxLatencyMillis),
+                maxAttempts,
+                processor,
+                writer,
+                rejectBuffer,
+                rejectWriter,
+                tailOffsetStore,
+                new TransactionTemplate(transactionManager)
+        );
+    }
+}
@@ -0,0 +1,255 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Encodes tuples in the PostgreSQL {@code COPY ... (FORMAT binary)} wire format into a
+ * growable byte buffer that is reused across chunks.
+ * <p>
+ * Numerics are emitted as base-10000 digit groups computed from the unscaled long whenever
+ * it fits, timestamps as microseconds since 2000-01-01. Not thread-safe.
+ */
+public class PgBinaryCopyEncoder {
+
+    private static final byte[] SIGNATURE = {
+            'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0
+    };
+
+    private static final long PG_EPOCH_SECONDS =
+            LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+    private static final short NUMERIC_POS = 0x0000;
+    private static final short NUMERIC_NEG = 0x4000;
+    private static final int NBASE = 10_000;
+    private static final BigInteger BIG_NBASE = BigInteger.valueOf(NBASE);
+
+    // unscaled values below 2^50 can take the x1000 alignment below without overflowing
+    private static final int MAX_FAST_NUMERIC_BITS = 50;
+    private static final long[] POW10 = {1, 10, 100, 1_000};
+
+    private byte[] buf;
+    private int size;
+    private final short[] groups = new short[8];
+
+    public PgBinaryCopyEncoder() {
+        this(1 << 16);
+    }
+
+    public PgBinaryCopyEncoder(int initialCapacity) {
+        this.buf = new byte[initialCapacity];
+    }
+
+    /**
+     * Clears the buffer and writes the file header.
+     */
+    public void begin() {
+        size = 0;
+        ensure(SIGNATURE.length + 8);
+        System.arraycopy(SIGNATURE, 0, buf, 0, SIGNATURE.length);
+        size = SIGNATURE.length;
+        putInt(0); // flags
+        putInt(0); // header extension length
+    }
+
+    public void startRow(int fieldCount) {
+        ensure(2);
+        putShort((short) fieldCount);
+    }
+
+    /**
+     * Writes the file trailer.
+     */
+    public void end() {
+        ensure(2);
+        putShort((short) -1);
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeNull() {
+        ensure(4);
+        putInt(-1);
+    }
+
+    public void writeInt(Integer value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(8);
+        putInt(4);
+        putInt(value);
+    }
+
+    public void writeInt(int value) {
+        ensure(8);
+        putInt(4);
+        putInt(value);
+    }
+
+    public void writeLong(long value) {
+        ensure(12);
+        putInt(8);
+        putLong(value);
+    }
+
+    public void writeText(String value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        if (isAscii(value)) {
+            int length = value.length();
+            ensure(4 + length);
+            putInt(length);
+            for (int i = 0; i < length; i++) {
+                buf[size++] = (byte) value.charAt(i);
+            }
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        putInt(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+    }
+
+    public void writeTimestamp(LocalDateTime value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        long seconds = value.toEpochSecond(ZoneOffset.UTC) - PG_EPOCH_SECONDS;
+        writeTimestampMicros(seconds * 1_000_000L + value.getNano() / 1_000);
+    }
+
+    /**
+     * Writes a timestamp given as the epoch second of the local date-time read as UTC.
+     */
+    public void writeTimestampSeconds(long epochSecond) {
+        writeTimestampMicros((epochSecond - PG_EPOCH_SECONDS) * 1_000_000L);
+    }
+
+    private void writeTimestampMicros(long micros) {
+        ensure(12);
+        putInt(8);
+        putLong(micros);
+    }
+
+    public void writeNumeric(BigDecimal value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < MAX_FAST_NUMERIC_BITS) {
+            writeNumeric(unscaled.longValue(), value.scale());
+        } else {
+            writeNumericSlow(unscaled, value.scale());
+        }
+    }
+
+    /**
+     * Writes {@code unscaled * 10^-scale} for a non-negative scale.
+     */
+    public void writeNumeric(long unscaled, int scale) {
+        if (unscaled <= -(1L << MAX_FAST_NUMERIC_BITS) || unscaled >= 1L << MAX_FAST_NUMERIC_BITS) {
+            writeNumericSlow(BigInteger.valueOf(unscaled), scale);
+            return;
+        }
+        boolean negative = unscaled < 0;
+        int pad = (4 - scale % 4) % 4;
+        long abs = Math.abs(unscaled) * POW10[pad];
+
+        int count = 0;
+        while (abs != 0) {
+            groups[count++] = (short) (abs % NBASE);
+            abs /= NBASE;
+        }
+        writeNumericGroups(groups, count, (scale + pad) / 4, negative, scale);
+    }
+
+    private void writeNumericSlow(BigInteger unscaled, int scale) {
+        boolean negative = unscaled.signum() < 0;
+        int pad = (4 - scale % 4) % 4;
+        BigInteger abs = unscaled.abs().multiply(BigInteger.TEN.pow(pad));
+
+        short[] digits = new short[abs.bitLength() / 13 + 2];
+        int count = 0;
+        while (abs.signum() != 0) {
+            BigInteger[] qr = abs.divideAndRemainder(BIG_NBASE);
+            digits[count++] = qr[1].shortValue();
+            abs = qr[0];
+        }
+        writeNumericGroups(digits, count, (scale + pad) / 4, negative, scale);
+    }
+
+    /**
+     * @param digits base-10000 groups, least significant first
+     */
+    private void writeNumericGroups(short[] digits, int count, int fractionGroups,
+                                    boolean negative, int scale) {
+        int low = 0;
+        while (low < count && digits[low] == 0) {
+            low++;
+        }
+        int ndigits = count - low;
+        int weight = ndigits == 0 ? 0 : count - 1 - fractionGroups;
+
+        ensure(12 + 2 * ndigits);
+        putInt(8 + 2 * ndigits);
+        putShort((short) ndigits);
+        putShort((short) weight);
+        putShort(negative && ndigits > 0 ? NUMERIC_NEG : NUMERIC_POS);
+        putShort((short) scale);
+        for (int i = count - 1; i >= low; i--) {
+            putShort(digits[i]);
+        }
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensure(int bytes) {
+        if (size + bytes > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + bytes));
+        }
+    }
+
+    private void putShort(short v) {
+        buf[size++] = (byte) (v >>> 8);
+        buf[size++] = (byte) v;
+    }
+
+    private void putInt(int v) {
+        buf[size++] = (byte) (v >>> 24);
+        buf[size++] = (byte) (v >>> 16);
+        buf[size++] = (byte) (v >>> 8);
+        buf[size++] = (byte) v;
+    }
+
+    private void putLong(long v) {
+        putInt((int) (v >>> 32));
+        putInt((int) v);
+    }
+}
@@ -0,0 +1,32 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+
+/**
+ * Writes the rejects collected while processing a chunk ahead of its valid rows, in the
+ * same transaction, so both land or roll back together.
+ */
+public class RejectingItemWriter<T> implements ItemWriter<T> {
+
+    private final ItemWriter<T> delegate;
+    private final RejectBuffer rejectBuffer;
+    private final TaxiTripRejectWriter rejectWriter;
+
+    public RejectingItemWriter(
+            ItemWriter<T> delegate,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter
+    ) {
+        this.delegate = delegate;
+        this.rejectBuffer = rejectBuffer;
+        this.rejectWriter = rejectWriter;
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        rejectWriter.write(rejectBuffer.drain());
+        delegate.write(chunk);
+    }
+}
@@ -0,0 +1,89 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripBlock;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+
+/**
+ * Encodes {@link TaxiTripBlock}s column by column into the binary COPY buffer and hands it
+ * to {@link TaxiTripCopyItemWriter}, so blocks get the same temp-table de-duplication.
+ */
+public class TaxiTripBlockCopyItemWriter implements ItemWriter<TaxiTripBlock> {
+
+    private final TaxiTripCopyItemWriter copyWriter;
+    private final PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder(1 << 20);
+
+    public TaxiTripBlockCopyItemWriter(TaxiTripCopyItemWriter copyWriter) {
+        this.copyWriter = copyWriter;
+    }
+
+    @Override
+    public void write(Chunk<? extends TaxiTripBlock> chunk) {
+        encoder.begin();
+        int rows = 0;
+        for (TaxiTripBlock block : chunk) {
+            for (int row = 0; row < block.size(); row++) {
+                encode(block, row);
+            }
+            rows += block.size();
+        }
+        encoder.end();
+
+        if (rows > 0) {
+            copyWriter.copy(encoder);
+        }
+    }
+
+    private void encode(TaxiTripBlock block, int row) {
+        encoder.startRow(TaxiTripCopyItemWriter.FIELD_COUNT);
+        encoder.writeText(block.sourceFile());
+        encoder.writeLong(block.lineNumber(row));
+        writeInt(block, TaxiTripBlock.VENDOR_ID, row);
+        writeTimestamp(block, TaxiTripBlock.PICKUP_DATETIME, row);
+        writeTimestamp(block, TaxiTripBlock.DROPOFF_DATETIME, row);
+        writeInt(block, TaxiTripBlock.PASSENGER_COUNT, row);
+        writeDecimal(block, TaxiTripBlock.TRIP_DISTANCE, row);
+        writeDecimal(block, TaxiTripBlock.PICKUP_LONGITUDE, row);
+        writeDecimal(block, TaxiTripBlock.PICKUP_LATITUDE, row);
+        writeDecimal(block, TaxiTripBlock.DROPOFF_LONGITUDE, row);
+        writeDecimal(block, TaxiTripBlock.DROPOFF_LATITUDE, row);
+        writeInt(block, TaxiTripBlock.PICKUP_LOCATION_ID, row);
+        writeInt(block, TaxiTripBlock.DROPOFF_LOCATION_ID, row);
+        writeInt(block, TaxiTripBlock.RATE_CODE_ID, row);
+        encoder.writeText(block.storeAndFwdFlag(row));
+        writeInt(block, TaxiTripBlock.PAYMENT_TYPE, row);
+        writeDecimal(block, TaxiTripBlock.FARE_AMOUNT, row);
+        writeDecimal(block, TaxiTripBlock.EXTRA, row);
+        writeDecimal(block, TaxiTripBlock.MTA_TAX, row);
+        writeDecimal(block, TaxiTripBlock.TIP_AMOUNT, row);
+        writeDecimal(block, TaxiTripBlock.TOLLS_AMOUNT, row);
+        writeDecimal(block, TaxiTripBlock.IMPROVEMENT_SURCHARGE, row);
+        writeDecimal(block, TaxiTripBlock.TOTAL_AMOUNT, row);
+        writeDecimal(block, TaxiTripBlock.CONGESTION_SURCHARGE, row);
+        writeDecimal(block, TaxiTripBlock.AIRPORT_FEE, row);
+    }
+
+    private void writeInt(TaxiTripBlock block, int column, int row) {
+        if (block.isIntNull(column, row)) {
+            encoder.writeNull();
+        } else {
+            encoder.writeInt(block.intValue(column, row));
+        }
+    }
+
+    private void writeTimestamp(TaxiTripBlock block, int column, int row) {
+        if (block.isTimestampNull(column, row)) {
+            encoder.writeNull();
+        } else {
+            encoder.writeTimestampSeconds(block.timestamp(column, row));
+        }
+    }
+
+    private void writeDecimal(TaxiTripBlock block, int column, int row) {
+        if (block.isDecimalNull(column, row)) {
+            encoder.writeNull();
+        } else {
+            encoder.writeNumeric(block.decimal(column, row), TaxiTripBlock.DECIMAL_SCALES[column]);
+        }
+    }
+}
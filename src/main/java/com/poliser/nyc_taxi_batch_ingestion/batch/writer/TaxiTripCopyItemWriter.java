@@ -0,0 +1,224 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.jfr.JdbcBatchEvent;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes each chunk with {@code COPY ... FROM STDIN (FORMAT binary)} instead of one
+ * parameterised {@code INSERT} per row.
+ * <p>
+ * COPY cannot skip conflicting rows, so the chunk lands in a session-local temp table
+ * ({@code ON COMMIT DELETE ROWS}) first and is moved into {@code ingestion.taxi_trip_raw}
+ * with {@code INSERT ... SELECT ... ON CONFLICT (source_file, line_number) DO NOTHING}.
+ * Both statements run on the chunk transaction's connection. Rows are encoded straight
+ * into a per-thread reusable buffer, so the writer can be shared by concurrent steps.
+ * <p>
+ * Given a target table, chunks are copied straight into it without de-duplication, which
+ * is how the bulk mode fills its staging table.
+ */
+public class TaxiTripCopyItemWriter implements ItemWriter<TaxiTripRaw> {
+
+    static final int FIELD_COUNT = 25;
+
+    public static final String COLUMNS = """
+            source_file, line_number, vendor_id, pickup_datetime, dropoff_datetime,
+            passenger_count, trip_distance, pickup_longitude, pickup_latitude,
+            dropoff_longitude, dropoff_latitude, pickup_location_id, dropoff_location_id,
+            rate_code_id, store_and_fwd_flag, payment_type, fare_amount, extra, mta_tax,
+            tip_amount, tolls_amount, improvement_surcharge, total_amount,
+            congestion_surcharge, airport_fee""";
+
+    static final String STAGE_TABLE = "taxi_trip_raw_copy_stage";
+
+    private static final String CREATE_STAGE =
+            "CREATE TEMP TABLE IF NOT EXISTS " + STAGE_TABLE + " ON COMMIT DELETE ROWS AS "
+                    + "SELECT " + COLUMNS + " FROM ingestion.taxi_trip_raw WITH NO DATA";
+
+    private static final String COPY_STAGE =
+            "COPY " + STAGE_TABLE + " (" + COLUMNS + ") FROM STDIN (FORMAT binary)";
+
+    private static final String MERGE_STAGE =
+            "INSERT INTO ingestion.taxi_trip_raw (" + COLUMNS + ") "
+                    + "SELECT " + COLUMNS + " FROM " + STAGE_TABLE + " "
+                    + "ON CONFLICT (source_file, line_number) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String directCopy;
+    private final Timer batchTimer;
+    private final String writerName;
+
+    private final ThreadLocal<PgBinaryCopyEncoder> encoders =
+            ThreadLocal.withInitial(PgBinaryCopyEncoder::new);
+
+    // Physical connections whose session already holds the temp table
+    private final Set<PGConnection> stagedConnections =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    public TaxiTripCopyItemWriter(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * @param directTable table to copy into as-is, or {@code null} to merge into
+     *                    {@code ingestion.taxi_trip_raw} with de-duplication
+     */
+    public TaxiTripCopyItemWriter(DataSource dataSource, String directTable) {
+        this(dataSource, directTable, null);
+    }
+
+    /**
+     * @param batchTimer records each round trip, COPY and merge, or {@code null}
+     */
+    public TaxiTripCopyItemWriter(DataSource dataSource, String directTable, Timer batchTimer) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.directCopy = directTable == null
+                ? null
+                : "COPY " + directTable + " (" + COLUMNS + ") FROM STDIN (FORMAT binary)";
+        this.batchTimer = batchTimer;
+        this.writerName = batchTimer == null ? "copy" : batchTimer.getId().getTag("writer");
+    }
+
+    @Override
+    public void write(Chunk<? extends TaxiTripRaw> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        PgBinaryCopyEncoder encoder = encoders.get();
+        encoder.begin();
+        for (TaxiTripRaw trip : chunk) {
+            encode(encoder, trip);
+        }
+        encoder.end();
+        copy(encoder);
+    }
+
+    /**
+     * Copies rows already encoded by {@code encoder}, header and trailer included.
+     */
+    void copy(PgBinaryCopyEncoder encoder) {
+        copy(encoder, connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(MERGE_STAGE);
+            }
+        });
+    }
+
+    /**
+     * Copies encoded rows into the session's stage table and lets {@code merge} move them
+     * on, on the same connection.
+     */
+    void copy(PgBinaryCopyEncoder encoder, StageMerge merge) {
+        var event = JdbcBatchEvent.start(writerName);
+        long start = System.nanoTime();
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            if (directCopy != null) {
+                return copy(pgConnection, directCopy, encoder);
+            }
+
+            ensureStage(connection, pgConnection);
+            long copied = copy(pgConnection, COPY_STAGE, encoder);
+            merge.merge(connection);
+            return copied;
+        });
+        if (batchTimer != null) {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        event.commit(rows == null ? 0 : rows, encoder.size());
+    }
+
+    static void encode(PgBinaryCopyEncoder encoder, TaxiTripRaw trip) {
+        encoder.startRow(FIELD_COUNT);
+        encoder.writeText(trip.sourceFile());
+        encoder.writeLong(trip.lineNumber());
+        encoder.writeInt(trip.vendorId());
+        encoder.writeTimestamp(trip.pickupDatetime());
+        encoder.writeTimestamp(trip.dropoffDatetime());
+        encoder.writeInt(trip.passengerCount());
+        encoder.writeNumeric(trip.tripDistance());
+        encoder.writeNumeric(trip.pickupLongitude());
+        encoder.writeNumeric(trip.pickupLatitude());
+        encoder.writeNumeric(trip.dropoffLongitude());
+        encoder.writeNumeric(trip.dropoffLatitude());
+        encoder.writeInt(trip.pickupLocationId());
+        encoder.writeInt(trip.dropoffLocationId());
+        encoder.writeInt(trip.rateCodeId());
+        encoder.writeText(trip.storeAndFwdFlag());
+        encoder.writeInt(trip.paymentType());
+        encoder.writeNumeric(trip.fareAmount());
+        encoder.writeNumeric(trip.extra());
+        encoder.writeNumeric(trip.mtaTax());
+        encoder.writeNumeric(trip.tipAmount());
+        encoder.writeNumeric(trip.tollsAmount());
+        encoder.writeNumeric(trip.improvementSurcharge());
+        encoder.writeNumeric(trip.totalAmount());
+        encoder.writeNumeric(trip.congestionSurcharge());
+        encoder.writeNumeric(trip.airportFee());
+    }
+
+    /**
+     * @return the number of rows copied
+     */
+    static long copy(PGConnection connection, String sql, PgBinaryCopyEncoder encoder)
+            throws SQLException {
+
+        CopyIn copyIn = connection.getCopyAPI().copyIn(sql);
+        try {
+            copyIn.writeToCopy(encoder.buffer(), 0, encoder.size());
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void ensureStage(Connection connection, PGConnection pgConnection) throws SQLException {
+        if (stagedConnections.contains(pgConnection)) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGE);
+        }
+        stagedConnections.add(pgConnection);
+
+        // A rolled back CREATE takes the temp table with it
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        stagedConnections.remove(pgConnection);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Moves the staged rows of the current chunk to their target.
+     */
+    @FunctionalInterface
+    interface StageMerge {
+        void merge(Connection connection) throws SQLException;
+    }
+}
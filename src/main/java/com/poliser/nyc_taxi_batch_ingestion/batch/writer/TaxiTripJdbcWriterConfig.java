@@ -1,27 +1,33 @@
 package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
 
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.BulkStagePrepareTasklet;
+import com.poliser.nyc_taxi_batch_ingestion.batch.dedup.LoadedRowFilter;
+import com.poliser.nyc_taxi_batch_ingestion.batch.dedup.LoadedRowRecordingItemWriter;
+import com.poliser.nyc_taxi_batch_ingestion.batch.jfr.JdbcBatchEvent;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.spill.SpillBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.spill.SpillingItemWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripBlock;
 import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.infrastructure.item.ItemWriter;
 import org.springframework.batch.infrastructure.item.database.BeanPropertyItemSqlParameterSourceProvider;
 import org.springframework.batch.infrastructure.item.database.JdbcBatchItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
 
 @Configuration
 public class TaxiTripJdbcWriterConfig {
 
-    @Bean
-    public JdbcBatchItemWriter<TaxiTripRaw> taxiTripWriter(DataSource dataSource) {
-
-        var writer = new JdbcBatchItemWriter<TaxiTripRaw>();
-        writer.setDataSource(dataSource);
-        writer.setItemSqlParameterSourceProvider(
-                new BeanPropertyItemSqlParameterSourceProvider<>()
-        );
-        writer.setAssertUpdates(false);
-
-        writer.setSql("""
+    static final String INSERT_SQL = """
             INSERT INTO ingestion.taxi_trip_raw (
                 source_file,
                 line_number,
@@ -34,6 +40,8 @@ public class TaxiTripJdbcWriterConfig {
                 pickup_latitude,
                 dropoff_longitude,
                 dropoff_latitude,
+                pickup_location_id,
+                dropoff_location_id,
                 rate_code_id,
                 store_and_fwd_flag,
                 payment_type,
@@ -43,7 +51,9 @@ public class TaxiTripJdbcWriterConfig {
                 tip_amount,
                 tolls_amount,
                 improvement_surcharge,
-                total_amount
+                total_amount,
+                congestion_surcharge,
+                airport_fee
             ) VALUES (
                 :sourceFile,
                 :lineNumber,
@@ -56,6 +66,8 @@ public class TaxiTripJdbcWriterConfig {
                 :pickupLatitude,
                 :dropoffLongitude,
                 :dropoffLatitude,
+                :pickupLocationId,
+                :dropoffLocationId,
                 :rateCodeId,
                 :storeAndFwdFlag,
                 :paymentType,
@@ -65,10 +77,117 @@ public class TaxiTripJdbcWriterConfig {
                 :tipAmount,
                 :tollsAmount,
                 :improvementSurcharge,
-                :totalAmount
+                :totalAmount,
+                :congestionSurcharge,
+                :airportFee
             )
             ON CONFLICT (source_file, line_number) DO NOTHING
-        """);
+            """;
+
+    @Bean
+    public TaxiTripRejectWriter taxiTripRejectWriter(
+            DataSource dataSource,
+            MeterRegistry meterRegistry
+    ) {
+        return new TaxiTripRejectWriter(dataSource, meterRegistry);
+    }
+
+    /**
+     * Writer of the target trip table, without reject handling; see {@link #taxiTripWriter}.
+     */
+    @Bean
+    public ItemWriter<TaxiTripRaw> taxiTripTableWriter(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${taxi.ingestion.writer:jdbc}") String writerType,
+            MeterRegistry meterRegistry,
+            LoadedRowFilter loadedRowFilter
+    ) {
+        ItemWriter<TaxiTripRaw> writer = switch (writerType.toLowerCase()) {
+            case "copy" -> new TaxiTripCopyItemWriter(dataSource, null,
+                    jdbcBatchTimer(meterRegistry, "copy"));
+            case "partitioned" -> new TaxiTripPartitionedItemWriter(dataSource, transactionManager, meterRegistry);
+            default -> jdbcWriter(dataSource, jdbcBatchTimer(meterRegistry, "jdbc"));
+        };
+        if (loadedRowFilter.isEnabled()) {
+            writer = new LoadedRowRecordingItemWriter(writer, loadedRowFilter);
+        }
+        return writer;
+    }
+
+    @Bean
+    public ItemWriter<TaxiTripRaw> taxiTripWriter(
+            @Qualifier("taxiTripTableWriter") ItemWriter<TaxiTripRaw> tableWriter,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            SpillBuffer spillBuffer
+    ) {
+        if (spillBuffer.isEnabled()) {
+            return new SpillingItemWriter(spillBuffer, rejectBuffer);
+        }
+        return new RejectingItemWriter<>(tableWriter, rejectBuffer, rejectWriter);
+    }
+
+    /**
+     * Writer of the bulk mode: plain binary COPY into the UNLOGGED staging table.
+     */
+    @Bean
+    public ItemWriter<TaxiTripRaw> taxiTripStageWriter(
+            DataSource dataSource,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            MeterRegistry meterRegistry
+    ) {
+        return new RejectingItemWriter<>(
+                new TaxiTripCopyItemWriter(dataSource, BulkStagePrepareTasklet.STAGE_TABLE,
+                        jdbcBatchTimer(meterRegistry, "stage")),
+                rejectBuffer, rejectWriter);
+    }
+
+    /**
+     * Writer of the columnar step mode, always binary COPY.
+     */
+    @Bean
+    public ItemWriter<TaxiTripBlock> taxiTripBlockWriter(
+            DataSource dataSource,
+            RejectBuffer rejectBuffer,
+            TaxiTripRejectWriter rejectWriter,
+            MeterRegistry meterRegistry
+    ) {
+        return new RejectingItemWriter<>(
+                new TaxiTripBlockCopyItemWriter(new TaxiTripCopyItemWriter(dataSource, null,
+                        jdbcBatchTimer(meterRegistry, "block"))),
+                rejectBuffer, rejectWriter);
+    }
+
+    /**
+     * Round trip time of one chunk's statement batch or COPY, per target writer.
+     */
+    static Timer jdbcBatchTimer(MeterRegistry meterRegistry, String writer) {
+        return Timer.builder("batch.jdbc.batch")
+                .tag("writer", writer)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    static JdbcBatchItemWriter<TaxiTripRaw> jdbcWriter(DataSource dataSource, Timer batchTimer) {
+
+        var writer = new JdbcBatchItemWriter<TaxiTripRaw>();
+        writer.setJdbcTemplate(new NamedParameterJdbcTemplate(dataSource) {
+            @Override
+            public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
+                var event = JdbcBatchEvent.start(batchTimer.getId().getTag("writer"));
+                int[] counts = batchTimer.record(() -> super.batchUpdate(sql, batchArgs));
+                event.commit(batchArgs.length, 0);
+                return counts;
+            }
+        });
+        writer.setItemSqlParameterSourceProvider(
+                new BeanPropertyItemSqlParameterSourceProvider<>()
+        );
+        writer.setAssertUpdates(false);
+
+        writer.setSql(INSERT_SQL);
 
         writer.afterPropertiesSet();
         return writer;
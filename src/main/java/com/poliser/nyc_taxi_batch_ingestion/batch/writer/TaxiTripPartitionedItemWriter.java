@@ -0,0 +1,203 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes into {@code ingestion.taxi_trip_monthly}, range-partitioned by pickup month.
+ * <p>
+ * Each chunk is grouped by month first. Missing partitions are created on demand under a
+ * transaction-scoped advisory lock, as a plain table attached with {@code ATTACH PARTITION},
+ * which unlike {@code CREATE TABLE ... PARTITION OF} does not block writers of the other
+ * partitions. Creation runs in a short transaction of its own on a second connection,
+ * before the chunk inserts anything, so the chunk never holds the DDL locks and writers
+ * meeting new months in different orders cannot deadlock. The chunk is then copied once into the stage table of
+ * {@link TaxiTripCopyItemWriter} and moved straight into each month's partition, so no row
+ * goes through partition routing on the parent.
+ * <p>
+ * The parent's unique key is {@code (source_file, line_number, pickup_datetime)}, since it
+ * must include the partition column. A source line always parses to the same pickup time,
+ * so this still keeps {@code (source_file, line_number)} unique across partitions. Rows
+ * inserted per partition are counted in {@code batch.writer.partition.rows{partition}} once
+ * the chunk transaction commits, so a rolled-back and retried chunk counts its rows once.
+ */
+public class TaxiTripPartitionedItemWriter implements ItemWriter<TaxiTripRaw> {
+
+    public static final String TARGET_TABLE = "ingestion.taxi_trip_monthly";
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaxiTripPartitionedItemWriter.class);
+
+    private static final String PARTITION_EXISTS = "SELECT to_regclass(?) IS NOT NULL";
+
+    private static final String INSERT_PARTITION = """
+            INSERT INTO %s (%s)
+            SELECT %s FROM %s
+            WHERE pickup_datetime >= ? AND pickup_datetime < ?
+            ON CONFLICT (source_file, line_number, pickup_datetime) DO NOTHING
+            """;
+
+    private final TaxiTripCopyItemWriter stageWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate partitionTransaction;
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadLocal<PgBinaryCopyEncoder> encoders =
+            ThreadLocal.withInitial(PgBinaryCopyEncoder::new);
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+    private final Map<YearMonth, Counter> counters = new ConcurrentHashMap<>();
+
+    public TaxiTripPartitionedItemWriter(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.stageWriter = new TaxiTripCopyItemWriter(dataSource, null,
+                TaxiTripJdbcWriterConfig.jdbcBatchTimer(meterRegistry, "partitioned"));
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.partitionTransaction = new TransactionTemplate(transactionManager);
+        this.partitionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void write(Chunk<? extends TaxiTripRaw> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Set<YearMonth> months = new TreeSet<>();
+        PgBinaryCopyEncoder encoder = encoders.get();
+        encoder.begin();
+        for (TaxiTripRaw trip : chunk) {
+            if (trip.pickupDatetime() == null) {
+                throw new IllegalArgumentException("Row without pickup time at line "
+                        + trip.lineNumber() + " of " + trip.sourceFile());
+            }
+            months.add(YearMonth.from(trip.pickupDatetime()));
+            TaxiTripCopyItemWriter.encode(encoder, trip);
+        }
+        encoder.end();
+
+        for (YearMonth month : months) {
+            ensurePartition(month);
+        }
+        Map<YearMonth, Integer> inserted = new HashMap<>();
+        stageWriter.copy(encoder, connection -> mergeByMonth(connection, months, inserted));
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            count(inserted);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                count(inserted);
+            }
+        });
+    }
+
+    static String partitionName(YearMonth month) {
+        return "%s_%d_%02d".formatted(TARGET_TABLE, month.getYear(), month.getMonthValue());
+    }
+
+    private void mergeByMonth(Connection connection, Set<YearMonth> months, Map<YearMonth, Integer> inserted)
+            throws SQLException {
+        for (YearMonth month : months) {
+            String sql = INSERT_PARTITION.formatted(partitionName(month),
+                    TaxiTripCopyItemWriter.COLUMNS, TaxiTripCopyItemWriter.COLUMNS,
+                    TaxiTripCopyItemWriter.STAGE_TABLE);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setTimestamp(1, Timestamp.valueOf(month.atDay(1).atStartOfDay()));
+                statement.setTimestamp(2, Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+                inserted.put(month, statement.executeUpdate());
+            }
+        }
+    }
+
+    /**
+     * Creates the month's partition unless this writer already knows it exists. Creation
+     * commits at once, whatever becomes of the chunk; concurrent writers wait on the
+     * advisory lock and find it created.
+     */
+    private void ensurePartition(YearMonth month) {
+        if (knownPartitions.contains(month)) {
+            return;
+        }
+
+        String partition = partitionName(month);
+        boolean created = Boolean.TRUE.equals(partitionTransaction.execute(status ->
+                jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                        createPartition(connection, month, partition))));
+
+        knownPartitions.add(month);
+        if (created) {
+            log.info("Created partition [{}]", partition);
+        }
+    }
+
+    /**
+     * @return {@code false} if another writer created it first
+     */
+    private static boolean createPartition(Connection connection, YearMonth month, String partition)
+            throws SQLException {
+        try (PreparedStatement lock = connection.prepareStatement(
+                "SELECT pg_advisory_xact_lock(hashtext(?))")) {
+            lock.setString(1, partition);
+            lock.execute();
+        }
+        try (PreparedStatement exists = connection.prepareStatement(PARTITION_EXISTS)) {
+            exists.setString(1, partition);
+            try (ResultSet rs = exists.executeQuery()) {
+                rs.next();
+                if (rs.getBoolean(1)) {
+                    return false;
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + partition + " (LIKE " + TARGET_TABLE
+                    + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            statement.execute("ALTER TABLE " + TARGET_TABLE + " ATTACH PARTITION " + partition
+                    + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('"
+                    + month.plusMonths(1).atDay(1) + "')");
+        }
+        return true;
+    }
+
+    private void count(Map<YearMonth, Integer> inserted) {
+        inserted.forEach((month, rows) -> counter(month).increment(rows));
+    }
+
+    private Counter counter(YearMonth month) {
+        return counters.computeIfAbsent(month, m -> meterRegistry.counter(
+                "batch.writer.partition.rows",
+                "partition", "%d_%02d".formatted(m.getYear(), m.getMonthValue())));
+    }
+}
@@ -0,0 +1,67 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.writer;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.RejectReason;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripReject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch-inserts rejected rows into {@code ingestion.taxi_trip_reject} on the chunk
+ * transaction's connection and counts them per reason in {@code batch.step.reject} once
+ * that transaction commits, so a rolled-back and retried chunk counts its rejects once.
+ */
+public class TaxiTripRejectWriter {
+
+    private static final String INSERT_REJECT = """
+            INSERT INTO ingestion.taxi_trip_reject (source_file, line_number, reason)
+            VALUES (?, ?, ?)
+            ON CONFLICT (source_file, line_number) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<RejectReason, Counter> counters = new EnumMap<>(RejectReason.class);
+
+    public TaxiTripRejectWriter(DataSource dataSource, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        for (RejectReason reason : RejectReason.values()) {
+            counters.put(reason, meterRegistry.counter("batch.step.reject", "reason", reason.name()));
+        }
+    }
+
+    public void write(List<TaxiTripReject> rejects) {
+        if (rejects.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_REJECT, rejects, rejects.size(), (ps, reject) -> {
+            ps.setString(1, reject.sourceFile());
+            ps.setLong(2, reject.lineNumber());
+            ps.setString(3, reject.reason().name());
+        });
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            count(rejects);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                count(rejects);
+            }
+        });
+    }
+
+    private void count(List<TaxiTripReject> rejects) {
+        for (TaxiTripReject reject : rejects) {
+            counters.get(reject.reason()).increment();
+        }
+    }
+}
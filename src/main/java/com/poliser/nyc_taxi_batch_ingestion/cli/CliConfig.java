@@ -0,0 +1,64 @@
+package com.poliser.nyc_taxi_batch_ingestion.cli;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.spill.SpillBuffer;
+import org.springframework.batch.core.job.Job;
+import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Headless one-shot ingestion, active with {@code taxi.cli.enabled=true} (the {@code cli}
+ * profile).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "taxi.cli", name = "enabled", havingValue = "true")
+public class CliConfig {
+
+    // Static: post-processors are created before any other bean
+    @Bean
+    public static FirstRowRecorder firstRowRecorder() {
+        return new FirstRowRecorder();
+    }
+
+    @Bean
+    public IngestionCommandRunner ingestionCommandRunner(
+            @Value("${taxi.cli.mode:standard}") String mode,
+            @Value("${taxi.cli.label:}") String label,
+            @Value("${taxi.cli.report-dir:}") String reportDirectory,
+            @Value("${taxi.cli.exit:true}") boolean exit,
+            @Value("${taxi.cli.drain-timeout-seconds:300}") long drainTimeoutSeconds,
+            JobOperator jobOperator,
+            JobRepository jobRepository,
+            Job taxiIngestionJob,
+            FirstRowRecorder firstRowRecorder,
+            SpillBuffer spillBuffer,
+            JsonMapper jsonMapper,
+            Environment environment,
+            ConfigurableApplicationContext context
+    ) {
+        return new IngestionCommandRunner(
+                mode,
+                label,
+                reportDirectory.isBlank() ? null : Path.of(reportDirectory),
+                exit,
+                Duration.ofSeconds(drainTimeoutSeconds),
+                jobOperator,
+                jobRepository,
+                taxiIngestionJob,
+                firstRowRecorder,
+                spillBuffer,
+                jsonMapper,
+                environment,
+                context
+        );
+    }
+}
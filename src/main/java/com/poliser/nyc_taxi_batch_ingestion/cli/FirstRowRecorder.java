@@ -0,0 +1,28 @@
+package com.poliser.nyc_taxi_batch_ingestion.cli;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.ChunkCommitHook;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records when the first chunk of the process commits, as milliseconds of JVM uptime.
+ */
+public class FirstRowRecorder extends ChunkCommitHook {
+
+    private final AtomicLong firstCommitUptime = new AtomicLong(-1);
+
+    /**
+     * JVM uptime in milliseconds when the first chunk committed, or -1 if none did.
+     */
+    public long firstCommitUptimeMillis() {
+        return firstCommitUptime.get();
+    }
+
+    @Override
+    protected void chunkCommitted() {
+        if (firstCommitUptime.get() < 0) {
+            firstCommitUptime.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.poliser.nyc_taxi_batch_ingestion.cli;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.LoadModeDecider;
+import com.poliser.nyc_taxi_batch_ingestion.batch.job.JobRunSupport;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFilePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.batch.spill.SpillBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.AotDetector;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.job.Job;
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.job.parameters.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@code taxiIngestionJob} from the command line and exits with its outcome:
+ * <pre>
+ * java -jar app.jar --spring.profiles.active=cli [--mode=standard|bulk] [source...]
+ * </pre>
+ * Every source (a file, a directory or a glob) runs as its own multi-file execution, one
+ * after the other, stopping at the first that does not complete. Without sources the
+ * configured {@code taxi.ingestion.source-file} is ingested in the given mode.
+ * <p>
+ * With the {@link SpillBuffer} enabled a completed run may have left chunks on local disk
+ * only; the runner waits up to {@code drainTimeout} for them to reach the database before
+ * exiting.
+ * <p>
+ * Logs, and optionally writes as a {@link StartupReport}, the time from JVM start to the
+ * application being ready and to the first committed chunk.
+ */
+public class IngestionCommandRunner implements ApplicationRunner {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(IngestionCommandRunner.class);
+
+    /** Every execution completed. */
+    public static final int EXIT_COMPLETED = 0;
+    /** An execution failed, or could not be started. */
+    public static final int EXIT_FAILED = 1;
+    /** Unknown mode, or a source matching no file; nothing was run. */
+    public static final int EXIT_USAGE = 2;
+    /** An execution was stopped or abandoned. */
+    public static final int EXIT_STOPPED = 3;
+    /** Every execution completed, but spilled chunks were still not in the database. */
+    public static final int EXIT_SPILLED = 4;
+
+    private static final List<String> MODES = List.of("standard", "bulk");
+
+    private final String defaultMode;
+    private final String label;
+    private final Path reportDirectory;
+    private final boolean exit;
+    private final Duration drainTimeout;
+    private final JobOperator jobOperator;
+    private final Job job;
+    private final FirstRowRecorder firstRowRecorder;
+    private final SpillBuffer spillBuffer;
+    private final Environment environment;
+    private final JobRunSupport jobRun;
+
+    /**
+     * @param reportDirectory where to write the {@link StartupReport}, or {@code null} for none
+     * @param drainTimeout how long to wait for the spill backlog to drain after the runs
+     */
+    public IngestionCommandRunner(
+            String defaultMode,
+            String label,
+            Path reportDirectory,
+            boolean exit,
+            Duration drainTimeout,
+            JobOperator jobOperator,
+            JobRepository jobRepository,
+            Job job,
+            FirstRowRecorder firstRowRecorder,
+            SpillBuffer spillBuffer,
+            JsonMapper jsonMapper,
+            Environment environment,
+            ConfigurableApplicationContext context
+    ) {
+        this.defaultMode = defaultMode;
+        this.label = label;
+        this.reportDirectory = reportDirectory;
+        this.exit = exit;
+        this.drainTimeout = drainTimeout;
+        this.jobOperator = jobOperator;
+        this.job = job;
+        this.firstRowRecorder = firstRowRecorder;
+        this.spillBuffer = spillBuffer;
+        this.environment = environment;
+        this.jobRun = new JobRunSupport(jobRepository, jsonMapper, context);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        long readyMillis = runtime.getUptime();
+        Instant startedAt = Instant.ofEpochMilli(runtime.getStartTime());
+
+        List<String> modeOption = args.getOptionValues("mode");
+        String mode = modeOption == null || modeOption.isEmpty()
+                ? defaultMode
+                : modeOption.getLast();
+        List<String> sources = args.getNonOptionArgs();
+
+        BatchStatus status = null;
+        int exitCode = validate(mode, sources);
+        if (exitCode == EXIT_COMPLETED) {
+            if (sources.isEmpty()) {
+                status = ingest(mode, null);
+            } else {
+                for (String source : sources) {
+                    status = ingest(mode, source);
+                    if (status != BatchStatus.COMPLETED) {
+                        break;
+                    }
+                }
+            }
+            exitCode = exitCode(status);
+            if (exitCode == EXIT_COMPLETED && !awaitDrain()) {
+                exitCode = EXIT_SPILLED;
+            }
+        }
+
+        long firstRowMillis = firstRowRecorder.firstCommitUptimeMillis();
+        long totalMillis = runtime.getUptime();
+        String classCache = classCache(runtime.getInputArguments());
+        log.info("Command-line ingestion {} (exit code {}): ready {} ms, first row {} ms, done {} ms "
+                        + "after JVM start (AOT {}, class cache {})",
+                status == null ? "not started" : status, exitCode, readyMillis,
+                firstRowMillis < 0 ? "-" : firstRowMillis, totalMillis,
+                AotDetector.useGeneratedArtifacts() ? "on" : "off", classCache);
+
+        if (reportDirectory != null) {
+            var report = new StartupReport(
+                    label.isBlank() ? null : label,
+                    DateTimeFormatter.ISO_INSTANT.format(startedAt),
+                    System.getProperty("java.version"),
+                    environment.getProperty("spring.main.web-application-type", "servlet"),
+                    AotDetector.useGeneratedArtifacts(),
+                    classCache,
+                    mode,
+                    sources,
+                    status == null ? null : status.name(),
+                    exitCode,
+                    readyMillis,
+                    firstRowMillis,
+                    totalMillis
+            );
+            Path reportFile = jobRun.writeReport(reportDirectory, "startup", label, startedAt, report);
+            log.info("Startup report written to {}", reportFile);
+        }
+
+        if (exit) {
+            jobRun.exit(exitCode);
+        }
+    }
+
+    private int validate(String mode, List<String> sources) {
+        if (!MODES.contains(mode.toLowerCase())) {
+            log.error("Unknown mode [{}], expected one of {}", mode, MODES);
+            return EXIT_USAGE;
+        }
+        for (String source : sources) {
+            try {
+                if (SourceFilePartitioner.match(source).isEmpty()) {
+                    log.error("No source files match [{}]", source);
+                    return EXIT_USAGE;
+                }
+            } catch (IOException e) {
+                log.error("Unable to list source files [{}]: {}", source, e.toString());
+                return EXIT_USAGE;
+            }
+        }
+        return EXIT_COMPLETED;
+    }
+
+    /**
+     * Runs one execution to its end.
+     *
+     * @param source the files to ingest, or {@code null} for the configured source file
+     * @return the execution's status, or {@code null} if it could not be started
+     */
+    private BatchStatus ingest(String mode, String source) throws InterruptedException {
+        var builder = new JobParametersBuilder()
+                .addLong("run.id", System.currentTimeMillis())
+                .addString(LoadModeDecider.LOAD_MODE_PARAMETER, mode);
+        if (source != null) {
+            builder.addString(SourceFilePartitioner.SOURCE_PARAMETER, source);
+        }
+
+        long start = System.nanoTime();
+        JobExecution execution;
+        try {
+            execution = jobOperator.start(job, builder.toJobParameters());
+        } catch (Exception e) {
+            log.error("Unable to start {}", job.getName(), e);
+            return null;
+        }
+        BatchStatus status = jobRun.await(execution.getId());
+        log.info("Execution {} of [{}] {} in {} ms", execution.getId(),
+                source == null ? environment.getProperty("taxi.ingestion.source-file") : source,
+                status, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return status;
+    }
+
+    /**
+     * Waits for the spill backlog to reach the database.
+     *
+     * @return {@code false} if chunks are still spilled after {@code drainTimeout}
+     */
+    private boolean awaitDrain() throws InterruptedException {
+        if (!spillBuffer.isEnabled() || spillBuffer.backlogChunks() == 0) {
+            return true;
+        }
+        log.info("Waiting up to {} for {} spilled chunks to drain",
+                drainTimeout, spillBuffer.backlogChunks());
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        while (spillBuffer.backlogChunks() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                log.error("{} spilled chunks are still not in the database, they are drained on the next start",
+                        spillBuffer.backlogChunks());
+                return false;
+            }
+            Thread.sleep(JobRunSupport.POLL_MILLIS);
+        }
+        return true;
+    }
+
+    private static int exitCode(BatchStatus status) {
+        if (status == null) {
+            return EXIT_FAILED;
+        }
+        return switch (status) {
+            case COMPLETED -> EXIT_COMPLETED;
+            case STOPPING, STOPPED, ABANDONED -> EXIT_STOPPED;
+            default -> EXIT_FAILED;
+        };
+    }
+
+    /**
+     * The class data sharing or AOT cache archive the JVM was started with, or "none".
+     */
+    private static String classCache(List<String> jvmArguments) {
+        for (String argument : jvmArguments) {
+            if (argument.startsWith("-XX:AOTCache=") || argument.startsWith("-XX:SharedArchiveFile=")) {
+                return argument.substring(argument.indexOf('=') + 1);
+            }
+        }
+        return "none";
+    }
+}
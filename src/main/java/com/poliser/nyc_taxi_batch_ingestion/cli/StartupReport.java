@@ -0,0 +1,26 @@
+package com.poliser.nyc_taxi_batch_ingestion.cli;
+
+import java.util.List;
+
+/**
+ * Startup timings of one command-line run, in milliseconds since the JVM started. Runs
+ * over the same source are comparable across boots: {@code webApplicationType},
+ * {@code aot} and {@code classCache} tell the boots apart, {@code label} the runs.
+ *
+ * @param firstRowMillis -1 when no chunk was committed
+ */
+public record StartupReport(
+        String label,
+        String startedAt,
+        String javaVersion,
+        String webApplicationType,
+        boolean aot,
+        String classCache,
+        String mode,
+        List<String> sources,
+        String status,
+        int exitCode,
+        long readyMillis,
+        long firstRowMillis,
+        long totalMillis
+) {}
@@ -0,0 +1,15 @@
+package com.poliser.nyc_taxi_batch_ingestion.domain.model;
+
+/**
+ * Why a parsed trip was not loaded; stored as {@code reason} in
+ * {@code ingestion.taxi_trip_reject}.
+ */
+public enum RejectReason {
+    MISSING_DATETIME,
+    PICKUP_AFTER_DROPOFF,
+    NEGATIVE_PASSENGER_COUNT,
+    NEGATIVE_TRIP_DISTANCE,
+    TRIP_DISTANCE_OUT_OF_RANGE,
+    // A line of a tailed file that does not parse; appended last, spill files store ordinals
+    UNPARSEABLE_LINE
+}
@@ -23,5 +23,11 @@ public record TaxiCsvRow(
         BigDecimal tipAmount,
         BigDecimal tollsAmount,
         BigDecimal improvementSurcharge,
-        BigDecimal totalAmount
+        BigDecimal totalAmount,
+
+        // Only in the layouts of later years; null when the file lacks the column
+        Integer pickupLocationId,
+        Integer dropoffLocationId,
+        BigDecimal congestionSurcharge,
+        BigDecimal airportFee
 ) {}
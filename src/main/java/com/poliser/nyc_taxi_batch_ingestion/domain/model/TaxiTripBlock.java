@@ -0,0 +1,266 @@
+package com.poliser.nyc_taxi_batch_ingestion.domain.model;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented block of trips used by the columnar step mode: one primitive array per
+ * column, reused from block to block so a chunk costs no per-row objects.
+ * <p>
+ * Decimals are fixed-point longs scaled to their {@code ingestion.taxi_trip_raw} column
+ * ({@link #DECIMAL_SCALES}), timestamps are epoch seconds of the local date-time, and
+ * every column carries a null bitmap. An empty integer field fails parsing, as it does
+ * with {@code DefaultFieldSet}, so integers are only null when the file's layout lacks
+ * the column.
+ */
+public final class TaxiTripBlock {
+
+    public static final int VENDOR_ID = 0;
+    public static final int PASSENGER_COUNT = 1;
+    public static final int RATE_CODE_ID = 2;
+    public static final int PAYMENT_TYPE = 3;
+    public static final int PICKUP_LOCATION_ID = 4;
+    public static final int DROPOFF_LOCATION_ID = 5;
+    private static final int INT_COLUMNS = 6;
+
+    public static final int PICKUP_DATETIME = 0;
+    public static final int DROPOFF_DATETIME = 1;
+    private static final int TIMESTAMP_COLUMNS = 2;
+
+    public static final int TRIP_DISTANCE = 0;
+    public static final int PICKUP_LONGITUDE = 1;
+    public static final int PICKUP_LATITUDE = 2;
+    public static final int DROPOFF_LONGITUDE = 3;
+    public static final int DROPOFF_LATITUDE = 4;
+    public static final int FARE_AMOUNT = 5;
+    public static final int EXTRA = 6;
+    public static final int MTA_TAX = 7;
+    public static final int TIP_AMOUNT = 8;
+    public static final int TOLLS_AMOUNT = 9;
+    public static final int IMPROVEMENT_SURCHARGE = 10;
+    public static final int TOTAL_AMOUNT = 11;
+    public static final int CONGESTION_SURCHARGE = 12;
+    public static final int AIRPORT_FEE = 13;
+
+    /**
+     * Scale of every decimal column, matching {@code docker/init/01-schema.sql}.
+     */
+    public static final int[] DECIMAL_SCALES = {3, 6, 6, 6, 6, 2, 2, 2, 2, 2, 2, 2, 2, 2};
+
+    private final int capacity;
+    private int size;
+    private int rejectedCount;
+    private String sourceFile;
+
+    private final long[] lineNumbers;
+    private final int[][] ints;
+    private final long[][] intNulls;
+    private final long[][] timestamps;
+    private final long[][] timestampNulls;
+    private final long[][] decimals;
+    private final long[][] decimalNulls;
+    private final String[] storeAndFwdFlags;
+
+    public TaxiTripBlock(int capacity) {
+        int words = (capacity + 63) >>> 6;
+        this.capacity = capacity;
+        this.lineNumbers = new long[capacity];
+        this.ints = new int[INT_COLUMNS][capacity];
+        this.intNulls = new long[INT_COLUMNS][words];
+        this.timestamps = new long[TIMESTAMP_COLUMNS][capacity];
+        this.timestampNulls = new long[TIMESTAMP_COLUMNS][words];
+        this.decimals = new long[DECIMAL_SCALES.length][capacity];
+        this.decimalNulls = new long[DECIMAL_SCALES.length][words];
+        this.storeAndFwdFlags = new String[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        rejectedCount = 0;
+        for (long[] bitmap : intNulls) {
+            Arrays.fill(bitmap, 0L);
+        }
+        for (long[] bitmap : timestampNulls) {
+            Arrays.fill(bitmap, 0L);
+        }
+        for (long[] bitmap : decimalNulls) {
+            Arrays.fill(bitmap, 0L);
+        }
+    }
+
+    /**
+     * Reserves the next row; every column of it must then be set.
+     */
+    public int addRow() {
+        return size++;
+    }
+
+    /**
+     * Drops the last row, e.g. after it failed to parse.
+     */
+    public void removeLastRow() {
+        size--;
+        clearNulls(size);
+    }
+
+    /**
+     * Keeps the first {@code newSize} rows, after {@link #moveRow} compacted the survivors.
+     */
+    public void truncate(int newSize) {
+        for (int row = newSize; row < size; row++) {
+            clearNulls(row);
+        }
+        size = newSize;
+    }
+
+    public void moveRow(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        lineNumbers[to] = lineNumbers[from];
+        for (int c = 0; c < INT_COLUMNS; c++) {
+            ints[c][to] = ints[c][from];
+            setBit(intNulls[c], to, getBit(intNulls[c], from));
+        }
+        for (int c = 0; c < TIMESTAMP_COLUMNS; c++) {
+            timestamps[c][to] = timestamps[c][from];
+            setBit(timestampNulls[c], to, getBit(timestampNulls[c], from));
+        }
+        for (int c = 0; c < DECIMAL_SCALES.length; c++) {
+            decimals[c][to] = decimals[c][from];
+            setBit(decimalNulls[c], to, getBit(decimalNulls[c], from));
+        }
+        storeAndFwdFlags[to] = storeAndFwdFlags[from];
+    }
+
+    public String sourceFile() {
+        return sourceFile;
+    }
+
+    public void setSourceFile(String sourceFile) {
+        this.sourceFile = sourceFile;
+    }
+
+    public int rejectedCount() {
+        return rejectedCount;
+    }
+
+    public void setRejectedCount(int rejectedCount) {
+        this.rejectedCount = rejectedCount;
+    }
+
+    public long lineNumber(int row) {
+        return lineNumbers[row];
+    }
+
+    public void setLineNumber(int row, long lineNumber) {
+        lineNumbers[row] = lineNumber;
+    }
+
+    public int intValue(int column, int row) {
+        return ints[column][row];
+    }
+
+    public void setInt(int column, int row, int value) {
+        ints[column][row] = value;
+        setBit(intNulls[column], row, false);
+    }
+
+    public boolean isIntNull(int column, int row) {
+        return getBit(intNulls[column], row);
+    }
+
+    public void setIntNull(int column, int row) {
+        ints[column][row] = 0;
+        setBit(intNulls[column], row, true);
+    }
+
+    public boolean isTimestampNull(int column, int row) {
+        return getBit(timestampNulls[column], row);
+    }
+
+    /**
+     * Epoch second of the local date-time, read as UTC.
+     */
+    public long timestamp(int column, int row) {
+        return timestamps[column][row];
+    }
+
+    public void setTimestamp(int column, int row, long epochSecond) {
+        timestamps[column][row] = epochSecond;
+        setBit(timestampNulls[column], row, false);
+    }
+
+    public void setTimestampNull(int column, int row) {
+        timestamps[column][row] = 0;
+        setBit(timestampNulls[column], row, true);
+    }
+
+    public boolean isDecimalNull(int column, int row) {
+        return getBit(decimalNulls[column], row);
+    }
+
+    /**
+     * Unscaled value at the column's {@link #DECIMAL_SCALES scale}.
+     */
+    public long decimal(int column, int row) {
+        return decimals[column][row];
+    }
+
+    public void setDecimal(int column, int row, long unscaled) {
+        decimals[column][row] = unscaled;
+        setBit(decimalNulls[column], row, false);
+    }
+
+    public void setDecimalNull(int column, int row) {
+        decimals[column][row] = 0;
+        setBit(decimalNulls[column], row, true);
+    }
+
+    public String storeAndFwdFlag(int row) {
+        return storeAndFwdFlags[row];
+    }
+
+    public void setStoreAndFwdFlag(int row, String flag) {
+        storeAndFwdFlags[row] = flag;
+    }
+
+    private void clearNulls(int row) {
+        for (long[] bitmap : intNulls) {
+            setBit(bitmap, row, false);
+        }
+        for (long[] bitmap : timestampNulls) {
+            setBit(bitmap, row, false);
+        }
+        for (long[] bitmap : decimalNulls) {
+            setBit(bitmap, row, false);
+        }
+    }
+
+    private static boolean getBit(long[] bitmap, int row) {
+        return (bitmap[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private static void setBit(long[] bitmap, int row, boolean value) {
+        if (value) {
+            bitmap[row >>> 6] |= 1L << row;
+        } else {
+            bitmap[row >>> 6] &= ~(1L << row);
+        }
+    }
+}
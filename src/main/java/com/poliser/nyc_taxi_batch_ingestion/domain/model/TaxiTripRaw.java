@@ -17,6 +17,8 @@ public record TaxiTripRaw(
         BigDecimal pickupLatitude,
         BigDecimal dropoffLongitude,
         BigDecimal dropoffLatitude,
+        Integer pickupLocationId,
+        Integer dropoffLocationId,
 
         Integer rateCodeId,
         String storeAndFwdFlag,
@@ -28,5 +30,7 @@ public record TaxiTripRaw(
         BigDecimal tipAmount,
         BigDecimal tollsAmount,
         BigDecimal improvementSurcharge,
-        BigDecimal totalAmount
+        BigDecimal totalAmount,
+        BigDecimal congestionSurcharge,
+        BigDecimal airportFee
 ) {}
@@ -0,0 +1,7 @@
+package com.poliser.nyc_taxi_batch_ingestion.domain.model;
+
+public record TaxiTripReject(
+        String sourceFile,
+        long lineNumber,
+        RejectReason reason
+) {}
@@ -0,0 +1,42 @@
+package com.poliser.nyc_taxi_batch_ingestion.loadtest;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.ChunkCommitHook;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Measures chunk latency as the time between two commits on the same thread, i.e. one
+ * full read, process, write and commit cycle, whatever the step mode.
+ */
+public class ChunkLatencyRecorder extends ChunkCommitHook {
+
+    private final Map<Thread, Long> lastCommit = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+    public void reset() {
+        lastCommit.clear();
+        latencies.clear();
+    }
+
+    /**
+     * Chunk latencies recorded since {@link #reset()}, in nanoseconds, sorted.
+     */
+    public long[] latencies() {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    @Override
+    protected void chunkCommitted() {
+        long now = System.nanoTime();
+        // The first commit of a thread has no previous one to measure from
+        Long previous = lastCommit.put(Thread.currentThread(), now);
+        if (previous != null) {
+            latencies.add(now - previous);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.poliser.nyc_taxi_batch_ingestion.loadtest;
+
+import org.springframework.batch.core.job.Job;
+import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+/**
+ * Load-test harness, active with {@code taxi.loadtest.enabled=true} (the {@code loadtest}
+ * profile).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "taxi.loadtest", name = "enabled", havingValue = "true")
+public class LoadTestConfig {
+
+    // Static: post-processors are created before any other bean
+    @Bean
+    public static ChunkLatencyRecorder chunkLatencyRecorder() {
+        return new ChunkLatencyRecorder();
+    }
+
+    @Bean
+    public LoadTestRunner loadTestRunner(
+            @Value("${taxi.ingestion.source-file:data/yellow_tripdata.csv}") String sourceFile,
+            @Value("${taxi.loadtest.rows:1000000}") long rows,
+            @Value("${taxi.loadtest.size-mb:0}") long sizeMegabytes,
+            @Value("${taxi.loadtest.seed:42}") long seed,
+            @Value("${taxi.loadtest.dirty-rate:0.01}") double dirtyRate,
+            @Value("${taxi.loadtest.mode:standard}") String mode,
+            @Value("${taxi.loadtest.label:}") String label,
+            @Value("${taxi.loadtest.report-dir:target/loadtest}") String reportDirectory,
+            @Value("${taxi.loadtest.exit:true}") boolean exit,
+            JobOperator jobOperator,
+            JobRepository jobRepository,
+            Job taxiIngestionJob,
+            DataSource dataSource,
+            ChunkLatencyRecorder chunkLatencyRecorder,
+            JsonMapper jsonMapper,
+            Environment environment,
+            ConfigurableApplicationContext context
+    ) {
+        return new LoadTestRunner(
+                sourceFile,
+                rows,
+                sizeMegabytes * 1024 * 1024,
+                seed,
+                dirtyRate,
+                mode,
+                label,
+                Path.of(reportDirectory),
+                exit,
+                jobOperator,
+                jobRepository,
+                taxiIngestionJob,
+                dataSource,
+                chunkLatencyRecorder,
+                jsonMapper,
+                environment,
+                context
+        );
+    }
+}
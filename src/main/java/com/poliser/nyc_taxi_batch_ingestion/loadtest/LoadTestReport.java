@@ -0,0 +1,30 @@
+package com.poliser.nyc_taxi_batch_ingestion.loadtest;
+
+import java.util.Map;
+
+/**
+ * Outcome of one load-test run. Runs over the same generated data and settings are
+ * comparable; {@code label} tells them apart, e.g. the commit under test.
+ */
+public record LoadTestReport(
+        String label,
+        String startedAt,
+        String javaVersion,
+        int availableProcessors,
+        long maxHeapBytes,
+        Map<String, String> settings,
+        long seed,
+        long rows,
+        long dirtyRows,
+        long fileBytes,
+        String status,
+        long durationMillis,
+        double rowsPerSecond,
+        double megabytesPerSecond,
+        long chunks,
+        double chunkLatencyP50Millis,
+        double chunkLatencyP99Millis,
+        long peakHeapBytes,
+        long gcCount,
+        long gcTimeMillis
+) {}
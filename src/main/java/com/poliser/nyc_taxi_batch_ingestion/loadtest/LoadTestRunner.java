@@ -0,0 +1,261 @@
+package com.poliser.nyc_taxi_batch_ingestion.loadtest;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.LoadModeDecider;
+import com.poliser.nyc_taxi_batch_ingestion.batch.job.JobRunSupport;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFilePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripPartitionedItemWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.job.Job;
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.job.parameters.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@code taxiIngestionJob} once over generated data and writes a
+ * {@link LoadTestReport} as JSON.
+ * <p>
+ * The data goes to the configured source file and is reused by later runs with the same
+ * generator settings, recorded next to it in a {@code .params} file; a source file without
+ * one is never overwritten. Rows of earlier runs are deleted first, so every run inserts
+ * the whole file. Peak heap is the sum of the heap pools' peaks, an upper bound.
+ */
+public class LoadTestRunner implements ApplicationRunner {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final List<String> REPORTED_SETTINGS = List.of(
+            "taxi.ingestion.parser",
+            "taxi.ingestion.step-mode",
+            "taxi.ingestion.writer",
+            "taxi.ingestion.executor.mode",
+            "taxi.ingestion.executor.threads",
+            "taxi.ingestion.pipeline.write-threads",
+            "taxi.ingestion.pipeline.adaptive.enabled",
+            "spring.datasource.hikari.maximum-pool-size"
+    );
+
+    private static final List<String> TARGET_TABLES = List.of(
+            "ingestion.taxi_trip_raw",
+            TaxiTripPartitionedItemWriter.TARGET_TABLE,
+            "ingestion.taxi_trip_reject"
+    );
+
+    private final String sourceFile;
+    private final long rows;
+    private final long maxBytes;
+    private final long seed;
+    private final double dirtyRate;
+    private final String mode;
+    private final String label;
+    private final Path reportDirectory;
+    private final boolean exit;
+    private final JobOperator jobOperator;
+    private final Job job;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChunkLatencyRecorder chunkLatencyRecorder;
+    private final Environment environment;
+    private final JobRunSupport jobRun;
+
+    public LoadTestRunner(
+            String sourceFile,
+            long rows,
+            long maxBytes,
+            long seed,
+            double dirtyRate,
+            String mode,
+            String label,
+            Path reportDirectory,
+            boolean exit,
+            JobOperator jobOperator,
+            JobRepository jobRepository,
+            Job job,
+            DataSource dataSource,
+            ChunkLatencyRecorder chunkLatencyRecorder,
+            JsonMapper jsonMapper,
+            Environment environment,
+            ConfigurableApplicationContext context
+    ) {
+        this.sourceFile = sourceFile;
+        this.rows = maxBytes > 0 ? 0 : rows;
+        this.maxBytes = maxBytes;
+        this.seed = seed;
+        this.dirtyRate = dirtyRate;
+        this.mode = mode;
+        this.label = label;
+        this.reportDirectory = reportDirectory;
+        this.exit = exit;
+        this.jobOperator = jobOperator;
+        this.job = job;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.chunkLatencyRecorder = chunkLatencyRecorder;
+        this.environment = environment;
+        this.jobRun = new JobRunSupport(jobRepository, jsonMapper, context);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path file = Path.of(sourceFile);
+        Properties data = prepareData(file);
+        for (String table : TARGET_TABLES) {
+            int deleted = jdbcTemplate.update("DELETE FROM " + table + " WHERE source_file = ?",
+                    SourceFilePartitioner.normalize(sourceFile));
+            log.info("Deleted {} rows of earlier runs from {}", deleted, table);
+        }
+
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long gcCountBefore = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+        long gcTimeBefore = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+        chunkLatencyRecorder.reset();
+
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        JobExecution execution = jobOperator.start(job, new JobParametersBuilder()
+                .addLong("run.id", System.currentTimeMillis())
+                .addString(LoadModeDecider.LOAD_MODE_PARAMETER, mode)
+                .toJobParameters());
+        BatchStatus status = jobRun.await(execution.getId());
+        long durationNanos = System.nanoTime() - start;
+
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        long gcCount = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum()
+                - gcCountBefore;
+        long gcTime = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum()
+                - gcTimeBefore;
+        long[] latencies = chunkLatencyRecorder.latencies();
+
+        long generatedRows = Long.parseLong(data.getProperty("generated.rows"));
+        long fileBytes = Files.size(file);
+        double seconds = durationNanos / 1e9;
+        var report = new LoadTestReport(
+                label.isBlank() ? null : label,
+                DateTimeFormatter.ISO_INSTANT.format(startedAt),
+                System.getProperty("java.version"),
+                Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().maxMemory(),
+                settings(),
+                seed,
+                generatedRows,
+                Long.parseLong(data.getProperty("generated.dirty-rows")),
+                fileBytes,
+                status.name(),
+                TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                generatedRows / seconds,
+                fileBytes / 1024.0 / 1024.0 / seconds,
+                latencies.length,
+                percentileMillis(latencies, 0.50),
+                percentileMillis(latencies, 0.99),
+                peakHeap,
+                gcCount,
+                gcTime
+        );
+
+        Path reportFile = jobRun.writeReport(reportDirectory, "report", label, startedAt, report);
+        log.info("Load test {}: {} rows/s, chunk p50 {} ms, p99 {} ms, report written to {}",
+                status, Math.round(report.rowsPerSecond()), report.chunkLatencyP50Millis(),
+                report.chunkLatencyP99Millis(), reportFile);
+
+        if (exit) {
+            jobRun.exit(status == BatchStatus.COMPLETED ? 0 : 1);
+        }
+    }
+
+    /**
+     * Generates the source file unless it already holds data of the same settings.
+     *
+     * @return the generator settings and counts of the file
+     */
+    private Properties prepareData(Path file) throws IOException {
+        Path paramsFile = file.resolveSibling(file.getFileName() + ".params");
+        var wanted = new Properties();
+        wanted.setProperty("seed", Long.toString(seed));
+        wanted.setProperty("rows", Long.toString(rows));
+        wanted.setProperty("bytes", Long.toString(maxBytes));
+        wanted.setProperty("dirty-rate", Double.toString(dirtyRate));
+
+        if (Files.exists(paramsFile) && Files.exists(file)) {
+            var existing = new Properties();
+            try (Reader reader = Files.newBufferedReader(paramsFile)) {
+                existing.load(reader);
+            }
+            if (wanted.keySet().stream().allMatch(key ->
+                    Objects.equals(wanted.get(key), existing.get(key)))) {
+                log.info("Reusing generated data in [{}]", file);
+                return existing;
+            }
+        } else if (Files.exists(file)) {
+            throw new IllegalStateException("Source file [" + file + "] was not generated by the "
+                    + "load test; point taxi.ingestion.source-file somewhere else");
+        }
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        var generator = new TripDataGenerator(seed, dirtyRate);
+        long start = System.nanoTime();
+        long generated = generator.write(file, rows, maxBytes);
+        log.info("Generated {} rows ({} dirty, {} bytes) into [{}] in {} ms", generated,
+                generator.dirtyRows(), Files.size(file), file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        wanted.setProperty("generated.rows", Long.toString(generated));
+        wanted.setProperty("generated.dirty-rows", Long.toString(generator.dirtyRows()));
+        try (Writer writer = Files.newBufferedWriter(paramsFile)) {
+            wanted.store(writer, "Load test data of " + file.getFileName());
+        }
+        return wanted;
+    }
+
+    private Map<String, String> settings() {
+        var settings = new TreeMap<String, String>();
+        settings.put("taxi.loadtest.mode", mode);
+        for (String key : REPORTED_SETTINGS) {
+            String value = environment.getProperty(key);
+            if (value != null) {
+                settings.put(key, value);
+            }
+        }
+        return settings;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
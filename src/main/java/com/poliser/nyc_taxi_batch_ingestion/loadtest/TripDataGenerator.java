@@ -0,0 +1,173 @@
+package com.poliser.nyc_taxi_batch_ingestion.loadtest;
+
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiCsvRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded synthetic trips in the 19-column 2015 yellow taxi layout: January pickups,
+ * Manhattan coordinates printed with float precision, fares derived from the distance.
+ * <p>
+ * A {@code dirtyRate} share of rows breaks one validation rule each: a missing pickup
+ * time, a pickup after the dropoff, a negative distance or a distance above the column
+ * range. The same seed always produces the same rows, whatever the limits.
+ */
+public class TripDataGenerator {
+
+    public static final String HEADER = "VendorID,tpep_pickup_datetime,tpep_dropoff_datetime,"
+            + "passenger_count,trip_distance,pickup_longitude,pickup_latitude,RateCodeID,"
+            + "store_and_fwd_flag,dropoff_longitude,dropoff_latitude,payment_type,fare_amount,"
+            + "extra,mta_tax,tip_amount,tolls_amount,improvement_surcharge,total_amount";
+
+    private static final DateTimeFormatter DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime START = LocalDateTime.of(2015, 1, 1, 0, 0);
+
+    private static final BigDecimal MTA_TAX = new BigDecimal("0.5");
+    private static final BigDecimal SURCHARGE = new BigDecimal("0.3");
+    private static final BigDecimal TOLLS = new BigDecimal("5.54");
+    // Above the NUMERIC(10,3) range of trip_distance
+    private static final BigDecimal OVERFLOWING_DISTANCE = new BigDecimal("12345678.9");
+
+    private final SplittableRandom random;
+    private final double dirtyRate;
+
+    private long nextLineNumber = 1;
+    private long dirtyRows;
+
+    public TripDataGenerator(long seed, double dirtyRate) {
+        this.random = new SplittableRandom(seed);
+        this.dirtyRate = dirtyRate;
+    }
+
+    /**
+     * Next row, numbered from 1 like the first data line of a file.
+     */
+    public TaxiCsvRow next() {
+        boolean dirty = random.nextDouble() < dirtyRate;
+        LocalDateTime pickup = START.plusSeconds(random.nextLong(31L * 24 * 3600));
+        LocalDateTime dropoff = pickup.plusSeconds(120 + random.nextLong(3600));
+        BigDecimal distance = money(0.3 + random.nextDouble() * random.nextDouble() * 20);
+        BigDecimal fare = money(2.5 + 2.5 * distance.doubleValue());
+
+        if (dirty) {
+            dirtyRows++;
+            switch (random.nextInt(4)) {
+                case 0 -> pickup = null;
+                case 1 -> dropoff = pickup.minusMinutes(5);
+                case 2 -> distance = distance.negate();
+                default -> distance = OVERFLOWING_DISTANCE;
+            }
+        }
+
+        BigDecimal extra = random.nextInt(3) == 0 ? new BigDecimal("0.5") : BigDecimal.ZERO;
+        BigDecimal tip = random.nextBoolean() ? money(fare.doubleValue() * 0.2) : BigDecimal.ZERO;
+        BigDecimal tolls = random.nextInt(20) == 0 ? TOLLS : BigDecimal.ZERO;
+
+        return new TaxiCsvRow(
+                nextLineNumber++,
+                1 + random.nextInt(2),
+                pickup,
+                dropoff,
+                1 + random.nextInt(6),
+                distance,
+                coordinate(-73.99),
+                coordinate(40.75),
+                1,
+                random.nextInt(50) == 0 ? "Y" : "N",
+                coordinate(-73.98),
+                coordinate(40.74),
+                1 + random.nextInt(2),
+                fare,
+                extra,
+                MTA_TAX,
+                tip,
+                tolls,
+                SURCHARGE,
+                fare.add(extra).add(MTA_TAX).add(tip).add(tolls).add(SURCHARGE),
+                null,
+                null,
+                null,
+                null
+        );
+    }
+
+    /**
+     * Rows generated so far that break a validation rule.
+     */
+    public long dirtyRows() {
+        return dirtyRows;
+    }
+
+    /**
+     * Writes the header and rows to {@code file} until {@code maxRows} rows or
+     * {@code maxBytes} bytes are written, whichever comes first; 0 means no limit.
+     *
+     * @return the number of rows written
+     */
+    public long write(Path file, long maxRows, long maxBytes) throws IOException {
+        if (maxRows <= 0 && maxBytes <= 0) {
+            throw new IllegalArgumentException("A row or byte limit is required");
+        }
+
+        long rows = 0;
+        long bytes = HEADER.length() + 1;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write(HEADER);
+            writer.newLine();
+            while ((maxRows <= 0 || rows < maxRows) && (maxBytes <= 0 || bytes < maxBytes)) {
+                String line = toCsv(next());
+                writer.write(line);
+                writer.write('\n');
+                bytes += line.length() + 1;
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    public static String toCsv(TaxiCsvRow row) {
+        return String.join(",",
+                str(row.vendorId()),
+                row.pickupDatetime() == null ? "" : DATE_TIME.format(row.pickupDatetime()),
+                row.dropoffDatetime() == null ? "" : DATE_TIME.format(row.dropoffDatetime()),
+                str(row.passengerCount()),
+                str(row.tripDistance()),
+                str(row.pickupLongitude()),
+                str(row.pickupLatitude()),
+                str(row.rateCodeId()),
+                row.storeAndFwdFlag(),
+                str(row.dropoffLongitude()),
+                str(row.dropoffLatitude()),
+                str(row.paymentType()),
+                str(row.fareAmount()),
+                str(row.extra()),
+                str(row.mtaTax()),
+                str(row.tipAmount()),
+                str(row.tollsAmount()),
+                str(row.improvementSurcharge()),
+                str(row.totalAmount()));
+    }
+
+    // The source files print coordinates as doubles widened from floats
+    private BigDecimal coordinate(double center) {
+        return new BigDecimal(Double.toString((float) (center + (random.nextDouble() - 0.5) * 0.1)));
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static String str(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
@@ -1,19 +1,42 @@
 package com.poliser.nyc_taxi_batch_ingestion.web.controllers;
 
+import com.poliser.nyc_taxi_batch_ingestion.batch.bulk.LoadModeDecider;
+import com.poliser.nyc_taxi_batch_ingestion.batch.jfr.FlightRecordingService;
+import com.poliser.nyc_taxi_batch_ingestion.batch.jfr.RecordingStatus;
+import com.poliser.nyc_taxi_batch_ingestion.batch.lease.LeaseQueue;
+import com.poliser.nyc_taxi_batch_ingestion.batch.lease.LeaseRunProgress;
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.IngestionProgress;
+import com.poliser.nyc_taxi_batch_ingestion.batch.observability.ProgressSnapshot;
+import com.poliser.nyc_taxi_batch_ingestion.batch.partition.SourceFilePartitioner;
+import com.poliser.nyc_taxi_batch_ingestion.batch.tail.TailIngestionService;
+import com.poliser.nyc_taxi_batch_ingestion.batch.tail.TailLag;
 
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.job.Job;
 import org.springframework.batch.core.job.JobExecution;
 import org.springframework.batch.core.job.parameters.JobParameters;
 import org.springframework.batch.core.job.parameters.JobParametersBuilder;
 import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.batch.core.partition.PartitionStep;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.Step;
 import org.springframework.batch.core.step.StepExecution;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.ToLongFunction;
 
+// Not created by the headless cli and loadtest profiles
+@ConditionalOnWebApplication
 @RestController
 @RequestMapping("/jobs")
 public class JobController {
@@ -21,23 +44,48 @@ public class JobController {
     private final JobOperator jobOperator;
     private final JobRepository jobRepository;
     private final Job taxiIngestionJob;
+    private final TailIngestionService tailIngestionService;
+    private final IngestionProgress ingestionProgress;
+    private final TaskScheduler progressTaskScheduler;
+    private final LeaseQueue leaseQueue;
+    private final FlightRecordingService flightRecordingService;
 
     public JobController(
             JobOperator jobOperator,
             JobRepository jobRepository,
-            Job taxiIngestionJob
+            Job taxiIngestionJob,
+            TailIngestionService tailIngestionService,
+            IngestionProgress ingestionProgress,
+            @Qualifier("progressTaskScheduler") TaskScheduler progressTaskScheduler,
+            LeaseQueue leaseQueue,
+            FlightRecordingService flightRecordingService
     ) {
         this.jobOperator = jobOperator;
         this.jobRepository = jobRepository;
         this.taxiIngestionJob = taxiIngestionJob;
+        this.tailIngestionService = tailIngestionService;
+        this.ingestionProgress = ingestionProgress;
+        this.progressTaskScheduler = progressTaskScheduler;
+        this.leaseQueue = leaseQueue;
+        this.flightRecordingService = flightRecordingService;
     }
 
     @PostMapping("/run")
-    public ResponseEntity<?> run() throws Exception {
+    public ResponseEntity<?> run(
+            @RequestParam(name = "mode", defaultValue = "standard") String mode,
+            @RequestParam(name = "source", required = false) String source
+    ) throws Exception {
 
-        JobParameters params = new JobParametersBuilder()
+        JobParametersBuilder builder = new JobParametersBuilder()
                 .addLong("run.id", System.currentTimeMillis())
-                .toJobParameters();
+                .addString(LoadModeDecider.LOAD_MODE_PARAMETER, mode);
+
+        // A directory or glob switches the run to one partition per matched file
+        if (source != null && !source.isBlank()) {
+            builder.addString(SourceFilePartitioner.SOURCE_PARAMETER, source);
+        }
+
+        JobParameters params = builder.toJobParameters();
 
         JobExecution execution = jobOperator.start(taxiIngestionJob, params);
 
@@ -109,14 +157,154 @@ public class JobController {
                         "exitStatus", execution.getExitStatus().getExitCode(),
                         "readCount", getStepMetric(execution, StepExecution::getReadCount),
                         "writeCount", getStepMetric(execution, StepExecution::getWriteCount),
+                        "filterCount", getStepMetric(execution, StepExecution::getFilterCount),
                         "skipCount", getStepMetric(execution, StepExecution::getProcessSkipCount)
                 )
         );
     }
 
+    /**
+     * Server-sent {@code progress} events with a {@link ProgressSnapshot} of an execution
+     * running in this instance, every {@code taxi.progress.interval-ms}, read from memory
+     * only. The stream ends after the snapshot showing the execution finished.
+     */
+    @GetMapping(path = "/progress/{executionId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> progress(@PathVariable Long executionId) {
+
+        if (ingestionProgress.snapshot(executionId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        var emitter = new SseEmitter(0L);
+        var task = new AtomicReference<ScheduledFuture<?>>();
+        Runnable cancel = () -> {
+            ScheduledFuture<?> future = task.get();
+            if (future != null) {
+                future.cancel(false);
+            }
+        };
+        emitter.onCompletion(cancel);
+        emitter.onError(error -> cancel.run());
+
+        task.set(progressTaskScheduler.scheduleAtFixedRate(() -> {
+            ProgressSnapshot snapshot = ingestionProgress.snapshot(executionId);
+            if (snapshot == null) {
+                emitter.complete();
+                cancel.run();
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(snapshot, MediaType.APPLICATION_JSON));
+                if (!BatchStatus.valueOf(snapshot.status()).isRunning()) {
+                    emitter.complete();
+                    cancel.run();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away
+                emitter.completeWithError(e);
+                cancel.run();
+            }
+        }, ingestionProgress.interval()));
+
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Queues the files matched by {@code source} as work units for the lease workers of
+     * every instance, see {@link LeaseQueue}.
+     */
+    @PostMapping("/lease/run")
+    public ResponseEntity<?> leaseRun(@RequestParam(name = "source") String source) throws Exception {
+
+        long runId = leaseQueue.submit(source);
+
+        return ResponseEntity.ok(leaseQueue.progress(runId));
+    }
+
+    /**
+     * Progress of a lease run over all instances, read from the work unit table.
+     */
+    @GetMapping("/lease/{runId}")
+    public ResponseEntity<?> leaseStatus(@PathVariable Long runId) {
+
+        LeaseRunProgress progress = leaseQueue.progress(runId);
+
+        if (progress == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(progress);
+    }
+
+    /**
+     * Starts the continuous flight recording, see {@link FlightRecordingService}.
+     */
+    @PostMapping("/recording/start")
+    public ResponseEntity<?> startRecording(
+            @RequestParam(name = "settings", required = false) String settings
+    ) throws IOException {
+
+        try {
+            return ResponseEntity.ok(flightRecordingService.startRecording(settings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Writes the recording to a file on this instance and keeps it running.
+     */
+    @PostMapping("/recording/dump")
+    public ResponseEntity<?> dumpRecording() throws IOException {
+
+        RecordingStatus status = flightRecordingService.dump();
+
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(status);
+    }
+
+    @PostMapping("/recording/stop")
+    public ResponseEntity<?> stopRecording() throws IOException {
+
+        RecordingStatus status = flightRecordingService.stopRecording();
+
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(status);
+    }
+
+    @GetMapping("/recording")
+    public ResponseEntity<?> recording() {
+        return ResponseEntity.ok(flightRecordingService.status());
+    }
+
+    @GetMapping("/tail/lag")
+    public ResponseEntity<?> tailLag() {
+
+        var lag = tailIngestionService.lag();
+
+        return ResponseEntity.ok(
+                Map.of(
+                        "enabled", tailIngestionService.isEnabled(),
+                        "running", tailIngestionService.isRunning(),
+                        "lagBytes", lag.stream().mapToLong(TailLag::lagBytes).sum(),
+                        "lagSeconds", lag.stream().mapToLong(TailLag::lagSeconds).max().orElse(0),
+                        "files", lag
+                )
+        );
+    }
+
     private long getStepMetric(JobExecution execution,
                                ToLongFunction<StepExecution> extractor) {
         return execution.getStepExecutions().stream()
+                // A partition manager's counts are the sum of its workers'
+                .filter(step -> !PartitionStep.class.getName().equals(
+                        step.getExecutionContext().get(Step.STEP_TYPE_KEY)))
                 .mapToLong(extractor)
                 .sum();
     }
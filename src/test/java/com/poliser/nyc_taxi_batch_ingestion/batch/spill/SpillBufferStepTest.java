@@ -0,0 +1,169 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.spill;
+
+import com.poliser.nyc_taxi_batch_ingestion.batch.checkpoint.CheckpointPolicy;
+import com.poliser.nyc_taxi_batch_ingestion.batch.processor.RejectBuffer;
+import com.poliser.nyc_taxi_batch_ingestion.batch.writer.TaxiTripRejectWriter;
+import com.poliser.nyc_taxi_batch_ingestion.domain.model.TaxiTripRaw;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.job.parameters.JobParameters;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.ResourcelessJobRepository;
+import org.springframework.batch.core.step.Step;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemReader;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * A chunk step writing through the {@link SpillBuffer} to a database that goes down for a
+ * while, with a job repository on the same database.
+ */
+class SpillBufferStepTest {
+
+    private static final int ROWS = 100;
+    private static final int CHUNK_SIZE = 5;
+    private static final long DOWN_FROM_LINE = 21;
+    private static final long UP_FROM_LINE = 61;
+
+    @TempDir
+    Path directory;
+
+    private volatile boolean down;
+    private SpillBuffer spillBuffer;
+
+    @AfterEach
+    void stopBuffer() {
+        if (spillBuffer != null) {
+            spillBuffer.stop();
+        }
+    }
+
+    @Test
+    void stepSurvivesTheDatabaseGoingDownAndDrainsInOrder() throws Exception {
+        var meterRegistry = new SimpleMeterRegistry();
+        var dataSource = new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLTransientConnectionException {
+                if (down) {
+                    throw new SQLTransientConnectionException("Connection refused", "08001");
+                }
+                return mock(Connection.class);
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLTransientConnectionException {
+                return getConnection();
+            }
+        };
+        var loaded = new CopyOnWriteArrayList<Long>();
+        spillBuffer = new SpillBuffer(
+                true,
+                directory,
+                1024 * 1024,
+                4 * 1024 * 1024,
+                Duration.ofSeconds(1),
+                Duration.ofMillis(10),
+                chunk -> chunk.forEach(trip -> loaded.add(trip.lineNumber())),
+                new TaxiTripRejectWriter(dataSource, meterRegistry),
+                dataSource,
+                new DataSourceTransactionManager(dataSource),
+                meterRegistry
+        );
+        spillBuffer.start();
+
+        JobRepository repository = checkpointed(failingWhileDown(new ResourcelessJobRepository()), meterRegistry);
+        var spilledChunks = new CopyOnWriteArrayList<Boolean>();
+        Step step = new StepBuilder("spillStep", repository)
+                .<TaxiTripRaw, TaxiTripRaw>chunk(CHUNK_SIZE)
+                .transactionManager(spillBuffer.stepTransactionManager(null))
+                .reader(reader(spilledChunks))
+                .writer(new SpillingItemWriter(spillBuffer, new RejectBuffer()))
+                .build();
+
+        JobExecution jobExecution = repository.createJobExecution(
+                repository.createJobInstance("spillJob", new JobParameters()),
+                new JobParameters(), new ExecutionContext());
+        StepExecution stepExecution = repository.createStepExecution("spillStep", jobExecution);
+        step.execute(stepExecution);
+
+        assertThat(stepExecution.getFailureExceptions()).isEmpty();
+        assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(stepExecution.getWriteCount()).isEqualTo(ROWS);
+        assertThat(spilledChunks).contains(true);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while ((spillBuffer.backlogChunks() > 0 || spillBuffer.isSpilling()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(spillBuffer.backlogChunks()).isZero();
+        assertThat(spillBuffer.isSpilling()).isFalse();
+        assertThat(loaded).containsExactlyElementsOf(LongStream.rangeClosed(1, ROWS).boxed().toList());
+    }
+
+    /**
+     * Reads {@link #ROWS} trips, taking the database down and up again on the way, and
+     * records per read whether the buffer was spilling.
+     */
+    private ItemReader<TaxiTripRaw> reader(List<Boolean> spilling) {
+        var lineNumber = new long[1];
+        return () -> {
+            long line = ++lineNumber[0];
+            if (line > ROWS) {
+                return null;
+            }
+            down = line >= DOWN_FROM_LINE && line < UP_FROM_LINE;
+            spilling.add(spillBuffer.isSpilling());
+            return trip(line);
+        };
+    }
+
+    /**
+     * A repository on the failing database: its writes fail while it is down.
+     */
+    private JobRepository failingWhileDown(JobRepository repository) {
+        var proxyFactory = new ProxyFactory(repository);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            String method = invocation.getMethod().getName();
+            if (down && (method.startsWith("update") || method.startsWith("create"))) {
+                throw new DataAccessResourceFailureException("Job repository unreachable");
+            }
+            return invocation.proceed();
+        });
+        return (JobRepository) proxyFactory.getProxy();
+    }
+
+    private JobRepository checkpointed(JobRepository repository, SimpleMeterRegistry meterRegistry) {
+        var proxyFactory = new ProxyFactory(repository);
+        proxyFactory.addAdvice(new CheckpointPolicy(1, Duration.ZERO, spillBuffer::isSpilling, meterRegistry));
+        return (JobRepository) proxyFactory.getProxy();
+    }
+
+    private static TaxiTripRaw trip(long lineNumber) {
+        return new TaxiTripRaw("spill.csv", lineNumber,
+                null, null, null, null, null,
+                null, null, null, null, null, null,
+                null, null, null,
+                null, null, null, null, null, null, null, null, null);
+    }
+}
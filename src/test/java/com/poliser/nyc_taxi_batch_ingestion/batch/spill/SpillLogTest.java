@@ -0,0 +1,163 @@
+package com.poliser.nyc_taxi_batch_ingestion.batch.spill;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpillLogTest {
+
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+    private static final long QUOTA_BYTES = 4 * SEGMENT_BYTES;
+
+    // Magic number of a segment, then [length][crc32c][spilledAt] before each payload
+    private static final int MAGIC_SIZE = Long.BYTES;
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverCutsATornRecordAndKeepsTheOnesBeforeIt() throws IOException {
+        SpillLog log = open();
+        log.append(bytes("first"), 1);
+        log.append(bytes("second"), 2);
+        log.close();
+
+        Path segment = singleSegment();
+        long validSize = Files.size(segment);
+        // An append cut short by a crash: a full header announcing more payload than written
+        ByteBuffer torn = ByteBuffer.allocate(HEADER_SIZE + 3)
+                .putInt(100).putInt(0).putLong(3).put(bytes("thi"));
+        Files.write(segment, torn.array(), StandardOpenOption.APPEND);
+
+        SpillLog recovered = open();
+
+        assertThat(Files.size(segment)).isEqualTo(validSize);
+        assertThat(recovered.backlogChunks()).isEqualTo(2);
+        assertThat(drain(recovered)).containsExactly("first", "second");
+        assertThat(recovered.backlogChunks()).isZero();
+        assertThat(Files.exists(segment)).isFalse();
+    }
+
+    @Test
+    void recoverCutsAtARecordFailingItsChecksum() throws IOException {
+        SpillLog log = open();
+        log.append(bytes("first"), 1);
+        log.append(bytes("second"), 2);
+        log.append(bytes("third"), 3);
+        log.close();
+
+        Path segment = singleSegment();
+        long secondPayload = MAGIC_SIZE + HEADER_SIZE + "first".length() + HEADER_SIZE;
+        byte[] content = Files.readAllBytes(segment);
+        content[(int) secondPayload] ^= 0x01;
+        Files.write(segment, content);
+
+        SpillLog recovered = open();
+
+        assertThat(Files.size(segment)).isEqualTo(MAGIC_SIZE + HEADER_SIZE + "first".length());
+        assertThat(recovered.backlogChunks()).isEqualTo(1);
+        assertThat(drain(recovered)).containsExactly("first");
+    }
+
+    @Test
+    void recoverIgnoresAFileWithoutTheSegmentMagic() throws IOException {
+        Files.write(directory.resolve("spill-0000000000000000.seg"), bytes("not a segment"));
+
+        SpillLog recovered = open();
+
+        assertThat(recovered.backlogChunks()).isZero();
+        assertThat(recovered.peek()).isNull();
+    }
+
+    @Test
+    void quarantineMovesTheRecordAsideAndDrainsIt() throws IOException {
+        SpillLog log = open();
+        log.append(bytes("poison"), 1);
+        log.append(bytes("good"), 2);
+
+        SpillLog.Record poison = log.peek();
+        log.quarantine(poison);
+
+        assertThat(log.backlogChunks()).isEqualTo(1);
+        assertThat(drain(log)).containsExactly("good");
+
+        Path failed;
+        try (Stream<Path> files = Files.list(directory)) {
+            failed = files.filter(file -> file.getFileName().toString().startsWith("failed-"))
+                    .findFirst()
+                    .orElseThrow();
+        }
+        // A one-record segment that recovers like any other
+        Files.move(failed, directory.resolve("spill-0000000000000099.seg"));
+        assertThat(drain(open())).containsExactly("poison");
+    }
+
+    @Test
+    void appendRefusesRecordsPastTheQuota() throws IOException {
+        SpillLog log = new SpillLog(directory, SEGMENT_BYTES, 2 * (HEADER_SIZE + 10));
+        log.recover();
+
+        assertThat(log.append(new byte[10], 1)).isTrue();
+        assertThat(log.append(new byte[10], 2)).isTrue();
+        assertThat(log.append(new byte[10], 3)).isFalse();
+        assertThat(log.backlogChunks()).isEqualTo(2);
+    }
+
+    @Test
+    void appendsRollOverToNewSegments() throws IOException {
+        SpillLog log = new SpillLog(directory, MAGIC_SIZE + 2 * (HEADER_SIZE + 10), QUOTA_BYTES);
+        log.recover();
+        for (int i = 0; i < 5; i++) {
+            log.append(bytes("record-" + i + ".."), i);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(3);
+        }
+        assertThat(drain(log)).containsExactly(
+                "record-0..", "record-1..", "record-2..", "record-3..", "record-4..");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+
+    private SpillLog open() throws IOException {
+        var log = new SpillLog(directory, SEGMENT_BYTES, QUOTA_BYTES);
+        log.recover();
+        return log;
+    }
+
+    private Path singleSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            assertThat(segments).hasSize(1);
+            return segments.getFirst();
+        }
+    }
+
+    private static List<String> drain(SpillLog log) throws IOException {
+        var payloads = new ArrayList<String>();
+        SpillLog.Record record;
+        while ((record = log.peek()) != null) {
+            payloads.add(new String(record.payload(), StandardCharsets.UTF_8));
+            log.advance(record);
+        }
+        return payloads;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}